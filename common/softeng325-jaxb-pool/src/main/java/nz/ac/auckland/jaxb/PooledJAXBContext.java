@@ -0,0 +1,160 @@
+package nz.ac.auckland.jaxb;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.Binder;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.PropertyException;
+import javax.xml.bind.SchemaOutputResolver;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.Validator;
+
+/**
+ * JAXBContext that is built once, when it is constructed, and that reuses a
+ * Marshaller and an Unmarshaller per thread instead of creating new ones for
+ * every call to createMarshaller() and createUnmarshaller().
+ *
+ * Marshaller and Unmarshaller instances aren't thread-safe, so each is used
+ * by only one thread. They're held in maps owned by this context, keyed by
+ * thread id, rather than in ThreadLocals: a ThreadLocal's values belong to
+ * the threads, so on a container's long-lived request threads they would
+ * outlive the context and keep the Web application's classes loaded after
+ * it's redeployed. Here, nothing is held once the context itself is
+ * unreachable, e.g. when the ContextResolver that created it is discarded.
+ *
+ * Instances are kept for at most maxSize threads; further threads are given
+ * a new instance on each call. A thread id may be reused once its thread
+ * ends, in which case the new thread takes over the instances.
+ *
+ * Because an instance is reused by all requests processed by a thread, it is
+ * reset each time it's obtained: the standard Marshaller properties (e.g.
+ * the character encoding and whether to output a fragment) are restored to
+ * their defaults, and any listener, event handler, schema and attachment
+ * (un)marshaller is removed. A Marshaller whose schema location has been
+ * set is replaced, since that property can't be unset. Adapters and
+ * implementation-specific properties aren't reset, so a caller that sets
+ * them should restore them.
+ *
+ */
+public class PooledJAXBContext extends JAXBContext {
+	// The number of threads whose instances are kept, by default: the
+	// maximum size of Jetty's default request thread pool.
+	public static final int DEFAULT_MAX_SIZE = 200;
+
+	private static final String[] MARSHALLER_PROPERTIES = {
+			Marshaller.JAXB_ENCODING, Marshaller.JAXB_FORMATTED_OUTPUT,
+			Marshaller.JAXB_SCHEMA_LOCATION,
+			Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION,
+			Marshaller.JAXB_FRAGMENT };
+
+	private final JAXBContext _context;
+	private final int _maxSize;
+
+	// The values of MARSHALLER_PROPERTIES for a new Marshaller.
+	private final Map<String, Object> _defaults = new LinkedHashMap<String, Object>();
+
+	private final ConcurrentMap<Long, Marshaller> _marshallers = new ConcurrentHashMap<Long, Marshaller>();
+	private final ConcurrentMap<Long, Unmarshaller> _unmarshallers = new ConcurrentHashMap<Long, Unmarshaller>();
+
+	public PooledJAXBContext(Class<?>... classes) throws JAXBException {
+		this(DEFAULT_MAX_SIZE, classes);
+	}
+
+	public PooledJAXBContext(int maxSize, Class<?>... classes) throws JAXBException {
+		_context = JAXBContext.newInstance(classes);
+		_maxSize = maxSize;
+
+		Marshaller marshaller = _context.createMarshaller();
+		for(String name : MARSHALLER_PROPERTIES) {
+			try {
+				_defaults.put(name, marshaller.getProperty(name));
+			} catch(PropertyException e) {
+				// Not supported by the JAXB implementation.
+			}
+		}
+	}
+
+	@Override
+	public Marshaller createMarshaller() throws JAXBException {
+		long thread = Thread.currentThread().getId();
+		Marshaller marshaller = _marshallers.get(thread);
+		if(marshaller != null && reset(marshaller)) {
+			return marshaller;
+		}
+
+		marshaller = _context.createMarshaller();
+		if(_marshallers.containsKey(thread) || _marshallers.size() < _maxSize) {
+			_marshallers.put(thread, marshaller);
+		}
+		return marshaller;
+	}
+
+	@Override
+	public Unmarshaller createUnmarshaller() throws JAXBException {
+		long thread = Thread.currentThread().getId();
+		Unmarshaller unmarshaller = _unmarshallers.get(thread);
+		if(unmarshaller == null) {
+			unmarshaller = _context.createUnmarshaller();
+			if(_unmarshallers.size() < _maxSize) {
+				_unmarshallers.put(thread, unmarshaller);
+			}
+			return unmarshaller;
+		}
+
+		unmarshaller.setListener(null);
+		unmarshaller.setEventHandler(null);
+		unmarshaller.setSchema(null);
+		unmarshaller.setAttachmentUnmarshaller(null);
+		return unmarshaller;
+	}
+
+	/*
+	 * Helper method to restore a reused Marshaller's defaults. Returns false
+	 * if the Marshaller can't be reused, because a property whose default is
+	 * null (e.g. the schema location) has been set, and can't be unset.
+	 *
+	 */
+	private boolean reset(Marshaller marshaller) throws JAXBException {
+		for(Map.Entry<String, Object> property : _defaults.entrySet()) {
+			if(property.getValue() != null) {
+				marshaller.setProperty(property.getKey(), property.getValue());
+			} else if(marshaller.getProperty(property.getKey()) != null) {
+				return false;
+			}
+		}
+		marshaller.setListener(null);
+		marshaller.setEventHandler(null);
+		marshaller.setSchema(null);
+		marshaller.setAttachmentMarshaller(null);
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public Validator createValidator() throws JAXBException {
+		return _context.createValidator();
+	}
+
+	@Override
+	public <T> Binder<T> createBinder(Class<T> domType) {
+		return _context.createBinder(domType);
+	}
+
+	@Override
+	public JAXBIntrospector createJAXBIntrospector() {
+		return _context.createJAXBIntrospector();
+	}
+
+	@Override
+	public void generateSchema(SchemaOutputResolver outputResolver)
+			throws IOException {
+		_context.generateSchema(outputResolver);
+	}
+}
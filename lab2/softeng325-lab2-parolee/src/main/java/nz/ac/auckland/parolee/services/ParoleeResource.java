@@ -3,44 +3,49 @@ package nz.ac.auckland.parolee.services;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintStream;
 import java.net.URI;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.core.StreamingOutput;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
 
-import nz.ac.auckland.parolee.domain.Gender;
 import nz.ac.auckland.parolee.domain.Parolee;
 
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 /**
  * Class to implement a simple REST Web service for managing parolees.
  * 
  * ParoleeResource implements a WEB service with the following interface:
  * 
+ * - GET    <base-uri>/parolees
+ *          Retrieves parolees in order of id. The optional query parameters 
+ *          "after" and "limit" return at most limit parolees whose ids are 
+ *          greater than after. When a page is full and more parolees follow,
+ *          the response includes a "next" Link header. Without "limit", the 
+ *          whole register is returned. The format of the returned data is 
+ *          XML, with a parolees root element.
+ *          
  * - GET    <base-uri>/parolees/{id}
  *          Retrieves a parolee based on their unique id. The format of the 
  *          returned data is XML.
@@ -66,9 +71,65 @@ public class ParoleeResource {
 	private static Logger _logger = LoggerFactory
 			.getLogger(ParoleeResource.class);
 
-	private Map<Long, Parolee> _paroleeDB = new ConcurrentHashMap<Long, Parolee>();
+	// Parolees are held in id order so that pages can be read from any id 
+	// without scanning the parolees that precede it.
+	private ConcurrentNavigableMap<Long, Parolee> _paroleeDB = new ConcurrentSkipListMap<Long, Parolee>();
 	private AtomicLong _idCounter = new AtomicLong();
 
+	/**
+	 * Retrieves Parolees in order of their ids, optionally a page at a time. 
+	 * Parolees are written to the response as they are read from the id 
+	 * index, so no list of Parolees is built.
+	 * 
+	 * @param after only Parolees whose ids are greater than this are returned.
+	 * 
+	 * @param limit the maximum number of Parolees to return. If absent, all
+	 *        Parolees after the given id are returned.
+	 * 
+	 * @param uriInfo information about the request URI, used to generate the
+	 *        "next" link.
+	 * 
+	 * @return a Response whose entity writes out the Parolees in XML form.
+	 */
+	@GET
+	@Produces("application/xml")
+	public Response retrieveParolees(
+			@DefaultValue("0") @QueryParam("after") long after,
+			@QueryParam("limit") final Integer limit,
+			@Context UriInfo uriInfo) {
+		if (limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+
+		final ConcurrentNavigableMap<Long, Parolee> page = _paroleeDB.tailMap(after, false);
+		StreamingOutput output = new StreamingOutput() {
+			public void write(OutputStream outputStream) throws IOException,
+					WebApplicationException {
+				outputParolees(outputStream, limit == null ? page.values() 
+						: new LimitedIterable<Parolee>(page.values(), limit));
+			}
+		};
+		Response.ResponseBuilder builder = Response.ok(output);
+
+		// When the page is full, link to the page that follows its last 
+		// Parolee, provided there is one. Only the page's keys are visited.
+		if (limit != null) {
+			Iterator<Long> ids = page.keySet().iterator();
+			Long lastId = null;
+			for (int i = 0; i < limit && ids.hasNext(); i++) {
+				lastId = ids.next();
+			}
+			if (lastId != null && _paroleeDB.higherKey(lastId) != null) {
+				URI next = uriInfo.getRequestUriBuilder()
+						.replaceQueryParam("after", lastId)
+						.replaceQueryParam("limit", limit).build();
+				builder.links(Link.fromUri(next).rel("next").build());
+			}
+		}
+		return builder.build();
+	}
+
+
 	/**
 	 * Attempts to retrieve a particular Parolee based on their unique id. If 
 	 * the required Parolee is found, this method returns a 200 response along 
@@ -199,28 +260,23 @@ public class ParoleeResource {
 	 */
 	protected void outputParolee(OutputStream os, Parolee parolee)
 			throws IOException {
-		DateTimeFormatter formatter = DateTimeFormat.forPattern("dd/MM/yyyy");
-		String dateOfBirth = formatter.print(parolee.getDateOfBirth());
-
-		PrintStream writer = new PrintStream(os);
-		writer.println("<parolee id=\"" + parolee.getId() + "\">");
-		writer.println("   <first-name>" + parolee.getFirstname()
-				+ "</first-name>");
-		writer.println("   <last-name>" + parolee.getLastname()
-				+ "</last-name>");
-		writer.println("   <gender>" + parolee.getGender() + "</gender>");
-		writer.println("   <date-of-birth>" + dateOfBirth + "</date-of-birth>");
-		writer.println("</parolee>");
+		try {
+			ParoleeXmlCodec.write(os, parolee);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
 	}
 
 	/**
 	 * Helper method to generate an XML representation for a collection of 
-	 * Parolees.
+	 * Parolees. Parolees are written as they are obtained from the Iterable.
 	 */
-	protected void outputParolees(OutputStream os, List<Parolee> parolees)
+	protected void outputParolees(OutputStream os, Iterable<Parolee> parolees)
 			throws IOException {
-		for (Parolee parolee : parolees) {
-			outputParolee(os, parolee);
+		try {
+			ParoleeXmlCodec.writeAll(os, parolees);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
 		}
 	}
 
@@ -235,37 +291,45 @@ public class ParoleeResource {
 	 */
 	protected Parolee readParolee(InputStream is) {
 		try {
-			DocumentBuilder builder = DocumentBuilderFactory.newInstance()
-					.newDocumentBuilder();
-			Document doc = builder.parse(is);
-			Element root = doc.getDocumentElement();
-
-			Parolee parolee = new Parolee();
-			if (root.getAttribute("id") != null
-					&& !root.getAttribute("id").trim().equals(""))
-				parolee.setId(Long.valueOf(root.getAttribute("id")));
-			NodeList nodes = root.getChildNodes();
-			for (int i = 0; i < nodes.getLength(); i++) {
-				Element element = (Element) nodes.item(i);
-				if (element.getTagName().equals("first-name")) {
-					parolee.setFirstname(element.getTextContent());
-				} else if (element.getTagName().equals("last-name")) {
-					parolee.setLastname(element.getTextContent());
-				} else if (element.getTagName().equals("gender")) {
-					parolee.setGender(Gender.fromString(element
-							.getTextContent()));
-				} else if (element.getTagName().equals("date-of-birth")) {
-					DateTimeFormatter formatter = DateTimeFormat
-							.forPattern("dd/MM/yyyy");
-					DateTime dateOfBirth = formatter.parseDateTime(element
-							.getTextContent());
-					parolee.setDateOfBirth(dateOfBirth);
-				}
-			}
-			return parolee;
+			return ParoleeXmlCodec.read(is);
 		} catch (Exception e) {
 			throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
 		}
 	}
 
+	/**
+	 * Iterable that yields at most a given number of elements from another
+	 * Iterable.
+	 */
+	private static class LimitedIterable<T> implements Iterable<T> {
+		private final Iterable<T> _source;
+		private final int _limit;
+
+		LimitedIterable(Iterable<T> source, int limit) {
+			_source = source;
+			_limit = limit;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			final Iterator<T> iterator = _source.iterator();
+			return new Iterator<T>() {
+				private int _count = 0;
+
+				@Override
+				public boolean hasNext() {
+					return _count < _limit && iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					_count++;
+					return iterator.next();
+				}
+			};
+		}
+	}
 }
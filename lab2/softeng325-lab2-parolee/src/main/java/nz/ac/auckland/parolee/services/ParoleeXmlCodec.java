@@ -0,0 +1,195 @@
+package nz.ac.auckland.parolee.services;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Helper class to convert between Parolee objects and their XML
+ * representation, e.g.:
+ *
+ * <parolee id="1">
+ *    <first-name>Al</first-name>
+ *    <last-name>Capone</last-name>
+ *    <gender>MALE</gender>
+ *    <date-of-birth>17/01/1899</date-of-birth>
+ * </parolee>
+ *
+ * XML is read and written with StAX, so no document tree is built. The StAX
+ * factories and the date formatter are created once and shared; each is safe
+ * for concurrent use once configured. Whitespace, comments and unrecognised
+ * elements within a parolee element are skipped.
+ *
+ */
+public class ParoleeXmlCodec {
+
+	static final String PAROLEE = "parolee";
+	static final String PAROLEES = "parolees";
+	static final String ID = "id";
+	static final String FIRST_NAME = "first-name";
+	static final String LAST_NAME = "last-name";
+	static final String GENDER = "gender";
+	static final String DATE_OF_BIRTH = "date-of-birth";
+
+	private static final XMLInputFactory _inputFactory = createInputFactory();
+	private static final XMLOutputFactory _outputFactory = XMLOutputFactory.newInstance();
+	private static final DateTimeFormatter _dateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy");
+
+	private ParoleeXmlCodec() {
+	}
+
+	/**
+	 * Reads a single parolee element from an InputStream.
+	 *
+	 * @throws XMLStreamException if the XML is malformed or doesn't contain a
+	 *         parolee element.
+	 */
+	static Parolee read(InputStream is) throws XMLStreamException {
+		XMLStreamReader reader = _inputFactory.createXMLStreamReader(is);
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT &&
+						reader.getLocalName().equals(PAROLEE)) {
+					return readParolee(reader);
+				}
+			}
+			throw new XMLStreamException("No <" + PAROLEE + "> element");
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads a parolee element. The reader must be positioned at the element's
+	 * start tag, and is left positioned at its end tag.
+	 */
+	static Parolee readParolee(XMLStreamReader reader) throws XMLStreamException {
+		Parolee parolee = new Parolee();
+
+		String id = reader.getAttributeValue(null, ID);
+		if (id != null && !id.trim().isEmpty()) {
+			parolee.setId(Long.parseLong(id.trim()));
+		}
+
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			if (name.equals(FIRST_NAME)) {
+				parolee.setFirstname(reader.getElementText());
+			} else if (name.equals(LAST_NAME)) {
+				parolee.setLastname(reader.getElementText());
+			} else if (name.equals(GENDER)) {
+				parolee.setGender(Gender.fromString(reader.getElementText().trim()));
+			} else if (name.equals(DATE_OF_BIRTH)) {
+				parolee.setDateOfBirth(_dateFormatter.parseDateTime(reader.getElementText().trim()));
+			} else {
+				skipElement(reader);
+			}
+		}
+		return parolee;
+	}
+
+	/**
+	 * Writes a parolee as a complete XML document to an OutputStream. The
+	 * OutputStream is flushed but not closed.
+	 */
+	static void write(OutputStream os, Parolee parolee) throws XMLStreamException {
+		XMLStreamWriter writer = createWriter(os);
+		writeParolee(writer, parolee);
+		writer.writeCharacters("\n");
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 * Writes a sequence of parolees as a single XML document, with a parolees
+	 * root element, to an OutputStream. Parolees are written as they are 
+	 * obtained from the Iterable, so memory use doesn't depend on how many 
+	 * are written. The OutputStream is flushed but not closed.
+	 */
+	static void writeAll(OutputStream os, Iterable<Parolee> parolees)
+			throws XMLStreamException {
+		XMLStreamWriter writer = createWriter(os);
+		writer.writeStartElement(PAROLEES);
+		for (Parolee parolee : parolees) {
+			writer.writeCharacters("\n");
+			writeParolee(writer, parolee);
+		}
+		writer.writeCharacters("\n");
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 * Creates an XMLStreamWriter that writes UTF-8 to an OutputStream. The
+	 * writer buffers its output, so callers must flush it when done.
+	 */
+	static XMLStreamWriter createWriter(OutputStream os) throws XMLStreamException {
+		return _outputFactory.createXMLStreamWriter(os, "UTF-8");
+	}
+
+	/**
+	 * Writes a parolee element. Properties that are null are omitted.
+	 */
+	static void writeParolee(XMLStreamWriter writer, Parolee parolee)
+			throws XMLStreamException {
+		writer.writeStartElement(PAROLEE);
+		writer.writeAttribute(ID, Long.toString(parolee.getId()));
+		writeElement(writer, FIRST_NAME, parolee.getFirstname());
+		writeElement(writer, LAST_NAME, parolee.getLastname());
+		if (parolee.getGender() != null) {
+			writeElement(writer, GENDER, parolee.getGender().toString());
+		}
+		if (parolee.getDateOfBirth() != null) {
+			writeElement(writer, DATE_OF_BIRTH, _dateFormatter.print(parolee.getDateOfBirth()));
+		}
+		writer.writeCharacters("\n");
+		writer.writeEndElement();
+	}
+
+	private static void writeElement(XMLStreamWriter writer, String name, String value)
+			throws XMLStreamException {
+		if (value == null) {
+			return;
+		}
+		writer.writeCharacters("\n   ");
+		writer.writeStartElement(name);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// Request bodies are untrusted, so don't process DTDs or resolve
+		// external entities.
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+}
@@ -0,0 +1,64 @@
+package nz.ac.auckland.parolee.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for ParoleeXmlCodec, which logs the number of parolees parsed
+ * and rendered per second. Run with mvn test -Pbenchmark.
+ *
+ */
+public class ParoleeXmlCodecBenchmark {
+
+	private static Logger _logger = LoggerFactory
+			.getLogger(ParoleeXmlCodecBenchmark.class);
+
+	private static final int ITERATIONS = 200000;
+
+	@Test
+	public void measureThroughput() throws Exception {
+		Parolee parolee = new Parolee();
+		parolee.setId(1);
+		parolee.setFirstname("Al");
+		parolee.setLastname("Capone");
+		parolee.setGender(Gender.MALE);
+		parolee.setDateOfBirth(new DateTime(1899, 1, 17, 0, 0));
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ParoleeXmlCodec.write(os, parolee);
+		byte[] xml = os.toByteArray();
+
+		// Warm up.
+		for (int i = 0; i < ITERATIONS; i++) {
+			ParoleeXmlCodec.read(new ByteArrayInputStream(xml));
+			ParoleeXmlCodec.write(new ByteArrayOutputStream(), parolee);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			ParoleeXmlCodec.read(new ByteArrayInputStream(xml));
+		}
+		long parseNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			ParoleeXmlCodec.write(new ByteArrayOutputStream(), parolee);
+		}
+		long renderNanos = System.nanoTime() - start;
+
+		_logger.info("Parsed " + perSecond(parseNanos) + " parolees/s, rendered "
+				+ perSecond(renderNanos) + " parolees/s");
+	}
+
+	private static long perSecond(long nanos) {
+		return ITERATIONS * 1000000000L / nanos;
+	}
+}
@@ -0,0 +1,96 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * Unit tests for ParoleeXmlCodec.
+ *
+ */
+public class ParoleeXmlCodecTest {
+
+	@Test
+	public void readsIndentedXml() throws Exception {
+		String xml = "<?xml version=\"1.0\"?>\n"
+				+ "<parolee id=\"7\">\n"
+				+ "   <!-- Not yet known. -->\n"
+				+ "   <first-name>Al</first-name>\n"
+				+ "   <last-name>Capone</last-name>\n"
+				+ "   <alias><name>Scarface</name></alias>\n"
+				+ "   <gender> Male </gender>\n"
+				+ "   <date-of-birth>17/01/1899</date-of-birth>\n"
+				+ "</parolee>\n";
+
+		Parolee parolee = read(xml);
+
+		assertEquals(7, parolee.getId());
+		assertEquals("Al", parolee.getFirstname());
+		assertEquals("Capone", parolee.getLastname());
+		assertEquals(Gender.MALE, parolee.getGender());
+		assertEquals(new DateTime(1899, 1, 17, 0, 0), parolee.getDateOfBirth());
+	}
+
+	@Test
+	public void roundTripsEscapedText() throws Exception {
+		Parolee parolee = createParolee();
+		parolee.setLastname("O'Brien & <Sons>");
+
+		Parolee copy = read(write(parolee));
+
+		assertEquals(parolee.getId(), copy.getId());
+		assertEquals(parolee.getFirstname(), copy.getFirstname());
+		assertEquals(parolee.getLastname(), copy.getLastname());
+		assertEquals(parolee.getGender(), copy.getGender());
+		assertEquals(parolee.getDateOfBirth(), copy.getDateOfBirth());
+	}
+
+	@Test
+	public void omitsMissingProperties() throws Exception {
+		Parolee parolee = new Parolee();
+		parolee.setId(3);
+		parolee.setFirstname("Pablo");
+
+		String xml = write(parolee);
+
+		assertEquals("<parolee id=\"3\">\n   <first-name>Pablo</first-name>\n</parolee>\n", xml);
+		assertNull(read(xml).getDateOfBirth());
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void rejectsDocumentWithoutParolee() throws Exception {
+		read("<convict/>");
+	}
+
+	private static Parolee createParolee() {
+		Parolee parolee = new Parolee();
+		parolee.setId(1);
+		parolee.setFirstname("Al");
+		parolee.setLastname("Capone");
+		parolee.setGender(Gender.MALE);
+		parolee.setDateOfBirth(new DateTime(1899, 1, 17, 0, 0));
+		return parolee;
+	}
+
+	private static Parolee read(String xml) throws XMLStreamException {
+		return ParoleeXmlCodec.read(new ByteArrayInputStream(
+				xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String write(Parolee parolee) throws XMLStreamException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ParoleeXmlCodec.write(os, parolee);
+		return new String(os.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -1,6 +1,8 @@
 package nz.ac.auckland.parolee.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -8,6 +10,7 @@ import java.util.List;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.Response;
 
 import org.junit.AfterClass;
@@ -133,6 +136,56 @@ public class ParoleeResourceIT {
 			
 	}
 	
+	@Test
+	public void testRetrieveAll() {
+		// Make a HTTP GET request to retrieve all Parolees.
+		Response response = _client.target(WEB_SERVICE_URI).request().get();
+
+		// Check that the HTTP response code is 200 OK.
+		int responseCode = response.getStatus();
+		assertEquals(200, responseCode);
+
+		String xmlResponse = response.readEntity(String.class);
+		_logger.info("Retrieved Parolees: " + xmlResponse);
+		assertEquals(_xmlPayloads.length, countParolees(xmlResponse));
+		assertNull(response.getLink("next"));
+
+		// Close the Response object.
+		response.close();
+	}
+
+	@Test
+	public void testRetrievePages() {
+		// Make a HTTP GET request to retrieve the first page of Parolees.
+		Response response = _client.target(WEB_SERVICE_URI)
+				.queryParam("limit", 3).request().get();
+		assertEquals(200, response.getStatus());
+		String xmlResponse = response.readEntity(String.class);
+		assertEquals(3, countParolees(xmlResponse));
+
+		// Follow the next link to retrieve the remaining Parolee.
+		Link next = response.getLink("next");
+		assertNotNull(next);
+		response.close();
+
+		response = _client.target(next).request().get();
+		assertEquals(200, response.getStatus());
+		xmlResponse = response.readEntity(String.class);
+		assertEquals(1, countParolees(xmlResponse));
+		assertNull(response.getLink("next"));
+		response.close();
+	}
+
+	@Test
+	public void testRetrievePageWithInvalidLimit() {
+		Response response = _client.target(WEB_SERVICE_URI)
+				.queryParam("limit", 0).request().get();
+
+		// Check that the HTTP response code is 400 Bad Request.
+		assertEquals(400, response.getStatus());
+		response.close();
+	}
+
 	@Test
 	public void testUpdate() {
 		// Create a XML representation of the first parolee, changing Al
@@ -167,4 +220,8 @@ public class ParoleeResourceIT {
 		// Close the Response object.
 		response.close();
 	}
-}
\ No newline at end of file
+
+	private static int countParolees(String xml) {
+		return xml.split("<parolee ", -1).length - 1;
+	}
+}
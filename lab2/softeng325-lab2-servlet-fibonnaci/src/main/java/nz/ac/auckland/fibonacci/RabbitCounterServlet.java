@@ -1,7 +1,10 @@
 package nz.ac.auckland.fibonacci;
 
 import java.beans.XMLEncoder;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -9,7 +12,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -20,22 +28,54 @@ import javax.xml.ws.http.*;
  *
  * Adapted from Java Web Services by Martin Kalin.
  *
+ * When the servlet's "async" init-param is true, request bodies and response
+ * bodies are transferred using Servlet 3.1 non-blocking I/O. A container 
+ * thread is then only used while data is actually available to read or the
+ * client is ready to receive more, rather than for the full duration of a 
+ * slow client's request. The servlet must be declared with 
+ * async-supported in web.xml for this mode to be used.
+ *
  */
 @SuppressWarnings("serial")
 public class RabbitCounterServlet extends HttpServlet {
 	// A RabitCounterServlet instance stores state in _cache, a Map where the 
 	// key is the index position within a Fibonacci series, and value is the 
 	// corresponding Fibonacci value.
+	// The Map is held as a ServletContext attribute so that blocking and
+	// asynchronous instances of the servlet share the same values.
 	private Map<Integer, Integer> _cache;
 	
+	// Whether this instance uses non-blocking I/O.
+	private boolean _async;
+	
+	// Name of the ServletContext attribute that stores the shared cache.
+	private static final String CACHE_ATTRIBUTE = "rabbitCounterCache";
+	
+	// Size of the chunks in which request and response bodies are transferred
+	// in asynchronous mode.
+	private static final int BUFFER_SIZE = 8192;
+	
+	// Largest POST body accepted in asynchronous mode, matching the limit 
+	// Jetty applies to form content read with getParameter().
+	private static final int MAX_FORM_SIZE = 200000;
+	
 	/**
 	 * Servlet lifecycle method called by a servlet container before it is used 
 	 * for request processing.
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public void init() {
-		// Initialise the Map.
-		_cache = Collections.synchronizedMap(new HashMap<Integer,Integer>());
+		// Initialise the Map, or look up the one created by another instance.
+		ServletContext context = getServletContext();
+		synchronized(context) {
+			_cache = (Map<Integer, Integer>)context.getAttribute(CACHE_ATTRIBUTE);
+			if(_cache == null) {
+				_cache = Collections.synchronizedMap(new HashMap<Integer,Integer>());
+				context.setAttribute(CACHE_ATTRIBUTE, _cache);
+			}
+		}
+		_async = Boolean.parseBoolean(getInitParameter("async"));
 	}
 	
 	/**
@@ -79,7 +119,21 @@ public class RabbitCounterServlet extends HttpServlet {
 	 */
 	@Override
 	public void doPost(HttpServletRequest request, HttpServletResponse response) {
+		if(_async && request.isAsyncSupported()) {
+			readAsync(request);
+			return;
+		}
+		
 		String nums = request.getParameter("nums");
+		sendTypedResponse(request, response, addRabbits(nums));
+	}
+	
+	/**
+	 * Helper method to compute and store the Fibonacci values for a sequence
+	 * of index positions such as "[1, 2, 3]". Returns a message listing the
+	 * values added.
+	 */
+	private String addRabbits(String nums) {
 		if(nums == null) {
 			// POST request doesn't contain any numbers for which to compute
 			// Fibonacci values.
@@ -96,7 +150,7 @@ public class RabbitCounterServlet extends HttpServlet {
 			_cache.put(n, countRabbits(n));
 			list.add(_cache.get(n));
 		}
-		sendTypedResponse(request, response, list + " added.");
+		return list + " added.";
 	}
 	
 	/**
@@ -152,56 +206,213 @@ public class RabbitCounterServlet extends HttpServlet {
 	private void sendTypedResponse(HttpServletRequest request,
 			HttpServletResponse response,
 			Object data) {
+		byte[] content = toTypedContent(request, data);
+		
+		if(_async && request.isAsyncSupported()) {
+			AsyncContext context = request.isAsyncStarted() ? 
+					request.getAsyncContext() : request.startAsync();
+			writeAsync(context, content);
+		} else {
+			try {
+				ServletOutputStream out = response.getOutputStream();
+				out.write(content);
+				out.flush();
+			} catch(IOException e) {
+				throw new HTTPException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
+		}
+	}
+	
+	/**
+	 * Helper method to generate the response body in the format named by the
+	 * request's Accept header.
+	 */
+	private byte[] toTypedContent(HttpServletRequest request, Object data) {
 		String desiredType = request.getHeader("accept");
 		
 		// If client requests plain text or HTML, send it. Otherwise send XML.
 		if(desiredType.contains("text/plain")) {
-			sendPlain(response, data);
+			return toPlain(data);
 		} else if(desiredType.contains("text/html")) {
-			sendHtml(response, data);
+			return toHtml(data);
 		} else {
-			sendXml(response, data);
+			return toXml(data);
 		}
 	}
 	
 	/**
-	 * Helper method to generate an XML response and return this to the
-	 * consumer.
+	 * Helper method to generate an XML response body.
 	 */
-	private void sendXml(HttpServletResponse response, Object data) {
-		try {
-			XMLEncoder enc = new XMLEncoder(response.getOutputStream());
-			enc.writeObject(data.toString());
-			enc.close();
-		} catch(IOException e) {
-			throw new HTTPException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-		}
+	private byte[] toXml(Object data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XMLEncoder enc = new XMLEncoder(out);
+		enc.writeObject(data.toString());
+		enc.close();
+		return out.toByteArray();
 	}
 	
 	/**
-	 * Helper method to generate a HTML response and return this to the 
-	 * consumer.
+	 * Helper method to generate a HTML response body.
 	 */
-	private void sendHtml(HttpServletResponse response, Object data) {
+	private byte[] toHtml(Object data) {
 		String htmlStart = 
 				"<html><head><title>send_html response</title></head><body><div>";
 		String htmlEnd = "</div></body></html>";
 		String htmlDoc = htmlStart + data.toString() + htmlEnd;
-		sendPlain(response, htmlDoc);
+		return toPlain(htmlDoc);
+	}
+	
+	/**
+	 * Helper method to generate a plain-text response body.
+	 */
+	private byte[] toPlain(Object data) {
+		return data.toString().getBytes();
 	}
 	
 	/**
-	 * Helper method to generate a plain-text response and return this to the 
-	 * consumer.
+	 * Helper method to read the body of a POST request without blocking. Once
+	 * the whole body has arrived, its "nums" form parameter is processed and
+	 * the response written asynchronously. A body larger than MAX_FORM_SIZE 
+	 * is rejected with 413 whether or not it has a Content-Length header; 
+	 * once a response has been sent, no more of the body is read.
 	 */
-	private void sendPlain(HttpServletResponse response, Object data) {
+	private void readAsync(final HttpServletRequest request) {
+		final AsyncContext context = request.startAsync();
+		if(request.getContentLengthLong() > MAX_FORM_SIZE) {
+			sendErrorAsync(context, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		
 		try {
-			ServletOutputStream out = response.getOutputStream();
-			out.write(data.toString().getBytes());
-			out.flush();
+			final ServletInputStream in = request.getInputStream();
+			in.setReadListener(new ReadListener() {
+				private final byte[] _buffer = new byte[BUFFER_SIZE];
+				
+				// Whether the request has been responded to, after which 
+				// further callbacks are ignored.
+				private boolean _done = false;
+				
+				@Override
+				public void onDataAvailable() throws IOException {
+					// Drain whatever can be read without blocking; the 
+					// container calls back when more data arrives.
+					int length;
+					while(!_done && in.isReady() && (length = in.read(_buffer)) != -1) {
+						body.write(_buffer, 0, length);
+						if(body.size() > MAX_FORM_SIZE) {
+							// A chunked body has no Content-Length to check
+							// up front.
+							_done = true;
+							sendErrorAsync(context, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+						}
+					}
+				}
+				
+				@Override
+				public void onAllDataRead() {
+					if(_done) {
+						return;
+					}
+					_done = true;
+					try {
+						String nums = getFormParameter(body, "nums", request.getCharacterEncoding());
+						sendTypedResponse(request, 
+								(HttpServletResponse)context.getResponse(), addRabbits(nums));
+					} catch(HTTPException e) {
+						sendErrorAsync(context, e.getStatusCode());
+					} catch(UnsupportedEncodingException | RuntimeException e) {
+						sendErrorAsync(context, HttpServletResponse.SC_BAD_REQUEST);
+					}
+				}
+				
+				@Override
+				public void onError(Throwable t) {
+					if(_done) {
+						return;
+					}
+					_done = true;
+					if(context.getResponse().isCommitted()) {
+						context.complete();
+					} else {
+						sendErrorAsync(context, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					}
+				}
+			});
 		} catch(IOException e) {
-			throw new HTTPException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			sendErrorAsync(context, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+	}
+	
+	/**
+	 * Helper method to write a response body without blocking. Chunks are 
+	 * written only while the output stream reports that it is ready, and the
+	 * asynchronous request is completed once all content has been written.
+	 */
+	private void writeAsync(final AsyncContext context, final byte[] content) {
+		try {
+			final ServletOutputStream out = context.getResponse().getOutputStream();
+			out.setWriteListener(new WriteListener() {
+				private int _offset = 0;
+				
+				@Override
+				public void onWritePossible() throws IOException {
+					while(out.isReady()) {
+						if(_offset == content.length) {
+							context.complete();
+							return;
+						}
+						int length = Math.min(BUFFER_SIZE, content.length - _offset);
+						out.write(content, _offset, length);
+						_offset += length;
+					}
+				}
+				
+				@Override
+				public void onError(Throwable t) {
+					context.complete();
+				}
+			});
+		} catch(IOException e) {
+			sendErrorAsync(context, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+	}
+	
+	/**
+	 * Helper method to end an asynchronous request with an error status. 
+	 * Exceptions can't be propagated to the container from listener 
+	 * callbacks, so errors are reported directly on the response.
+	 */
+	private void sendErrorAsync(AsyncContext context, int status) {
+		try {
+			((HttpServletResponse)context.getResponse()).sendError(status);
+		} catch(IOException e) {
+			// Nothing more can be sent to the client.
+		} finally {
+			context.complete();
+		}
+	}
+	
+	/**
+	 * Helper method to extract a named parameter from an 
+	 * application/x-www-form-urlencoded request body. Returns null if the 
+	 * parameter is not present.
+	 */
+	private static String getFormParameter(ByteArrayOutputStream body, 
+			String name, String encoding) throws UnsupportedEncodingException {
+		if(encoding == null) {
+			encoding = "UTF-8";
+		}
+		
+		for(String pair : body.toString(encoding).split("&")) {
+			int separator = pair.indexOf('=');
+			String key = separator == -1 ? pair : pair.substring(0, separator);
+			if(URLDecoder.decode(key, encoding).equals(name)) {
+				return separator == -1 ? "" : 
+					URLDecoder.decode(pair.substring(separator + 1), encoding);
+			}
 		}
+		return null;
 	}
 	
 	/**
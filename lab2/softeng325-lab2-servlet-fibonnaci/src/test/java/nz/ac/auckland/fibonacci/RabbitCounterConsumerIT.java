@@ -1,5 +1,7 @@
 package nz.ac.auckland.fibonacci;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -35,6 +37,9 @@ public class RabbitCounterConsumerIT {
 	// Communication endpoint for the RabbitCounter Web service.
 	private static final String url = "http://localhost:10000/rabbit";
 	
+	// Endpoint for the RabbitCounter Web service using non-blocking I/O.
+	private static final String asyncUrl = "http://localhost:10000/rabbit-async";
+	
 	@Test
 	public void sendRequests() {
 		try {
@@ -85,6 +90,31 @@ public class RabbitCounterConsumerIT {
 		}
 	}
 	
+	/**
+	 * Sends the non-blocking endpoint a POST request whose body is larger 
+	 * than the servlet accepts and has no Content-Length, because it's sent 
+	 * in chunks.
+	 */
+	@Test
+	public void rejectOversizedChunkedPost() throws IOException {
+		StringBuilder payload = new StringBuilder("nums=%5B1");
+		while(payload.length() <= 250000) {
+			payload.append("%2C1");
+		}
+		payload.append("%5D");
+		
+		HttpURLConnection conn = getConnection(asyncUrl, "POST");
+		conn.setRequestProperty("accept", "text/plain");
+		conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		conn.setChunkedStreamingMode(4096);
+		DataOutputStream out = new DataOutputStream(conn.getOutputStream());
+		out.writeBytes(payload.toString());
+		out.close();
+		
+		assertEquals(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, conn.getResponseCode());
+		conn.disconnect();
+	}
+	
 	private HttpURLConnection getConnection(String urlString, String verb) {
 		HttpURLConnection conn = null;
 		
@@ -0,0 +1,167 @@
+package nz.ac.auckland.fibonacci;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load test that compares how many concurrent slow clients the blocking and
+ * the non-blocking RabbitCounterServlet endpoints can sustain.
+ *
+ * A slow client sends the headers of a POST request and then trickles its
+ * body a byte at a time. With blocking I/O, each such client holds one of
+ * Jetty's request threads while the servlet reads the body. Slow clients are
+ * added in steps, and after each step a single ordinary GET request is made;
+ * the endpoint is considered to sustain the load while that GET completes
+ * within PROBE_TIMEOUT_MILLIS.
+ *
+ * The number of slow clients, and the size of each step, can be changed
+ * using the rabbit.slowClients and rabbit.slowClientStep system properties.
+ *
+ */
+public class RabbitCounterSlowClientIT {
+	// Create a Logger for output.
+	private static Logger _logger = LoggerFactory.getLogger(RabbitCounterSlowClientIT.class);
+
+	private static final String HOST = "localhost";
+	private static final int PORT = 10000;
+
+	private static final int MAX_SLOW_CLIENTS = Integer.getInteger("rabbit.slowClients", 300);
+	private static final int STEP = Integer.getInteger("rabbit.slowClientStep", 50);
+
+	private static final int PROBE_TIMEOUT_MILLIS = 2000;
+	private static final int TRICKLE_INTERVAL_MILLIS = 500;
+
+	@Test
+	public void compareSlowClientCapacity() throws Exception {
+		int blocking = measureCapacity("/rabbit");
+		int async = measureCapacity("/rabbit-async");
+
+		_logger.info("Slow clients sustained: blocking = " + blocking +
+				", non-blocking = " + async);
+		assertTrue(async >= blocking);
+	}
+
+	/**
+	 * Adds slow clients to the endpoint at path in steps of STEP, up to
+	 * MAX_SLOW_CLIENTS, and returns the largest number for which an ordinary
+	 * request is still served.
+	 */
+	private int measureCapacity(String path) throws Exception {
+		final List<Socket> clients = new ArrayList<Socket>();
+		ScheduledExecutorService trickler = Executors.newSingleThreadScheduledExecutor();
+		int sustained = 0;
+
+		try {
+			trickler.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					synchronized(clients) {
+						for(Socket client : clients) {
+							try {
+								client.getOutputStream().write('1');
+								client.getOutputStream().flush();
+							} catch(IOException e) {
+								// The server gave up on the client.
+							}
+						}
+					}
+				}
+			}, TRICKLE_INTERVAL_MILLIS, TRICKLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+			for(int count = STEP; count <= MAX_SLOW_CLIENTS; count += STEP) {
+				synchronized(clients) {
+					while(clients.size() < count) {
+						clients.add(openSlowClient(path));
+					}
+				}
+
+				// Give the server time to dispatch the new requests.
+				Thread.sleep(TRICKLE_INTERVAL_MILLIS * 2);
+
+				long start = System.currentTimeMillis();
+				boolean served = probe(path);
+				long elapsed = System.currentTimeMillis() - start;
+				_logger.info(path + " with " + count + " slow clients: probe " +
+						(served ? "served in " + elapsed + "ms" : "timed out"));
+
+				if(!served) {
+					break;
+				}
+				sustained = count;
+			}
+		} finally {
+			trickler.shutdownNow();
+			synchronized(clients) {
+				for(Socket client : clients) {
+					try {
+						client.close();
+					} catch(IOException e) {
+						// Ignore.
+					}
+				}
+			}
+		}
+		return sustained;
+	}
+
+	/**
+	 * Opens a connection and sends the headers and first bytes of a POST
+	 * request whose body is much longer than will ever be sent.
+	 */
+	private Socket openSlowClient(String path) throws IOException {
+		Socket socket = new Socket(HOST, PORT);
+		OutputStream out = socket.getOutputStream();
+		String request =
+				"POST " + path + " HTTP/1.1\r\n" +
+				"Host: " + HOST + ":" + PORT + "\r\n" +
+				"Accept: text/plain\r\n" +
+				"Content-Type: application/x-www-form-urlencoded\r\n" +
+				"Content-Length: 100000\r\n" +
+				"\r\n" +
+				"nums=%5B";
+		out.write(request.getBytes("US-ASCII"));
+		out.flush();
+		return socket;
+	}
+
+	/**
+	 * Makes an ordinary GET request, returning true if a response is received
+	 * within PROBE_TIMEOUT_MILLIS.
+	 */
+	private boolean probe(String path) {
+		HttpURLConnection conn = null;
+		try {
+			URL url = new URL("http://" + HOST + ":" + PORT + path + "?num=1");
+			conn = (HttpURLConnection)url.openConnection();
+			conn.setConnectTimeout(PROBE_TIMEOUT_MILLIS);
+			conn.setReadTimeout(PROBE_TIMEOUT_MILLIS);
+			conn.setRequestProperty("accept", "text/plain");
+			InputStream in = conn.getInputStream();
+			while(in.read() != -1) {
+			}
+			in.close();
+			return conn.getResponseCode() == HttpURLConnection.HTTP_OK;
+		} catch(IOException e) {
+			return false;
+		} finally {
+			if(conn != null) {
+				conn.disconnect();
+			}
+		}
+	}
+}
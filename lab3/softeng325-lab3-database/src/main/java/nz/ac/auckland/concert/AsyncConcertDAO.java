@@ -0,0 +1,337 @@
+package nz.ac.auckland.concert;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous facade for a ConcertDAO. Each method submits the
+ * corresponding ConcertDAO call to an executor and returns a
+ * CompletableFuture for its result, so callers can overlap database I/O with
+ * other work. A call that fails with a DAOException completes its future
+ * exceptionally with that DAOException.
+ *
+ * The executor has a fixed number of threads, normally the size of the
+ * underlying DAO's connection pool, so that each running call has a
+ * connection, and a queue of bounded capacity for calls waiting for a
+ * thread. When threads and queue are all taken, a method blocks its caller
+ * until a call completes, rather than queueing without limit.
+ *
+ * Optionally, concurrent getById() calls for the same ID are coalesced:
+ * while a call for an ID is in progress, further calls for that ID share
+ * its result rather than submitting their own. Each caller is still given
+ * its own Concert and Performer objects. save(), saveAll() and
+ * deleteConcert() stop the calls in progress for the Concerts they write
+ * from being shared, both when the write is submitted and when it
+ * completes, so a getById() made once a write has completed always queries
+ * after the write. A call made while the write is running may read the
+ * Concert's state from before the write.
+ *
+ * streamAll() has no asynchronous counterpart, since a Stream holds a
+ * connection while it's consumed.
+ *
+ */
+public class AsyncConcertDAO {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    // Seconds close() waits for submitted calls to complete.
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static Logger _logger = LoggerFactory
+            .getLogger(AsyncConcertDAO.class);
+
+    private final ConcertDAO _dao;
+    private final ThreadPoolExecutor _executor;
+    private final boolean _coalesce;
+
+    // A permit for each call that can be running or queued.
+    private final Semaphore _permits;
+
+    // Futures for the getById() calls in progress, keyed by ID.
+    private final ConcurrentMap<Long, CompletableFuture<Concert>> _inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong _coalesced = new AtomicLong();
+
+    /**
+     * Creates an AsyncConcertDAO with a thread for each of a
+     * JDBCConcertDAO's pooled connections, a queue capacity of
+     * DEFAULT_QUEUE_CAPACITY, and coalescing of getById() calls.
+     *
+     * @param dao the underlying DAO.
+     */
+    public AsyncConcertDAO(JDBCConcertDAO dao) {
+        this(dao, dao.getPoolSize(), DEFAULT_QUEUE_CAPACITY, true);
+    }
+
+    /**
+     * Creates an AsyncConcertDAO.
+     *
+     * @param dao the underlying DAO.
+     * @param threads the number of threads making calls to dao.
+     * @param queueCapacity the maximum number of calls waiting for a thread.
+     * @param coalesce whether to coalesce concurrent getById() calls for the
+     * same ID.
+     */
+    public AsyncConcertDAO(ConcertDAO dao, int threads, int queueCapacity, boolean coalesce) {
+        if(threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        _dao = dao;
+        _coalesce = coalesce;
+        _permits = new Semaphore(threads + queueCapacity);
+        _executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new DAOThreadFactory());
+    }
+
+    /**
+     * @see ConcertDAO.save()
+     */
+    public CompletableFuture<Void> save(Concert concert) {
+        stopSharing(concert);
+        CompletableFuture<Void> future = submit(() -> {
+            _dao.save(concert);
+            return null;
+        });
+        return future.whenComplete((ignored, e) -> stopSharing(concert));
+    }
+
+    /**
+     * @see ConcertDAO.saveAll()
+     */
+    public CompletableFuture<Void> saveAll(Collection<Concert> concerts) {
+        for(Concert concert : concerts) {
+            stopSharing(concert);
+        }
+        CompletableFuture<Void> future = submit(() -> {
+            _dao.saveAll(concerts);
+            return null;
+        });
+        return future.whenComplete((ignored, e) -> {
+            for(Concert concert : concerts) {
+                stopSharing(concert);
+            }
+        });
+    }
+
+    /**
+     * @see ConcertDAO.getById()
+     */
+    public CompletableFuture<Concert> getById(long id) {
+        if(!_coalesce) {
+            return submit(() -> _dao.getById(id));
+        }
+
+        CompletableFuture<Concert> shared = _inFlight.get(id);
+        if(shared == null) {
+            CompletableFuture<Concert> future = new CompletableFuture<>();
+            shared = _inFlight.putIfAbsent(id, future);
+            if(shared == null) {
+                shared = future;
+
+                // Stop sharing the call before its result is published, so
+                // that a caller that sees the result and calls again makes a
+                // new query. The whenComplete() action covers a call that
+                // can't be submitted.
+                future.whenComplete((concert, e) -> _inFlight.remove(id, future));
+                submit(() -> {
+                    try {
+                        return _dao.getById(id);
+                    } finally {
+                        _inFlight.remove(id, future);
+                    }
+                }, future);
+            } else {
+                _coalesced.incrementAndGet();
+            }
+        } else {
+            _coalesced.incrementAndGet();
+        }
+        // The result is shared, so give each caller a copy.
+        return shared.thenApply(AsyncConcertDAO::copy);
+    }
+
+    /**
+     * @see ConcertDAO.getAll()
+     */
+    public CompletableFuture<List<Concert>> getAll() {
+        return submit(() -> _dao.getAll());
+    }
+
+    /**
+     * @see ConcertDAO.getPage()
+     */
+    public CompletableFuture<List<Concert>> getPage(String afterTitle, long afterId, int limit) {
+        return submit(() -> _dao.getPage(afterTitle, afterId, limit));
+    }
+
+    /**
+     * @see ConcertDAO.getByDate()
+     */
+    public CompletableFuture<List<Concert>> getByDate(LocalDateTime from, LocalDateTime to) {
+        return submit(() -> _dao.getByDate(from, to));
+    }
+
+    /**
+     * @see ConcertDAO.getByGenre()
+     */
+    public CompletableFuture<List<Concert>> getByGenre(Genre genre) {
+        return submit(() -> _dao.getByGenre(genre));
+    }
+
+    /**
+     * @see ConcertDAO.getByPerformer()
+     */
+    public CompletableFuture<List<Concert>> getByPerformer(Performer performer) {
+        return submit(() -> _dao.getByPerformer(performer));
+    }
+
+    /**
+     * @see ConcertDAO.deleteConcert()
+     */
+    public CompletableFuture<Void> deleteConcert(Concert concert) {
+        stopSharing(concert);
+        CompletableFuture<Void> future = submit(() -> {
+            _dao.deleteConcert(concert);
+            return null;
+        });
+        return future.whenComplete((ignored, e) -> stopSharing(concert));
+    }
+
+    /**
+     * Stops accepting calls, waits for those already submitted to complete,
+     * and closes the underlying DAO.
+     *
+     * @throws DAOException if there's an error with closing the underlying
+     * DAO.
+     */
+    public void close() throws DAOException {
+        _executor.shutdown();
+        try {
+            if(!_executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                _logger.debug("Timed out waiting for calls to complete");
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        _dao.close();
+    }
+
+    /**
+     * Returns the number of getById() calls that shared the result of a call
+     * already in progress.
+     */
+    public long getCoalescedCount() {
+        return _coalesced.get();
+    }
+
+    /*
+     * Helper method to stop a getById() call in progress for a Concert that
+     * is being written from being shared with later callers, who might
+     * otherwise be given the Concert's state from before the write. It's
+     * called when the write is submitted and again when it completes,
+     * because a call made while the write is running may read the Concert
+     * before the write commits. The write's future completes only after
+     * the second call, so a caller that waits for the write can't then
+     * share a stale call.
+     *
+     */
+    private void stopSharing(Concert concert) {
+        if(concert.getId() != null) {
+            _inFlight.remove(concert.getId());
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(DAOCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submit(call, future);
+        return future;
+    }
+
+    /*
+     * Helper method to submit a call to the executor, blocking until there's
+     * room for it, and complete future with its outcome.
+     *
+     */
+    private <T> void submit(DAOCall<T> call, CompletableFuture<T> future) {
+        try {
+            _permits.acquire();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+
+        try {
+            _executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch(DAOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    _permits.release();
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            // The executor has been shut down.
+            _permits.release();
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static Concert copy(Concert concert) {
+        if(concert == null) {
+            return null;
+        }
+        // The Concert was just read, so the copies are marked clean.
+        Performer performer = concert.getPerformer();
+        Performer performerCopy = new Performer(performer.getId(), performer.getName(),
+                performer.getS3ImageUri(), performer.getGenre());
+        performerCopy.markClean();
+        Concert concertCopy = new Concert(concert.getId(), concert.getTitle(),
+                concert.getDate(), performerCopy);
+        concertCopy.markClean();
+        return concertCopy;
+    }
+
+    /*
+     * A call to the underlying DAO.
+     *
+     */
+    private interface DAOCall<T> {
+        T call() throws DAOException;
+    }
+
+    /*
+     * Creates daemon threads, so that an AsyncConcertDAO that isn't closed
+     * doesn't prevent the JVM from exiting.
+     *
+     */
+    private static class DAOThreadFactory implements ThreadFactory {
+        private static final AtomicInteger _pools = new AtomicInteger();
+
+        private final int _pool = _pools.incrementAndGet();
+        private final AtomicInteger _threads = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                    "concert-dao-" + _pool + "-" + _threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package nz.ac.auckland.concert;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.joda.time.LocalDateTime;
+
+/**
+ * ConcertDAO decorator that caches Concerts and Performers read through
+ * another ConcertDAO, so that getById() for a cached Concert makes no
+ * database round trips.
+ *
+ * Concerts and Performers are cached separately, by ID: a cached Concert
+ * records its Performer's ID rather than the Performer, so a Performer
+ * shared by many Concerts is cached once. Each cache holds at most maxSize
+ * entries, evicting the least recently used, and an entry expires ttlMillis
+ * after it was loaded. The caches hold copies of the objects' state rather
+ * than the objects themselves, because the objects are mutable: each
+ * getById() call returns a new Concert with a new Performer, as the
+ * underlying DAO does.
+ *
+ * getAll(), getPage() and the filtered queries (getByDate(), getByGenre()
+ * and getByPerformer()) are delegated to the underlying DAO, and the
+ * Concerts and Performers they return are cached. streamAll() is delegated
+ * without caching, since it's intended for reading more Concerts than would
+ * be worth caching. save(), saveAll() and deleteConcert()
+ * are delegated too, and invalidate the entries for the Concerts and
+ * Performers they write. Changes made to the database other than through
+ * this DAO are seen only once the entries concerned expire.
+ *
+ * Hit and miss counts, and the average time taken to load a Concert on a
+ * miss, are recorded for getById().
+ *
+ * A CachingConcertDAO is safe for concurrent use if the underlying DAO is.
+ *
+ */
+public class CachingConcertDAO implements ConcertDAO {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+    private final ConcertDAO _dao;
+    private final long _ttlNanos;
+
+    // Guarded by this.
+    private final Map<Long, CachedConcert> _concerts;
+    private final Map<Long, CachedPerformer> _performers;
+
+    // Incremented by each invalidation, so that a load that overlaps an
+    // invalidation doesn't cache what may be stale state. Guarded by this.
+    private long _generation = 0;
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _loadNanos = new AtomicLong();
+
+    /**
+     * Creates a CachingConcertDAO with a maximum size of DEFAULT_MAX_SIZE
+     * entries per cache and a time-to-live of DEFAULT_TTL_MILLIS.
+     *
+     * @param dao the underlying DAO.
+     */
+    public CachingConcertDAO(ConcertDAO dao) {
+        this(dao, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a CachingConcertDAO.
+     *
+     * @param dao the underlying DAO.
+     * @param maxSize the maximum number of Concerts, and of Performers,
+     * cached.
+     * @param ttlMillis how long an entry is cached for after it's loaded.
+     */
+    public CachingConcertDAO(ConcertDAO dao, int maxSize, long ttlMillis) {
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        _dao = dao;
+        _ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        _concerts = new LruMap<>(maxSize);
+        _performers = new LruMap<>(maxSize);
+    }
+
+    /**
+     * @see ConcertDAO.save()
+     */
+    public void save(Concert concert) throws DAOException {
+        try {
+            _dao.save(concert);
+        } finally {
+            invalidate(concert);
+        }
+    }
+
+    /**
+     * @see ConcertDAO.saveAll()
+     */
+    public void saveAll(Collection<Concert> concerts) throws DAOException {
+        try {
+            _dao.saveAll(concerts);
+        } finally {
+            for(Concert concert : concerts) {
+                invalidate(concert);
+            }
+        }
+    }
+
+    /**
+     * @see ConcertDAO.getById()
+     */
+    public Concert getById(long id) throws DAOException {
+        long now = System.nanoTime();
+        long generation;
+        synchronized(this) {
+            CachedConcert concert = _concerts.get(id);
+            if(concert != null && !concert.isExpired(now)) {
+                CachedPerformer performer = _performers.get(concert._performerId);
+                if(performer != null && !performer.isExpired(now)) {
+                    _hits.incrementAndGet();
+                    return concert.toConcert(id, performer.toPerformer(concert._performerId));
+                }
+            }
+            generation = _generation;
+        }
+
+        _misses.incrementAndGet();
+        Concert concert = _dao.getById(id);
+        long loaded = System.nanoTime();
+        _loadNanos.addAndGet(loaded - now);
+
+        if(concert != null) {
+            synchronized(this) {
+                if(generation == _generation) {
+                    cache(concert, loaded);
+                }
+            }
+        }
+        return concert;
+    }
+
+    /**
+     * @see ConcertDAO.getAll()
+     */
+    public List<Concert> getAll() throws DAOException {
+        long generation = getGeneration();
+        List<Concert> concerts = _dao.getAll();
+        cacheAll(concerts, generation);
+        return concerts;
+    }
+
+    /**
+     * @see ConcertDAO.getByDate()
+     */
+    public List<Concert> getByDate(LocalDateTime from, LocalDateTime to) throws DAOException {
+        long generation = getGeneration();
+        List<Concert> concerts = _dao.getByDate(from, to);
+        cacheAll(concerts, generation);
+        return concerts;
+    }
+
+    /**
+     * @see ConcertDAO.getByGenre()
+     */
+    public List<Concert> getByGenre(Genre genre) throws DAOException {
+        long generation = getGeneration();
+        List<Concert> concerts = _dao.getByGenre(genre);
+        cacheAll(concerts, generation);
+        return concerts;
+    }
+
+    /**
+     * @see ConcertDAO.getByPerformer()
+     */
+    public List<Concert> getByPerformer(Performer performer) throws DAOException {
+        long generation = getGeneration();
+        List<Concert> concerts = _dao.getByPerformer(performer);
+        cacheAll(concerts, generation);
+        return concerts;
+    }
+
+    /**
+     * @see ConcertDAO.streamAll()
+     */
+    public Stream<Concert> streamAll() throws DAOException {
+        return _dao.streamAll();
+    }
+
+    /**
+     * @see ConcertDAO.getPage()
+     */
+    public List<Concert> getPage(String afterTitle, long afterId, int limit) throws DAOException {
+        long generation = getGeneration();
+        List<Concert> concerts = _dao.getPage(afterTitle, afterId, limit);
+        cacheAll(concerts, generation);
+        return concerts;
+    }
+
+    /**
+     * @see ConcertDAO.deleteConcert()
+     */
+    public void deleteConcert(Concert concert) throws DAOException {
+        try {
+            _dao.deleteConcert(concert);
+        } finally {
+            invalidate(concert);
+        }
+    }
+
+    /**
+     * @see ConcertDAO.close()
+     */
+    public void close() throws DAOException {
+        invalidateAll();
+        _dao.close();
+    }
+
+    /**
+     * Removes all entries from the caches.
+     */
+    public synchronized void invalidateAll() {
+        _concerts.clear();
+        _performers.clear();
+        _generation++;
+    }
+
+    /**
+     * Returns the number of getById() calls answered from the cache.
+     */
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    /**
+     * Returns the number of getById() calls answered by the underlying DAO.
+     */
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    /**
+     * Returns the proportion of getById() calls answered from the cache, or
+     * 0 if there have been no calls.
+     */
+    public double getHitRatio() {
+        long hits = _hits.get();
+        long total = hits + _misses.get();
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    /**
+     * Returns the average time, in nanoseconds, taken by the underlying DAO
+     * to answer getById() calls that missed the cache, or 0 if there have
+     * been no misses.
+     */
+    public long getAverageLoadNanos() {
+        long misses = _misses.get();
+        return misses == 0 ? 0 : _loadNanos.get() / misses;
+    }
+
+    private synchronized long getGeneration() {
+        return _generation;
+    }
+
+    /*
+     * Helper method to cache the state of Concerts loaded by the underlying
+     * DAO, unless there has been an invalidation since generation.
+     *
+     */
+    private void cacheAll(List<Concert> concerts, long generation) {
+        long loaded = System.nanoTime();
+        synchronized(this) {
+            if(generation == _generation) {
+                for(Concert concert : concerts) {
+                    cache(concert, loaded);
+                }
+            }
+        }
+    }
+
+    /*
+     * Helper method to cache the state of a Concert and its Performer. Must
+     * be called holding this object's lock.
+     *
+     */
+    private void cache(Concert concert, long loaded) {
+        Performer performer = concert.getPerformer();
+        _concerts.put(concert.getId(), new CachedConcert(concert, loaded + _ttlNanos));
+        _performers.put(performer.getId(), new CachedPerformer(performer, loaded + _ttlNanos));
+    }
+
+    /*
+     * Helper method to remove the entries for a Concert and its Performer.
+     *
+     */
+    private synchronized void invalidate(Concert concert) {
+        if(concert.getId() != null) {
+            _concerts.remove(concert.getId());
+        }
+        Performer performer = concert.getPerformer();
+        if(performer != null && performer.getId() != null) {
+            _performers.remove(performer.getId());
+        }
+        _generation++;
+    }
+
+    /*
+     * Map that holds at most maxSize entries, evicting the least recently
+     * used.
+     *
+     */
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int _maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            _maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > _maxSize;
+        }
+    }
+
+    /*
+     * The cached state of a Concert.
+     *
+     */
+    private static class CachedConcert {
+        private final String _title;
+        private final LocalDateTime _date;
+        private final long _performerId;
+        private final long _expires;
+
+        CachedConcert(Concert concert, long expires) {
+            _title = concert.getTitle();
+            _date = concert.getDate();
+            _performerId = concert.getPerformer().getId();
+            _expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return now - _expires >= 0;
+        }
+
+        Concert toConcert(long id, Performer performer) {
+            Concert concert = new Concert(id, _title, _date, performer);
+            concert.markClean();
+            return concert;
+        }
+    }
+
+    /*
+     * The cached state of a Performer.
+     *
+     */
+    private static class CachedPerformer {
+        private final String _name;
+        private final String _s3ImageUri;
+        private final Genre _genre;
+        private final long _expires;
+
+        CachedPerformer(Performer performer, long expires) {
+            _name = performer.getName();
+            _s3ImageUri = performer.getS3ImageUri();
+            _genre = performer.getGenre();
+            _expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return now - _expires >= 0;
+        }
+
+        Performer toPerformer(long id) {
+            Performer performer = new Performer(id, _name, _s3ImageUri, _genre);
+            performer.markClean();
+            return performer;
+        }
+    }
+}
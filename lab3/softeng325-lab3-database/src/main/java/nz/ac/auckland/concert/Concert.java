@@ -1,5 +1,7 @@
 package nz.ac.auckland.concert;
 
+import java.util.Objects;
+
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.joda.time.LocalDateTime;
@@ -11,6 +13,10 @@ import org.joda.time.LocalDateTime;
  * Concert implements Comparable with a natural ordering based on its title.
  * Hence, in a List, Concert instances can be sorted into alphabetical order
  * based on their title value.
+ * 
+ * A Concert also remembers the state it had when it was last read from or
+ * written to the database, so that a DAO can tell which of its properties 
+ * have changed since and write only those.
  *
  */
 public class Concert implements Comparable<Concert> {
@@ -19,6 +25,12 @@ public class Concert implements Comparable<Concert> {
 	private LocalDateTime _date;
 	private Performer _performer;
 	
+	// State last read from or written to the database.
+	private boolean _persistent;
+	private String _persistentTitle;
+	private LocalDateTime _persistentDate;
+	private Long _persistentPerformerId;
+	
 	public Concert(Long id, String title, LocalDateTime date, Performer performer) {
 		_id = id;
 		_title = title;
@@ -60,6 +72,38 @@ public class Concert implements Comparable<Concert> {
 		return _performer;
 	}
 
+	/**
+	 * Records the Concert's current state as the state held in the database.
+	 * Called by DAOs after reading or writing the Concert. The state of the 
+	 * Concert's Performer is recorded separately.
+	 */
+	void markClean() {
+		_persistent = true;
+		_persistentTitle = _title;
+		_persistentDate = _date;
+		_persistentPerformerId = _performer.getId();
+	}
+	
+	/**
+	 * Returns true unless the Concert's state is known to match the 
+	 * database's.
+	 */
+	boolean isDirty() {
+		return isTitleDirty() || isDateDirty() || isPerformerDirty();
+	}
+	
+	boolean isTitleDirty() {
+		return !_persistent || !Objects.equals(_title, _persistentTitle);
+	}
+	
+	boolean isDateDirty() {
+		return !_persistent || !Objects.equals(_date, _persistentDate);
+	}
+	
+	boolean isPerformerDirty() {
+		return !_persistent || !Objects.equals(_performer.getId(), _persistentPerformerId);
+	}
+	
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
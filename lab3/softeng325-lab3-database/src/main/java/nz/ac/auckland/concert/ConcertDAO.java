@@ -1,6 +1,10 @@
 package nz.ac.auckland.concert;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.joda.time.LocalDateTime;
 
 /**
  * Interface for a DAO for Concerts.
@@ -25,6 +29,22 @@ public interface ConcertDAO {
 	 */
 	public void save(Concert concert) throws DAOException;
 	
+	/**
+	 * Persists a collection of Concert objects, as if by calling save() for
+	 * each. A Performer shared by several of the Concerts is saved once.
+	 * 
+	 * Implementations may save the Concerts in several transactions, each 
+	 * covering a chunk of the collection. If an error occurs, the chunk 
+	 * being saved isn't persisted, nor are any later chunks, but earlier 
+	 * chunks remain persisted.
+	 * 
+	 * @param concerts the Concert objects to persist.
+	 * 
+	 * @throws DAOException if there's an error with storing the Concerts.
+	 * 
+	 */
+	public void saveAll(Collection<Concert> concerts) throws DAOException;
+	
 	/**
 	 * Retrieves a Concert by its unique ID. 	
 	 * 
@@ -49,6 +69,89 @@ public interface ConcertDAO {
 	 */
 	public List<Concert> getAll() throws DAOException;
 	
+	/**
+	 * Retrieves all Concerts as a Stream, ordered by title and then ID. 
+	 * Unlike getAll(), the Concerts are read from the datastore as the 
+	 * Stream is consumed, rather than being held in memory together.
+	 * 
+	 * The Stream holds datastore resources until it's closed, so it should 
+	 * be used in a try-with-resources statement. An error while the Stream
+	 * is being consumed is thrown as an UncheckedDAOException.
+	 * 
+	 * @return a Stream of Concerts.
+	 * 
+	 * @throws DAOException if there's an error with starting to retrieve the
+	 * Concerts.
+	 * 
+	 */
+	public Stream<Concert> streamAll() throws DAOException;
+	
+	/**
+	 * Retrieves the Concerts whose dates lie in a given range, ordered by 
+	 * title and then ID.
+	 * 
+	 * @param from the start of the range (inclusive).
+	 * 
+	 * @param to the end of the range (exclusive).
+	 * 
+	 * @return a List of Concerts, which is empty if there are none in the 
+	 * range.
+	 * 
+	 * @throws DAOException if there's an error with retrieving the Concerts.
+	 * 
+	 */
+	public List<Concert> getByDate(LocalDateTime from, LocalDateTime to) throws DAOException;
+	
+	/**
+	 * Retrieves the Concerts whose Performers play a given genre, ordered by
+	 * title and then ID.
+	 * 
+	 * @param genre the genre.
+	 * 
+	 * @return a List of Concerts, which is empty if there are none of the 
+	 * genre.
+	 * 
+	 * @throws DAOException if there's an error with retrieving the Concerts.
+	 * 
+	 */
+	public List<Concert> getByGenre(Genre genre) throws DAOException;
+	
+	/**
+	 * Retrieves the Concerts featuring a given Performer, ordered by title and
+	 * then ID. The Performer is identified by its ID.
+	 * 
+	 * @param performer the Performer.
+	 * 
+	 * @return a List of Concerts, which is empty if there are none featuring
+	 * the Performer.
+	 * 
+	 * @throws DAOException if there's an error with retrieving the Concerts.
+	 * 
+	 */
+	public List<Concert> getByPerformer(Performer performer) throws DAOException;
+	
+	/**
+	 * Retrieves a page of Concerts, in the order of streamAll(). A page 
+	 * starts after a given Concert, identified by its title and ID, so 
+	 * successive pages can be retrieved by passing the title and ID of the
+	 * last Concert on one page to get the next.
+	 * 
+	 * @param afterTitle the title of the Concert that precedes the page, or 
+	 * null for the first page.
+	 * 
+	 * @param afterId the ID of the Concert that precedes the page. Ignored 
+	 * if afterTitle is null.
+	 * 
+	 * @param limit the maximum number of Concerts on the page.
+	 * 
+	 * @return a List of Concerts, which is shorter than limit only on the 
+	 * last page.
+	 * 
+	 * @throws DAOException if there's an error with retrieving the Concerts.
+	 * 
+	 */
+	public List<Concert> getPage(String afterTitle, long afterId, int limit) throws DAOException;
+	
 	/**
 	 * Deletes a Concert.
 	 * 
@@ -0,0 +1,244 @@
+package nz.ac.auckland.concert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections to a database.
+ *
+ * At most maxSize connections are in use at any time; a thread that borrows
+ * a connection while all are in use waits, for up to borrowTimeoutMillis,
+ * for one to be returned. Connections are created on demand, so an idle pool
+ * holds no more connections than it has needed.
+ *
+ * Idle connections are reused most recently returned first, so that under
+ * light load the least recently used connections stay idle and can be
+ * evicted: a connection that has been idle for longer than maxIdleMillis is
+ * closed the next time a connection is borrowed or returned. A connection is
+ * validated before it is lent out, and a connection that is no longer valid
+ * (e.g. because the database closed it) is discarded and replaced.
+ *
+ * Connections are lent as PooledConnections, which return the connection to
+ * the pool when they're closed, so they can be used with try-with-resources:
+ *
+ *    try(PooledConnection connection = pool.borrow()) {
+ *        ...
+ *    }
+ *
+ * A ConnectionPool is safe for concurrent use.
+ *
+ */
+public class ConnectionPool {
+
+    // Seconds allowed for a connection to respond when it's validated.
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private static Logger _logger = LoggerFactory
+            .getLogger(ConnectionPool.class);
+
+    private final String _url;
+    private final String _username;
+    private final String _password;
+    private final int _maxSize;
+    private final long _maxIdleMillis;
+    private final long _borrowTimeoutMillis;
+
+    // A permit for each connection that can be lent out.
+    private final Semaphore _permits;
+
+    // Idle connections, most recently returned first. Guarded by this.
+    private final Deque<PooledConnection> _idle = new ArrayDeque<>();
+    private boolean _closed = false;
+
+    /**
+     * Creates a ConnectionPool.
+     *
+     * @param url the JDBC URL of the database.
+     * @param username the database user.
+     * @param password the database user's password.
+     * @param maxSize the maximum number of connections.
+     * @param maxIdleMillis how long a connection can be idle before it's
+     * closed.
+     * @param borrowTimeoutMillis how long borrow() waits for a connection
+     * when all are in use.
+     */
+    public ConnectionPool(String url, String username, String password,
+                          int maxSize, long maxIdleMillis, long borrowTimeoutMillis) {
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        _url = url;
+        _username = username;
+        _password = password;
+        _maxSize = maxSize;
+        _maxIdleMillis = maxIdleMillis;
+        _borrowTimeoutMillis = borrowTimeoutMillis;
+        _permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting if all connections are in use. The
+     * connection must be returned by closing the PooledConnection.
+     *
+     * @throws SQLException if the pool is closed, a connection doesn't become
+     * available in time, or a new connection can't be opened.
+     */
+    public PooledConnection borrow() throws SQLException {
+        try {
+            if(!_permits.tryAcquire(_borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a connection");
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection connection;
+            while((connection = takeIdle()) != null) {
+                if(isValid(connection)) {
+                    // Lend the connection through a new PooledConnection, so
+                    // that closing the previous one again has no effect.
+                    return new PooledConnection(connection);
+                }
+                _logger.debug("Discarding invalid connection");
+                closeQuietly(connection);
+            }
+            return new PooledConnection(this,
+                    DriverManager.getConnection(_url, _username, _password));
+        } catch(SQLException | RuntimeException e) {
+            _permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the maximum
+     * idle time.
+     */
+    public void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        synchronized(this) {
+            // The least recently returned connections are at the end.
+            Iterator<PooledConnection> connections = _idle.descendingIterator();
+            while(connections.hasNext()) {
+                PooledConnection connection = connections.next();
+                if(now - connection.getLastReturned() <= _maxIdleMillis) {
+                    break;
+                }
+                connections.remove();
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of connections.
+     */
+    public int getMaxSize() {
+        return _maxSize;
+    }
+
+    /**
+     * Returns the number of idle connections.
+     */
+    public synchronized int getIdleCount() {
+        return _idle.size();
+    }
+
+    /*
+     * Returns the number of connections that can be borrowed without
+     * waiting.
+     *
+     */
+    int getAvailablePermits() {
+        return _permits.availablePermits();
+    }
+
+    /**
+     * Closes the pool's idle connections, and arranges for connections in use
+     * to be closed when they're returned. The pool can't be used once it has
+     * been closed.
+     */
+    public void close() {
+        synchronized(this) {
+            _closed = true;
+            for(PooledConnection connection : _idle) {
+                closeQuietly(connection);
+            }
+            _idle.clear();
+        }
+    }
+
+    /*
+     * Returns a connection to the pool. Called by PooledConnection.close().
+     *
+     */
+    void release(PooledConnection connection) {
+        try {
+            boolean reusable = false;
+            try {
+                Connection jdbcConnection = connection.getConnection();
+                if(!jdbcConnection.isClosed()) {
+                    // Discard any transaction the borrower left open.
+                    if(!jdbcConnection.getAutoCommit()) {
+                        jdbcConnection.rollback();
+                        jdbcConnection.setAutoCommit(true);
+                    }
+                    reusable = true;
+                }
+            } catch(SQLException e) {
+                _logger.debug("Discarding connection that couldn't be reset", e);
+            }
+
+            synchronized(this) {
+                if(reusable && !_closed) {
+                    connection.setLastReturned(System.currentTimeMillis());
+                    _idle.addFirst(connection);
+                    connection = null;
+                }
+            }
+            if(connection != null) {
+                closeQuietly(connection);
+            }
+        } finally {
+            _permits.release();
+        }
+        evictIdleConnections();
+    }
+
+    private synchronized PooledConnection takeIdle() throws SQLException {
+        if(_closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        return _idle.pollFirst();
+    }
+
+    private boolean isValid(PooledConnection connection) {
+        if(System.currentTimeMillis() - connection.getLastReturned() > _maxIdleMillis) {
+            return false;
+        }
+        try {
+            return connection.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch(SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(PooledConnection connection) {
+        try {
+            connection.getConnection().close();
+        } catch(SQLException e) {
+            _logger.debug("Unable to close connection", e);
+        }
+    }
+}
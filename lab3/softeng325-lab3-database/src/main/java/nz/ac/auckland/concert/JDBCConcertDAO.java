@@ -6,12 +6,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of the ConcertDAO interface. 
@@ -20,6 +32,23 @@ import java.util.List;
  * Concert and Performer map to primary key columns of the Concert and 
  * Performer tables respectively.
  *
+ * Database connections are obtained from a ConnectionPool, with each
+ * operation borrowing a connection for its duration, so a JDBCConcertDAO can
+ * be used by several threads at once. Statements are prepared through the
+ * borrowed PooledConnection, which caches them, so each SQL statement is
+ * parsed once per connection. ResultSets are closed as soon as they've been
+ * read.
+ *
+ * Primary key values for new rows are allocated by KeyAllocators, in blocks
+ * reserved from the CONCERT_ID_SEQUENCE and PERFORMER_ID_SEQUENCE sequences,
+ * so inserting a row doesn't require a query to find a free key and
+ * concurrent inserts can't be given the same key.
+ *
+ * Concerts and Performers remember the state they had when they were last
+ * read or written by the DAO. When they're saved, rows are updated only if
+ * that state has since changed, and save() updates only the changed
+ * columns.
+ *
  * @see ConcertDAO.
  *
  */
@@ -31,13 +60,29 @@ public class JDBCConcertDAO implements ConcertDAO {
     private static final String DATABASE_USERNAME = "sa";
     private static final String DATABASE_PASSWORD = "sa";
 
+    // Connection pool configuration parameters.
+    public static final int DEFAULT_POOL_SIZE = 8;
+    private static final long MAX_IDLE_MILLIS = 60 * 1000;
+    private static final long BORROW_TIMEOUT_MILLIS = 10 * 1000;
+
+    // Number of Concerts saved in each transaction by saveAll().
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    // Number of rows fetched at a time by streamAll().
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
     // Error messages.
     private static final String ERROR_CREATING_DAO = "Unable to create JDBCConcertDAO";
-    private static final String ERROR_CLOSING_CONNECTION = "Unable to create JDBCConcertDAO";
     private static final String ERROR_SAVING_CONCERT = "Unable to save Concert";
+    private static final String ERROR_SAVING_CONCERTS = "Unable to save Concerts";
     private static final String ERROR_DELETING_CONCERT = "Unable to save Concert";
     private static final String ERROR_LOADING_CONCERT = "Unable to retrieve Concert";
     private static final String ERROR_LOADING_ALL_CONCERTS = "Unable to retrieve all Concerts";
+    private static final String ERROR_STREAMING_CONCERTS = "Unable to stream Concerts";
+    private static final String ERROR_LOADING_PAGE = "Unable to retrieve page of Concerts";
+    private static final String ERROR_LOADING_BY_DATE = "Unable to retrieve Concerts by date";
+    private static final String ERROR_LOADING_BY_GENRE = "Unable to retrieve Concerts by genre";
+    private static final String ERROR_LOADING_BY_PERFORMER = "Unable to retrieve Concerts by Performer";
 
     // Column names for the Concert table.
     private static final String CONCERT_COLUMN_ID = "ID";
@@ -51,32 +96,66 @@ public class JDBCConcertDAO implements ConcertDAO {
     private static final String PERFORMER_COLUMN_GENRE = "GENRE";
     private static final String PERFORMER_COLUMN_ID = "ID";
 
-    // SQL for inserting and updating the Performer table.
+    // SQL for inserting and updating the Performer table. The full-row
+    // UPDATE is batched by saveAll(); save() updates only changed columns,
+    // with SQL built by updateColumns().
     private static final String SQL_INSERT_PERFORMER = "INSERT INTO PERFORMER VALUES (?,?,?,?)";
     private static final String SQL_UPDATE_PERFORMER = "UPDATE PERFORMER SET NAME = ?, S3IMAGE = ?, GENRE = ? WHERE ID = ?";
 
-    // SQL for CRUD operations on the Concert table.
+    // SQL for CRUD operations on the Concert table. As for the Performer
+    // table, the full-row UPDATE is used only by saveAll().
     private static final String SQL_INSERT_CONCERT = "INSERT INTO CONCERT VALUES (?,?,?,?)";
     private static final String SQL_UPDATE_CONCERT = "UPDATE CONCERT SET TITLE = ?, DATE = ?, FK_PERFORMER_ID = ? WHERE ID = ?";
     private static final String SQL_DELETE_CONCERT = "DELETE FROM CONCERT WHERE ID = ?";
     private static final String SQL_SELECT_CONCERT_BY_ID = "SELECT * FROM CONCERT WHERE ID = ?";
-    private static final String SQL_SELECT_ALL_CONCERTS = "SELECT * FROM CONCERT ORDER BY TITLE ASC";
+
+    // SQL for retrieving Concerts together with their Performers in a
+    // single query. Columns are selected in the order expected by 
+    // readConcert(). Concerts are ordered by title, and by ID where titles
+    // are equal, so that a Concert's position in the order can be identified
+    // by its title and ID.
+    private static final String SQL_SELECT_CONCERTS =
+            "SELECT C.ID, C.TITLE, C.DATE, P.ID, P.NAME, P.S3IMAGE, P.GENRE " +
+            "FROM CONCERT C JOIN PERFORMER P ON C.FK_PERFORMER_ID = P.ID ";
+    private static final String SQL_ORDER_BY_TITLE = "ORDER BY C.TITLE ASC, C.ID ASC";
+    private static final String SQL_SELECT_ALL_CONCERTS = SQL_SELECT_CONCERTS + SQL_ORDER_BY_TITLE;
+    private static final String SQL_SELECT_FIRST_PAGE =
+            SQL_SELECT_CONCERTS + SQL_ORDER_BY_TITLE + " LIMIT ?";
+    // The TITLE >= ? condition lets the next page be found by a range scan
+    // of the index on TITLE and ID, which the OR condition alone wouldn't.
+    private static final String SQL_SELECT_NEXT_PAGE = SQL_SELECT_CONCERTS +
+            "WHERE C.TITLE >= ? AND (C.TITLE > ? OR C.ID > ?) " + SQL_ORDER_BY_TITLE + " LIMIT ?";
+
+    // SQL for filtered queries, each of which can use an index created by
+    // db-init.sql: CONCERT(DATE), PERFORMER(GENRE) and
+    // CONCERT(FK_PERFORMER_ID) respectively.
+    static final String SQL_SELECT_CONCERTS_BY_DATE = SQL_SELECT_CONCERTS +
+            "WHERE C.DATE >= ? AND C.DATE < ? " + SQL_ORDER_BY_TITLE;
+    static final String SQL_SELECT_CONCERTS_BY_GENRE = SQL_SELECT_CONCERTS +
+            "WHERE P.GENRE = ? " + SQL_ORDER_BY_TITLE;
+    static final String SQL_SELECT_CONCERTS_BY_PERFORMER = SQL_SELECT_CONCERTS +
+            "WHERE C.FK_PERFORMER_ID = ? " + SQL_ORDER_BY_TITLE;
 
     // SQL Performer
     private static final String SQL_SELECT_PERFORMER_BY_ID = "SELECT * FROM PERFORMER WHERE ID = ?";
 
-    // SQL for finding largest primary keys values in the Concert and Performer tables.
-    private static final String SQL_GET_LARGEST_PRIMARY_KEY_VALUE_FOR_CONCERT = "SELECT ID FROM CONCERT ORDER BY ID DESC LIMIT 1";
-    private static final String SQL_GET_LARGEST_PRIMARY_KEY_VALUE_FOR_PERFORMER = "SELECT ID FROM PERFORMER ORDER BY ID DESC LIMIT 1";
+    // Sequences from which primary key values for the Concert and Performer
+    // tables are allocated.
+    private static final String CONCERT_ID_SEQUENCE = "CONCERT_ID_SEQUENCE";
+    private static final String PERFORMER_ID_SEQUENCE = "PERFORMER_ID_SEQUENCE";
 
     private static Logger _logger = LoggerFactory
             .getLogger(JDBCConcertDAO.class);
 
-    // JDBC database connection.
-    private Connection _jdbcConnection = null;
+    // Pool of JDBC database connections.
+    private ConnectionPool _pool;
+
+    // Allocators of primary key values for new Concerts and Performers.
+    private KeyAllocator _concertKeys = new KeyAllocator(CONCERT_ID_SEQUENCE, "CONCERT");
+    private KeyAllocator _performerKeys = new KeyAllocator(PERFORMER_ID_SEQUENCE, "PERFORMER");
 
     /**
-     * Creates a JDBCConcertDAO.
+     * Creates a JDBCConcertDAO with a connection pool of DEFAULT_POOL_SIZE.
      *
      * Following successful creation, the JDBCConcertDAO has established a
      * connection to the database.
@@ -84,13 +163,29 @@ public class JDBCConcertDAO implements ConcertDAO {
      * @throws DAOException if there's an error connecting to the database.
      */
     public JDBCConcertDAO() throws DAOException {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Creates a JDBCConcertDAO whose connection pool holds at most poolSize
+     * connections.
+     *
+     * Following successful creation, the JDBCConcertDAO has established a
+     * connection to the database.
+     *
+     * @throws DAOException if there's an error connecting to the database.
+     */
+    public JDBCConcertDAO(int poolSize) throws DAOException {
         try {
             // Load H2 database driver class.
             Class.forName(DATABASE_DRIVER_NAME);
 
-            // Open a connection to the database.
-            _jdbcConnection = DriverManager.getConnection(DATABASE_URL,
-                    DATABASE_USERNAME, DATABASE_PASSWORD);
+            _pool = new ConnectionPool(DATABASE_URL, DATABASE_USERNAME,
+                    DATABASE_PASSWORD, poolSize, MAX_IDLE_MILLIS,
+                    BORROW_TIMEOUT_MILLIS);
+
+            // Open a connection to the database, leaving it in the pool.
+            _pool.borrow().close();
         } catch(SQLException | ClassNotFoundException e) {
             _logger.debug(ERROR_CREATING_DAO, e);
             throw new DAOException(ERROR_CREATING_DAO);
@@ -111,34 +206,49 @@ public class JDBCConcertDAO implements ConcertDAO {
      *
      */
     public JDBCConcertDAO(File scriptFile) throws DAOException {
-        this();
+        this(scriptFile, DEFAULT_POOL_SIZE);
+    }
 
-        try {
-            RunScript.execute(_jdbcConnection,  new FileReader(scriptFile));
-        } catch(SQLException | FileNotFoundException e) {
+    /**
+     * Creates a JDBCConcertDAO whose connection pool holds at most poolSize
+     * connections, and runs a database initialisation script.
+     *
+     * @see JDBCConcertDAO(File)
+     *
+     */
+    public JDBCConcertDAO(File scriptFile, int poolSize) throws DAOException {
+        this(poolSize);
+
+        try(PooledConnection connection = _pool.borrow();
+            Reader reader = new FileReader(scriptFile)) {
+            RunScript.execute(connection.getConnection(), reader);
+        } catch(SQLException | IOException e) {
             _logger.debug(ERROR_CREATING_DAO, e);
             throw new DAOException(ERROR_CREATING_DAO);
         }
     }
 
+    /**
+     * Returns the maximum number of database connections this
+     * JDBCConcertDAO uses at once.
+     */
+    public int getPoolSize() {
+        return _pool.getMaxSize();
+    }
+
     /**
      * @see ConcertDAO.close()
      *
      */
     public void close() throws DAOException {
-        try {
-            _jdbcConnection.close();
-        } catch(SQLException e) {
-            _logger.debug(ERROR_CLOSING_CONNECTION, e);
-            throw new DAOException(ERROR_CLOSING_CONNECTION);
-        }
+        _pool.close();
     }
 
     /**
-     * @see ConcertDAO.close()
+     * @see ConcertDAO.save()
      */
     public void save(Concert concert) throws DAOException {
-        try {
+        try(PooledConnection connection = _pool.borrow()) {
             Performer performer = concert.getPerformer();
 
             // Process the Concert's Performer first. It needs to be persisted
@@ -146,11 +256,11 @@ public class JDBCConcertDAO implements ConcertDAO {
             // Concert table has a foreign key relationship with Performer.
             if(performer.getId() == null) {
                 // Performer isn't stored in the database, so needs to be
-                // inserted. Generate the new primary key value and insert a
+                // inserted. Allocate the new primary key value and insert a
                 // new Performer row.
-                long key = getNextPrimaryKeyForPerformer();
+                long key = _performerKeys.nextKey(connection);
 
-                PreparedStatement preparedStatement = _jdbcConnection.prepareStatement(SQL_INSERT_PERFORMER);
+                PreparedStatement preparedStatement = connection.prepareStatement(SQL_INSERT_PERFORMER);
                 preparedStatement.setLong(1, key);
                 preparedStatement.setString(2, performer.getName());
                 preparedStatement.setString(3, performer.getS3ImageUri());
@@ -159,42 +269,57 @@ public class JDBCConcertDAO implements ConcertDAO {
 
                 // Update the Performer's id instance variable.
                 performer.setId(key);
-            } else {
-                // Performer is already persisted, so update its row in case
-                // the Performer object has been modified.
-                PreparedStatement preparedStatement = _jdbcConnection.prepareStatement(SQL_UPDATE_PERFORMER);
-                preparedStatement.setString(1, performer.getName());
-                preparedStatement.setString(2, performer.getS3ImageUri());
-                preparedStatement.setString(3, performer.getGenre().toString());
-                preparedStatement.setLong(4, performer.getId());
-                preparedStatement.executeUpdate();
+                performer.markClean();
+            } else if(performer.isDirty()) {
+                // Performer is already persisted, so update the columns that
+                // have changed since it was read or last written. An
+                // unchanged Performer isn't written at all.
+                Map<String, Object> columns = new LinkedHashMap<>();
+                if(performer.isNameDirty()) {
+                    columns.put(PERFORMER_COLUMN_NAME, performer.getName());
+                }
+                if(performer.isS3ImageUriDirty()) {
+                    columns.put(PERFORMER_COLUMN_S3IMAGE, performer.getS3ImageUri());
+                }
+                if(performer.isGenreDirty()) {
+                    columns.put(PERFORMER_COLUMN_GENRE, performer.getGenre().toString());
+                }
+                updateColumns(connection, "PERFORMER", columns, performer.getId());
+                performer.markClean();
             }
 
             // Process the Concert.
             if(concert.getId() == null) {
                 // Concert isn't stored in the database, so needs to be
-                // inserted. Generate the new primary key value and insert a
+                // inserted. Allocate the new primary key value and insert a
                 // new Concert row.
-                long key = getNextPrimaryKeyForConcert();
+                long key = _concertKeys.nextKey(connection);
 
-                PreparedStatement preparedStatement = _jdbcConnection.prepareStatement(SQL_INSERT_CONCERT);
+                PreparedStatement preparedStatement = connection.prepareStatement(SQL_INSERT_CONCERT);
                 preparedStatement.setLong(1, key);
                 preparedStatement.setString(2, concert.getTitle());
                 preparedStatement.setTimestamp(3, new Timestamp(concert.getDate().toDateTime().getMillis()));
                 preparedStatement.setLong(4, concert.getPerformer().getId());
-                preparedStatement .executeUpdate();
+                preparedStatement.executeUpdate();
 
                 // Update the Concert's id instance variable.
                 concert.setId(key);
-            } else {
-                // Concert is already persisted, so update its row in case the
-                // Concert object has been modified.
-                PreparedStatement preparedStatement = _jdbcConnection.prepareStatement(SQL_UPDATE_CONCERT);
-                preparedStatement.setString(1, concert.getTitle());
-                preparedStatement.setTimestamp(2, new Timestamp(concert.getDate().toDateTime().getMillis()));
-                preparedStatement.setLong(3, concert.getPerformer().getId());
-                preparedStatement.setLong(4, concert.getId());
-                preparedStatement.executeUpdate();
+                concert.markClean();
+            } else if(concert.isDirty()) {
+                // Concert is already persisted, so update the columns that
+                // have changed since it was read or last written.
+                Map<String, Object> columns = new LinkedHashMap<>();
+                if(concert.isTitleDirty()) {
+                    columns.put(CONCERT_COLUMN_TITLE, concert.getTitle());
+                }
+                if(concert.isDateDirty()) {
+                    columns.put(CONCERT_COLUMN_DATE, new Timestamp(concert.getDate().toDateTime().getMillis()));
+                }
+                if(concert.isPerformerDirty()) {
+                    columns.put(CONCERT_COLUMN_PERFORMER_ID, concert.getPerformer().getId());
+                }
+                updateColumns(connection, "CONCERT", columns, concert.getId());
+                concert.markClean();
             }
         } catch(SQLException e) {
             _logger.debug(ERROR_SAVING_CONCERT, e);
@@ -203,118 +328,235 @@ public class JDBCConcertDAO implements ConcertDAO {
     }
 
     /**
-     * @see ConcertDAO.getById()
+     * @see ConcertDAO.saveAll()
      *
+     * The Concerts are saved in chunks of DEFAULT_CHUNK_SIZE.
      */
-    public Concert getById(long id) throws DAOException {
-        try {
-            PreparedStatement pStatement_performer = _jdbcConnection.prepareStatement(SQL_SELECT_PERFORMER_BY_ID);
-            PreparedStatement pStatement_concert = _jdbcConnection.prepareStatement(SQL_SELECT_CONCERT_BY_ID);
-
-            pStatement_concert.setLong(1, id);
-            ResultSet rset_concert = pStatement_concert.executeQuery();
+    public void saveAll(Collection<Concert> concerts) throws DAOException {
+        saveAll(concerts, DEFAULT_CHUNK_SIZE);
+    }
 
-            if(!rset_concert.next()) {
-                return null;
+    /**
+     * Persists a collection of Concert objects, saving at most chunkSize
+     * Concerts in each transaction.
+     *
+     * Within a chunk, rows are written with JDBC batches: one batch for
+     * each of the Performer inserts, Performer updates, Concert inserts and
+     * Concert updates. A Performer is written only in the first chunk that
+     * includes it. Concerts and Performers that haven't changed since they
+     * were read or last written are skipped, but a changed row is updated
+     * in full, since a batch executes a single statement. If a chunk can't
+     * be saved, its transaction is rolled back and the IDs assigned to its
+     * new Concerts and Performers are cleared.
+     *
+     * @see ConcertDAO.saveAll()
+     *
+     */
+    public void saveAll(Collection<Concert> concerts, int chunkSize) throws DAOException {
+        if(chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        List<Concert> remaining = new ArrayList<>(concerts);
+
+        try(PooledConnection connection = _pool.borrow()) {
+            Connection jdbcConnection = connection.getConnection();
+            jdbcConnection.setAutoCommit(false);
+
+            // Performers saved in earlier chunks, compared by identity.
+            Set<Performer> savedPerformers = Collections.newSetFromMap(new IdentityHashMap<Performer, Boolean>());
+
+            for(int start = 0; start < remaining.size(); start += chunkSize) {
+                List<Concert> chunk = remaining.subList(start, Math.min(start + chunkSize, remaining.size()));
+                List<Performer> newPerformers = new ArrayList<>();
+                List<Concert> newConcerts = new ArrayList<>();
+                try {
+                    saveChunk(connection, chunk, savedPerformers, newPerformers, newConcerts);
+                    jdbcConnection.commit();
+                    for(Concert concert : chunk) {
+                        concert.getPerformer().markClean();
+                        concert.markClean();
+                    }
+                } catch(SQLException | RuntimeException e) {
+                    jdbcConnection.rollback();
+                    clearBatches(connection);
+
+                    // Forget the IDs assigned to rows that weren't inserted.
+                    for(Performer performer : newPerformers) {
+                        performer.setId(null);
+                        savedPerformers.remove(performer);
+                    }
+                    for(Concert concert : newConcerts) {
+                        concert.setId(null);
+                    }
+                    throw e;
+                }
             }
-            Long cId = rset_concert.getLong(CONCERT_COLUMN_ID);
-
-            Long pId = rset_concert.getLong(CONCERT_COLUMN_PERFORMER_ID);
-            pStatement_performer.setLong(1,pId);
-            ResultSet rset_performer = pStatement_performer.executeQuery();
-            //test
-            //System.out.println(rset_concert);
-
-            //get columns
-            rset_performer.next();
-
-            Timestamp tStamp = rset_concert.getTimestamp(CONCERT_COLUMN_DATE);
-            LocalDateTime ldTime = new LocalDateTime(tStamp);
+            jdbcConnection.setAutoCommit(true);
+        } catch(SQLException e) {
+            _logger.debug(ERROR_SAVING_CONCERTS, e);
+            throw new DAOException(ERROR_SAVING_CONCERTS);
+        }
+    }
 
-            String cTitle = rset_concert.getString(CONCERT_COLUMN_TITLE);
+    /**
+     * @see ConcertDAO.getById()
+     *
+     */
+    public Concert getById(long id) throws DAOException {
+        try(PooledConnection connection = _pool.borrow()) {
+            PreparedStatement concertStatement = connection.prepareStatement(SQL_SELECT_CONCERT_BY_ID);
+            concertStatement.setLong(1, id);
+
+            Long performerId;
+            String title;
+            LocalDateTime date;
+            try(ResultSet rs = concertStatement.executeQuery()) {
+                if(!rs.next()) {
+                    return null;
+                }
+                performerId = rs.getLong(CONCERT_COLUMN_PERFORMER_ID);
+                title = rs.getString(CONCERT_COLUMN_TITLE);
+                date = new LocalDateTime(rs.getTimestamp(CONCERT_COLUMN_DATE));
+            }
 
-            String pName = rset_performer.getString(PERFORMER_COLUMN_NAME);
-            String img = rset_performer.getString(PERFORMER_COLUMN_S3IMAGE);
-            Genre genre = Genre.valueOf(rset_performer.getString(PERFORMER_COLUMN_GENRE));
+            PreparedStatement performerStatement = connection.prepareStatement(SQL_SELECT_PERFORMER_BY_ID);
+            performerStatement.setLong(1, performerId);
 
-            Performer performer = new Performer(pId, pName, img, genre);
-            Concert concert = new Concert(cId, cTitle,ldTime, performer);
+            Performer performer;
+            try(ResultSet rs = performerStatement.executeQuery()) {
+                rs.next();
+                performer = new Performer(performerId,
+                        rs.getString(PERFORMER_COLUMN_NAME),
+                        rs.getString(PERFORMER_COLUMN_S3IMAGE),
+                        Genre.valueOf(rs.getString(PERFORMER_COLUMN_GENRE)));
+            }
+            performer.markClean();
 
-//            rset_concert.close();
-//            rset_performer.close();
+            Concert concert = new Concert(id, title, date, performer);
+            concert.markClean();
             return concert;
-        } catch (SQLException e) {
-            e.printStackTrace();
+        } catch(SQLException e) {
+            _logger.debug(ERROR_LOADING_CONCERT, e);
+            throw new DAOException(ERROR_LOADING_CONCERT);
         }
-        return null;
     }
 
     /**
      * @see ConcertDAO.getAll()
      *
+     * Concerts and their Performers are retrieved with a single join query.
+     * Performers are identity-mapped by ID while the rows are read, so a
+     * Performer that features in several Concerts is represented by one
+     * Performer object.
      */
     public List<Concert> getAll() throws DAOException {
-        try {
-            List<Concert> allConcerts = new ArrayList<>();
-            List<Performer> performers = new ArrayList<>();
-            List<Long> pIds = new ArrayList<>();
-
-            PreparedStatement pStatement_concert = _jdbcConnection.prepareStatement(SQL_SELECT_ALL_CONCERTS);
-            ResultSet rset_concert = pStatement_concert.executeQuery();
-
-            while(rset_concert.next()) {
-                Long cId = Long.valueOf(rset_concert.getString(CONCERT_COLUMN_ID));
-
-                Timestamp tStamp = rset_concert.getTimestamp(CONCERT_COLUMN_DATE);
-                LocalDateTime ldTime = new LocalDateTime(tStamp);
-
-                String cTitle = rset_concert.getString(CONCERT_COLUMN_TITLE);
-
-                //get performers
-                Long pId = rset_concert.getLong(CONCERT_COLUMN_PERFORMER_ID);
-
-                PreparedStatement pStatement_performer =
-                        _jdbcConnection.prepareStatement(SQL_SELECT_PERFORMER_BY_ID);
-                pStatement_performer.setLong(1, pId);
-
-                ResultSet rset_performer = pStatement_performer.executeQuery();
+        return selectConcerts(SQL_SELECT_ALL_CONCERTS, ERROR_LOADING_ALL_CONCERTS);
+    }
 
-                rset_performer.next();
+    /**
+     * @see ConcertDAO.getByDate()
+     *
+     */
+    public List<Concert> getByDate(LocalDateTime from, LocalDateTime to) throws DAOException {
+        return selectConcerts(SQL_SELECT_CONCERTS_BY_DATE, ERROR_LOADING_BY_DATE,
+                new Timestamp(from.toDateTime().getMillis()),
+                new Timestamp(to.toDateTime().getMillis()));
+    }
 
-                String pName = rset_performer.getString(PERFORMER_COLUMN_NAME);
-                String img = rset_performer.getString(PERFORMER_COLUMN_S3IMAGE);
-                Genre genre = Genre.valueOf(rset_performer.getString(PERFORMER_COLUMN_GENRE));
+    /**
+     * @see ConcertDAO.getByGenre()
+     *
+     */
+    public List<Concert> getByGenre(Genre genre) throws DAOException {
+        return selectConcerts(SQL_SELECT_CONCERTS_BY_GENRE, ERROR_LOADING_BY_GENRE, genre.toString());
+    }
 
-                Performer performer = null;
+    /**
+     * @see ConcertDAO.getByPerformer()
+     *
+     */
+    public List<Concert> getByPerformer(Performer performer) throws DAOException {
+        if(performer.getId() == null) {
+            return new ArrayList<>();
+        }
+        return selectConcerts(SQL_SELECT_CONCERTS_BY_PERFORMER, ERROR_LOADING_BY_PERFORMER, performer.getId());
+    }
 
-                if (!pIds.contains(pId)) {
-                    pIds.add(pId);
+    /**
+     * @see ConcertDAO.streamAll()
+     *
+     * Rows are fetched DEFAULT_FETCH_SIZE at a time.
+     */
+    public Stream<Concert> streamAll() throws DAOException {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
 
-                    performer = new Performer(pId, pName, img, genre);
+    /**
+     * Retrieves all Concerts as a Stream, fetching fetchSize rows at a time.
+     *
+     * The Stream reads a single join query through a connection borrowed for
+     * the Stream's lifetime; closing the Stream closes the ResultSet and
+     * returns the connection. As with getAll(), a Performer that features in
+     * several Concerts is represented by one Performer object, so the 
+     * Performers (but not the Concerts) read are held until the Stream is 
+     * closed. The query's statement is cached by the connection and shared
+     * with getAll(), so its fetch size is restored when the Stream is 
+     * closed.
+     *
+     * @see ConcertDAO.streamAll()
+     *
+     */
+    public Stream<Concert> streamAll(int fetchSize) throws DAOException {
+        PooledConnection connection = null;
+        try {
+            connection = _pool.borrow();
+            PreparedStatement preparedStatement = connection.prepareStatement(SQL_SELECT_ALL_CONCERTS);
+            int previousFetchSize = preparedStatement.getFetchSize();
+            preparedStatement.setFetchSize(fetchSize);
+            ResultSet rs;
+            try {
+                rs = preparedStatement.executeQuery();
+            } catch(SQLException e) {
+                preparedStatement.setFetchSize(previousFetchSize);
+                throw e;
+            }
 
-                    performers.add(performer);
-                } else {
-                    // already exist
-                    for (Performer p: performers) {
-                        if (p.getId() == pId) {
-                            performer = p;
-                            break;
-                        }
+            PooledConnection borrowed = connection;
+            return StreamSupport.stream(new ConcertSpliterator(rs), false).onClose(() -> {
+                try {
+                    try {
+                        rs.close();
+                    } finally {
+                        preparedStatement.setFetchSize(previousFetchSize);
                     }
+                } catch(SQLException e) {
+                    _logger.debug(ERROR_STREAMING_CONCERTS, e);
+                } finally {
+                    borrowed.close();
                 }
-
-                Concert concert = new Concert(cId, cTitle,ldTime, performer);
-
-                allConcerts.add(concert);
+            });
+        } catch(SQLException e) {
+            if(connection != null) {
+                connection.close();
             }
-
-            return allConcerts;
-        } catch (SQLException e) {
-            e.printStackTrace();
+            _logger.debug(ERROR_STREAMING_CONCERTS, e);
+            throw new DAOException(ERROR_STREAMING_CONCERTS);
         }
+    }
 
-
-        return null;
+    /**
+     * @see ConcertDAO.getPage()
+     *
+     */
+    public List<Concert> getPage(String afterTitle, long afterId, int limit) throws DAOException {
+        if(limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        if(afterTitle == null) {
+            return selectConcerts(SQL_SELECT_FIRST_PAGE, ERROR_LOADING_PAGE, limit);
+        }
+        return selectConcerts(SQL_SELECT_NEXT_PAGE, ERROR_LOADING_PAGE,
+                afterTitle, afterTitle, afterId, limit);
     }
 
     /**
@@ -322,8 +564,8 @@ public class JDBCConcertDAO implements ConcertDAO {
      *
      */
     public void deleteConcert(Concert concert) throws DAOException {
-        try {
-            PreparedStatement statement = _jdbcConnection.prepareStatement(SQL_DELETE_CONCERT);
+        try(PooledConnection connection = _pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_DELETE_CONCERT);
             statement.setLong(1,concert.getId());
             statement.executeUpdate();
         } catch(SQLException e) {
@@ -333,31 +575,211 @@ public class JDBCConcertDAO implements ConcertDAO {
     }
 
     /*
-     * Helper method to generate the next primary key value for the Concert
-     * table.
+     * Helper method to write a chunk of Concerts, and those of their
+     * Performers that aren't in savedPerformers, using batches. Performers
+     * and Concerts that are assigned IDs are added to newPerformers and
+     * newConcerts respectively, and written Performers are added to
+     * savedPerformers.
      *
      */
-    private long getNextPrimaryKeyForConcert() throws SQLException {
-        Statement statement = _jdbcConnection.createStatement();
-        ResultSet rs = statement.executeQuery(SQL_GET_LARGEST_PRIMARY_KEY_VALUE_FOR_CONCERT);
-        rs.next();
-        long key = rs.getLong(1);
+    private void saveChunk(PooledConnection connection, List<Concert> chunk,
+                           Set<Performer> savedPerformers, List<Performer> newPerformers,
+                           List<Concert> newConcerts) throws SQLException {
+        PreparedStatement insertPerformer = null;
+        PreparedStatement updatePerformer = null;
+        for(Concert concert : chunk) {
+            Performer performer = concert.getPerformer();
+            if(!savedPerformers.add(performer)) {
+                continue;
+            }
+            if(performer.getId() != null && !performer.isDirty()) {
+                continue;
+            }
+            if(performer.getId() == null) {
+                if(insertPerformer == null) {
+                    insertPerformer = connection.prepareStatement(SQL_INSERT_PERFORMER);
+                }
+                performer.setId(_performerKeys.nextKey(connection));
+                newPerformers.add(performer);
+
+                insertPerformer.setLong(1, performer.getId());
+                insertPerformer.setString(2, performer.getName());
+                insertPerformer.setString(3, performer.getS3ImageUri());
+                insertPerformer.setString(4, performer.getGenre().toString());
+                insertPerformer.addBatch();
+            } else {
+                if(updatePerformer == null) {
+                    updatePerformer = connection.prepareStatement(SQL_UPDATE_PERFORMER);
+                }
+                updatePerformer.setString(1, performer.getName());
+                updatePerformer.setString(2, performer.getS3ImageUri());
+                updatePerformer.setString(3, performer.getGenre().toString());
+                updatePerformer.setLong(4, performer.getId());
+                updatePerformer.addBatch();
+            }
+        }
+        // Performers are written first, because of the Concert table's
+        // foreign key.
+        if(insertPerformer != null) {
+            insertPerformer.executeBatch();
+        }
+        if(updatePerformer != null) {
+            updatePerformer.executeBatch();
+        }
 
-        return key + 1;
+        PreparedStatement insertConcert = null;
+        PreparedStatement updateConcert = null;
+        for(Concert concert : chunk) {
+            if(concert.getId() != null && !concert.isDirty()) {
+                continue;
+            }
+            Timestamp date = new Timestamp(concert.getDate().toDateTime().getMillis());
+            if(concert.getId() == null) {
+                if(insertConcert == null) {
+                    insertConcert = connection.prepareStatement(SQL_INSERT_CONCERT);
+                }
+                concert.setId(_concertKeys.nextKey(connection));
+                newConcerts.add(concert);
+
+                insertConcert.setLong(1, concert.getId());
+                insertConcert.setString(2, concert.getTitle());
+                insertConcert.setTimestamp(3, date);
+                insertConcert.setLong(4, concert.getPerformer().getId());
+                insertConcert.addBatch();
+            } else {
+                if(updateConcert == null) {
+                    updateConcert = connection.prepareStatement(SQL_UPDATE_CONCERT);
+                }
+                updateConcert.setString(1, concert.getTitle());
+                updateConcert.setTimestamp(2, date);
+                updateConcert.setLong(3, concert.getPerformer().getId());
+                updateConcert.setLong(4, concert.getId());
+                updateConcert.addBatch();
+            }
+        }
+        if(insertConcert != null) {
+            insertConcert.executeBatch();
+        }
+        if(updateConcert != null) {
+            updateConcert.executeBatch();
+        }
+    }
+
+    /*
+     * Helper method to discard any statements batched, but not executed, by
+     * saveChunk(). The statements are cached, so they'd otherwise be 
+     * executed by the next batch.
+     *
+     */
+    private void clearBatches(PooledConnection connection) throws SQLException {
+        connection.prepareStatement(SQL_INSERT_PERFORMER).clearBatch();
+        connection.prepareStatement(SQL_UPDATE_PERFORMER).clearBatch();
+        connection.prepareStatement(SQL_INSERT_CONCERT).clearBatch();
+        connection.prepareStatement(SQL_UPDATE_CONCERT).clearBatch();
     }
 
     /*
-     * Helper method to generate the next primary key value for the Performer
-     * table.
+     * Helper method to run a query whose columns are those selected by
+     * SQL_SELECT_CONCERTS, setting its parameters to parameters in order,
+     * and read the resulting Concerts. Performers are identity-mapped by ID
+     * while the rows are read, so a Performer that features in several of
+     * the Concerts is represented by one Performer object.
      *
      */
-    private long getNextPrimaryKeyForPerformer() throws SQLException {
-        Statement statement = _jdbcConnection.createStatement();
-        ResultSet rs = statement.executeQuery(SQL_GET_LARGEST_PRIMARY_KEY_VALUE_FOR_PERFORMER);
-        rs.next();
-        long key = rs.getLong(1);
+    private List<Concert> selectConcerts(String sql, String error, Object... parameters) throws DAOException {
+        try(PooledConnection connection = _pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            for(int i = 0; i < parameters.length; i++) {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
 
-        return key + 1;
+            List<Concert> concerts = new ArrayList<>();
+            Map<Long, Performer> performers = new HashMap<>();
+            try(ResultSet rs = preparedStatement.executeQuery()) {
+                while(rs.next()) {
+                    concerts.add(readConcert(rs, performers));
+                }
+            }
+            return concerts;
+        } catch(SQLException e) {
+            _logger.debug(error, e);
+            throw new DAOException(error);
+        }
+    }
+
+    /*
+     * Helper method to create a Concert from the current row of a ResultSet
+     * whose columns are those selected by SQL_SELECT_CONCERTS. Where
+     * performers already contains the row's Performer, that Performer object
+     * is used; otherwise a Performer is created and added to performers.
+     *
+     */
+    private Concert readConcert(ResultSet rs, Map<Long, Performer> performers) throws SQLException {
+        Long performerId = rs.getLong(4);
+        Performer performer = performers.get(performerId);
+        if(performer == null) {
+            performer = new Performer(performerId, rs.getString(5),
+                    rs.getString(6), Genre.valueOf(rs.getString(7)));
+            performer.markClean();
+            performers.put(performerId, performer);
+        }
+        Concert concert = new Concert(rs.getLong(1), rs.getString(2),
+                new LocalDateTime(rs.getTimestamp(3)), performer);
+        concert.markClean();
+        return concert;
+    }
+
+    /*
+     * Helper method to update some columns of the row of table whose ID is
+     * id. columns maps the names of the columns to their new values.
+     *
+     */
+    private void updateColumns(PooledConnection connection, String table,
+                               Map<String, Object> columns, long id) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        String separator = "";
+        for(String column : columns.keySet()) {
+            sql.append(separator).append(column).append(" = ?");
+            separator = ", ";
+        }
+        sql.append(" WHERE ID = ?");
+
+        PreparedStatement preparedStatement = connection.prepareStatement(sql.toString());
+        int index = 1;
+        for(Object value : columns.values()) {
+            preparedStatement.setObject(index++, value);
+        }
+        preparedStatement.setLong(index, id);
+        preparedStatement.executeUpdate();
+    }
+
+    /*
+     * Spliterator that reads Concerts from a ResultSet, row by row, as they
+     * are consumed.
+     *
+     */
+    private class ConcertSpliterator extends Spliterators.AbstractSpliterator<Concert> {
+        private final ResultSet _rs;
+        private final Map<Long, Performer> _performers = new HashMap<>();
+
+        ConcertSpliterator(ResultSet rs) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            _rs = rs;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Concert> action) {
+            try {
+                if(!_rs.next()) {
+                    return false;
+                }
+                action.accept(readConcert(_rs, _performers));
+                return true;
+            } catch(SQLException e) {
+                _logger.debug(ERROR_STREAMING_CONCERTS, e);
+                throw new UncheckedDAOException(new DAOException(ERROR_STREAMING_CONCERTS));
+            }
+        }
     }
 
 }
@@ -0,0 +1,110 @@
+package nz.ac.auckland.concert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Allocates primary key values for a table from a database sequence, using a
+ * hi/lo scheme: each value obtained from the sequence reserves a block of
+ * keys, which are then handed out without further queries.
+ *
+ * The block size is the sequence's increment, so the sequence's values are
+ * the first keys of successive blocks and blocks never overlap, whether they
+ * are reserved by one KeyAllocator or by several (e.g. in different
+ * processes). Because sequence values aren't transactional, a key is never
+ * reused even if the transaction that inserts it is rolled back; keys that
+ * are reserved but not used leave gaps.
+ *
+ * Where the sequence doesn't exist, it is created to start after the largest
+ * key in the table, with an increment of DEFAULT_BLOCK_SIZE.
+ *
+ * A KeyAllocator is safe for concurrent use.
+ *
+ */
+public class KeyAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private static final String SQL_SELECT_SEQUENCE_INCREMENT =
+            "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?";
+
+    private static Logger _logger = LoggerFactory
+            .getLogger(KeyAllocator.class);
+
+    private final String _sequence;
+    private final String _table;
+
+    // The next key to hand out, and the end (exclusive) of its block.
+    private long _next;
+    private long _limit;
+
+    // The sequence's increment, or 0 if it hasn't been looked up.
+    private long _blockSize;
+
+    /**
+     * Creates a KeyAllocator.
+     *
+     * @param sequence the name of the sequence.
+     * @param table the name of the table, whose primary key column is ID.
+     */
+    public KeyAllocator(String sequence, String table) {
+        _sequence = sequence;
+        _table = table;
+    }
+
+    /**
+     * Returns a new key, reserving a block of keys using connection if the
+     * current block has been used up.
+     */
+    public synchronized long nextKey(PooledConnection connection) throws SQLException {
+        if(_next == _limit) {
+            reserveBlock(connection);
+        }
+        return _next++;
+    }
+
+    private void reserveBlock(PooledConnection connection) throws SQLException {
+        if(_blockSize == 0) {
+            _blockSize = findBlockSize(connection);
+        }
+        PreparedStatement statement = connection.prepareStatement("SELECT NEXT VALUE FOR " + _sequence);
+        try(ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            _next = rs.getLong(1);
+            _limit = _next + _blockSize;
+        }
+    }
+
+    /*
+     * Returns the sequence's increment, creating the sequence if necessary.
+     *
+     */
+    private long findBlockSize(PooledConnection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(SQL_SELECT_SEQUENCE_INCREMENT);
+        statement.setString(1, _sequence);
+        try(ResultSet rs = statement.executeQuery()) {
+            if(rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+
+        long start;
+        statement = connection.prepareStatement("SELECT COALESCE(MAX(ID), 0) + 1 FROM " + _table);
+        try(ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            start = rs.getLong(1);
+        }
+        _logger.debug("Creating sequence " + _sequence + " starting at " + start);
+        statement = connection.prepareStatement("CREATE SEQUENCE IF NOT EXISTS " +
+                _sequence + " START WITH " + start + " INCREMENT BY " + DEFAULT_BLOCK_SIZE);
+        statement.executeUpdate();
+
+        // Another process may have created the sequence first, so use the
+        // increment it was actually created with.
+        return findBlockSize(connection);
+    }
+}
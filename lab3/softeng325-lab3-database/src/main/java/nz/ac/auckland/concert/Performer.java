@@ -1,5 +1,7 @@
 package nz.ac.auckland.concert;
 
+import java.util.Objects;
+
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
@@ -8,6 +10,10 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  * Performer object has an ID (a database primary key value), a name, the name 
  * of an image file, and a genre.
  *
+ * A Performer also remembers the state it had when it was last read from or
+ * written to the database, so that a DAO can tell which of its properties
+ * have changed since and write only those.
+ *
  */
 public class Performer {
 	
@@ -16,6 +22,12 @@ public class Performer {
 	private String _s3ImageUri;
 	private Genre _genre;
 	
+	// State last read from or written to the database.
+	private boolean _persistent;
+	private String _persistentName;
+	private String _persistentS3ImageUri;
+	private Genre _persistentGenre;
+	
 	public Performer(Long id, String name, String s3ImageUri, Genre genre) {
 		_id = id;
 		_name = name;
@@ -59,6 +71,37 @@ public class Performer {
 		_genre = genre;
 	}
 	
+	/**
+	 * Records the Performer's current state as the state held in the 
+	 * database. Called by DAOs after reading or writing the Performer.
+	 */
+	void markClean() {
+		_persistent = true;
+		_persistentName = _name;
+		_persistentS3ImageUri = _s3ImageUri;
+		_persistentGenre = _genre;
+	}
+	
+	/**
+	 * Returns true unless the Performer's state is known to match the 
+	 * database's.
+	 */
+	boolean isDirty() {
+		return isNameDirty() || isS3ImageUriDirty() || isGenreDirty();
+	}
+	
+	boolean isNameDirty() {
+		return !_persistent || !Objects.equals(_name, _persistentName);
+	}
+	
+	boolean isS3ImageUriDirty() {
+		return !_persistent || !Objects.equals(_s3ImageUri, _persistentS3ImageUri);
+	}
+	
+	boolean isGenreDirty() {
+		return !_persistent || _genre != _persistentGenre;
+	}
+	
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
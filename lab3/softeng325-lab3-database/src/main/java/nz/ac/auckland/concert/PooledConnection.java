@@ -0,0 +1,144 @@
+package nz.ac.auckland.concert;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JDBC connection lent out by a ConnectionPool. Closing a PooledConnection
+ * returns its connection to the pool rather than closing it.
+ *
+ * A PooledConnection also caches the PreparedStatements created for its
+ * connection, keyed by SQL, so that a statement executed repeatedly over the
+ * life of the connection is parsed once. The cache holds at most
+ * MAX_CACHED_STATEMENTS statements; the least recently used statement is 
+ * closed to make room for another.
+ *
+ * A PooledConnection is used by one thread at a time: the thread that
+ * borrowed it, until it's closed. Each loan of a connection is a new
+ * PooledConnection (sharing the connection's statement cache), and closing
+ * a PooledConnection more than once has no further effect, so a connection
+ * can't be returned to the pool twice, even through a PooledConnection left
+ * over from an earlier loan.
+ *
+ */
+public class PooledConnection implements AutoCloseable {
+
+    // Maximum number of PreparedStatements cached for a connection.
+    static final int MAX_CACHED_STATEMENTS = 32;
+
+    private static Logger _logger = LoggerFactory
+            .getLogger(PooledConnection.class);
+
+    private final ConnectionPool _pool;
+    private final Connection _connection;
+    private long _lastReturned;
+
+    // Set when the PooledConnection is closed.
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+
+    // PreparedStatements keyed by SQL, least recently used first. Shared by
+    // the PooledConnections for successive loans of the connection.
+    private final Map<String, PreparedStatement> _statements;
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this(pool, connection, new StatementCache());
+    }
+
+    /*
+     * Creates a PooledConnection for a new loan of a returned connection.
+     *
+     */
+    PooledConnection(PooledConnection returned) {
+        this(returned._pool, returned._connection, returned._statements);
+        _lastReturned = returned._lastReturned;
+    }
+
+    private PooledConnection(ConnectionPool pool, Connection connection,
+                             Map<String, PreparedStatement> statements) {
+        _pool = pool;
+        _connection = connection;
+        _statements = statements;
+        _lastReturned = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the underlying JDBC connection. The connection mustn't be used
+     * once the PooledConnection has been closed.
+     */
+    public Connection getConnection() {
+        return _connection;
+    }
+
+    /**
+     * Returns a PreparedStatement for some SQL, preparing it only if there
+     * isn't one cached for the connection. The statement's parameters are 
+     * cleared. The statement belongs to the connection, so the caller 
+     * mustn't close it - only the ResultSets it produces - or use it once 
+     * the PooledConnection has been closed.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = _statements.get(sql);
+        if(statement == null || statement.isClosed()) {
+            statement = _connection.prepareStatement(sql);
+            _statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Returns the connection to its pool, unless it has already been
+     * returned.
+     */
+    @Override
+    public void close() {
+        if(_closed.compareAndSet(false, true)) {
+            _pool.release(this);
+        }
+    }
+
+    int getCachedStatementCount() {
+        return _statements.size();
+    }
+
+    long getLastReturned() {
+        return _lastReturned;
+    }
+
+    void setLastReturned(long lastReturned) {
+        _lastReturned = lastReturned;
+    }
+
+    /*
+     * Cache of PreparedStatements, holding at most MAX_CACHED_STATEMENTS and
+     * closing the least recently used to make room for another.
+     *
+     */
+    private static class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+
+        StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if(size() <= MAX_CACHED_STATEMENTS) {
+                return false;
+            }
+            try {
+                eldest.getValue().close();
+            } catch(SQLException e) {
+                _logger.debug("Unable to close statement", e);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package nz.ac.auckland.concert;
+
+/**
+ * Wraps a DAOException where it can't be thrown directly, e.g. when a
+ * Concert Stream fails part way through being consumed.
+ *
+ */
+public class UncheckedDAOException extends RuntimeException {
+
+	public UncheckedDAOException(DAOException cause) {
+		super(cause.getMessage(), cause);
+	}
+	
+	@Override
+	public DAOException getCause() {
+		return (DAOException)super.getCause();
+	}
+}
@@ -0,0 +1,268 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests AsyncConcertDAO, using a JDBCConcertDAO whose getById() calls can
+ * be held up to observe coalescing and backpressure.
+ *
+ */
+public class AsyncConcertDAOTest {
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private BlockingConcertDAO _blockingDAO;
+	private AsyncConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_blockingDAO = new BlockingConcertDAO(file);
+		_dao = new AsyncConcertDAO(_blockingDAO);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_blockingDAO.release();
+		_dao.close();
+	}
+
+	@Test
+	public void composeCalls() throws Exception {
+		_blockingDAO.release();
+
+		// Retrieve Ed Sheeran, then save a new Concert featuring him and
+		// retrieve all Concerts.
+		Concert garbage = new Concert("My Music is Dreadfull", new LocalDateTime(2017, 12, 1, 16, 0), null);
+		List<Concert> concerts = _dao.getById(2)
+				.thenCompose(divideTour -> _dao.save(new Concert(garbage.getTitle(),
+						garbage.getDate(), divideTour.getPerformer())))
+				.thenCompose(ignored -> _dao.getAll())
+				.get(10, TimeUnit.SECONDS);
+
+		assertEquals(23, concerts.size());
+		assertTrue(concerts.contains(garbage));
+	}
+
+	@Test
+	public void callsAfterCloseAreRejected() throws Exception {
+		_dao.close();
+
+		CompletableFuture<List<Concert>> future = _dao.getAll();
+		assertTrue(future.isCompletedExceptionally());
+	}
+
+	@Test
+	public void failedCallCompletesExceptionally() throws Exception {
+		// Close the underlying DAO, so that calls to it fail.
+		_blockingDAO.close();
+
+		try {
+			_dao.getAll().get(10, TimeUnit.SECONDS);
+			fail();
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof DAOException);
+		}
+	}
+
+	@Test
+	public void concurrentGetByIdCallsAreCoalesced() throws Exception {
+		List<CompletableFuture<Concert>> futures = new ArrayList<CompletableFuture<Concert>>();
+		for(int i = 0; i < 10; i++) {
+			futures.add(_dao.getById(1));
+		}
+		_blockingDAO.release();
+
+		Concert first = futures.get(0).get(10, TimeUnit.SECONDS);
+		for(CompletableFuture<Concert> future : futures.subList(1, futures.size())) {
+			Concert concert = future.get(10, TimeUnit.SECONDS);
+			assertEquals(first, concert);
+			assertNotSame(first, concert);
+			assertNotSame(first.getPerformer(), concert.getPerformer());
+		}
+		assertEquals(1, _blockingDAO.getCalls());
+		assertEquals(9, _dao.getCoalescedCount());
+
+		// Once the call has completed, a new call queries again.
+		_dao.getById(1).get(10, TimeUnit.SECONDS);
+		assertEquals(2, _blockingDAO.getCalls());
+	}
+
+	@Test
+	public void getByIdAfterSaveSeesTheChange() throws Exception {
+		// Start a query for Concert 11, which is held up.
+		CompletableFuture<Concert> before = _dao.getById(11);
+
+		// Change the Concert and save it.
+		Concert dangerousWoman = null;
+		for(Concert concert : _dao.getAll().get(10, TimeUnit.SECONDS)) {
+			if(concert.getId() == 11) {
+				dangerousWoman = concert;
+			}
+		}
+		dangerousWoman.setTitle("Dangerous Woman Tour");
+		_dao.save(dangerousWoman).get(10, TimeUnit.SECONDS);
+
+		// A query made after the save mustn't share the earlier query.
+		CompletableFuture<Concert> after = _dao.getById(11);
+		_blockingDAO.release();
+
+		assertEquals("Dangerous Woman Tour", after.get(10, TimeUnit.SECONDS).getTitle());
+		before.get(10, TimeUnit.SECONDS);
+		assertEquals(2, _blockingDAO.getCalls());
+		assertEquals(0, _dao.getCoalescedCount());
+	}
+
+	@Test
+	public void getByIdAfterSaveCompletesSeesTheChange() throws Exception {
+		_dao.close();
+		SlowSaveConcertDAO slowDAO = new SlowSaveConcertDAO(new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT));
+		_dao = new AsyncConcertDAO(slowDAO, 4, 10, true);
+
+		Concert dangerousWoman = null;
+		for(Concert concert : _dao.getAll().get(10, TimeUnit.SECONDS)) {
+			if(concert.getId() == 11) {
+				dangerousWoman = concert;
+			}
+		}
+
+		// Start saving a change to Concert 11, which is held up before it
+		// commits.
+		dangerousWoman.setTitle("Dangerous Woman Tour");
+		CompletableFuture<Void> saved = _dao.save(dangerousWoman);
+		assertTrue(slowDAO._saving.await(10, TimeUnit.SECONDS));
+
+		// A query made while the save is running reads the Concert's state
+		// from before the save, and is held up once it has.
+		CompletableFuture<Concert> during = _dao.getById(11);
+		assertTrue(slowDAO._read.await(10, TimeUnit.SECONDS));
+
+		slowDAO._saveReleased.countDown();
+		saved.get(10, TimeUnit.SECONDS);
+
+		// A query made once the save has completed mustn't share the query
+		// made while it was running.
+		CompletableFuture<Concert> after = _dao.getById(11);
+		slowDAO._readReleased.countDown();
+
+		assertEquals("Dangerous Woman Tour", after.get(10, TimeUnit.SECONDS).getTitle());
+		during.get(10, TimeUnit.SECONDS);
+		assertEquals(0, _dao.getCoalescedCount());
+	}
+
+	@Test
+	public void callersBlockWhenQueueIsFull() throws Exception {
+		_dao.close();
+		_blockingDAO = new BlockingConcertDAO(new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT));
+
+		// One thread and room for one queued call.
+		_dao = new AsyncConcertDAO(_blockingDAO, 1, 1, false);
+		_dao.getById(1);
+		_dao.getById(2);
+
+		final CountDownLatch submitted = new CountDownLatch(1);
+		Thread caller = new Thread() {
+			public void run() {
+				_dao.getById(3);
+				submitted.countDown();
+			}
+		};
+		caller.start();
+
+		assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+		_blockingDAO.release();
+		assertTrue(submitted.await(10, TimeUnit.SECONDS));
+	}
+
+	/*
+	 * JDBCConcertDAO whose getById() calls wait until release() is called,
+	 * and are counted.
+	 *
+	 */
+	private static class BlockingConcertDAO extends JDBCConcertDAO {
+		private final CountDownLatch _released = new CountDownLatch(1);
+		private final AtomicInteger _calls = new AtomicInteger();
+
+		BlockingConcertDAO(File file) throws DAOException {
+			super(file);
+		}
+
+		@Override
+		public Concert getById(long id) throws DAOException {
+			_calls.incrementAndGet();
+			try {
+				_released.await();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getById(id);
+		}
+
+		void release() {
+			_released.countDown();
+		}
+
+		int getCalls() {
+			return _calls.get();
+		}
+	}
+
+	/*
+	 * JDBCConcertDAO whose save() calls wait, before saving, until
+	 * _saveReleased is counted down, and whose getById() calls wait, after
+	 * reading, until _readReleased is counted down.
+	 *
+	 */
+	private static class SlowSaveConcertDAO extends JDBCConcertDAO {
+		private final CountDownLatch _saving = new CountDownLatch(1);
+		private final CountDownLatch _saveReleased = new CountDownLatch(1);
+		private final CountDownLatch _read = new CountDownLatch(1);
+		private final CountDownLatch _readReleased = new CountDownLatch(1);
+
+		SlowSaveConcertDAO(File file) throws DAOException {
+			super(file);
+		}
+
+		@Override
+		public void save(Concert concert) throws DAOException {
+			_saving.countDown();
+			await(_saveReleased);
+			super.save(concert);
+		}
+
+		@Override
+		public Concert getById(long id) throws DAOException {
+			Concert concert = super.getById(id);
+			_read.countDown();
+			await(_readReleased);
+			return concert;
+		}
+
+		private static void await(CountDownLatch latch) {
+			try {
+				latch.await();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.List;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs ConcertDAOTest's tests against a CachingConcertDAO, and tests the
+ * cache's hits, expiry and invalidation.
+ *
+ */
+public class CachingConcertDAOTest extends ConcertDAOTest {
+
+	private static Logger _logger = LoggerFactory.getLogger(CachingConcertDAOTest.class);
+
+	private static final long TTL_MILLIS = 200;
+
+	@Override
+	protected ConcertDAO createDAO(File file) throws DAOException {
+		return new CachingConcertDAO(new JDBCConcertDAO(file), 10, TTL_MILLIS);
+	}
+
+	@Test
+	public void repeatedQueriesHitTheCache() throws DAOException {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		Concert concert1 = dao.getById(1);
+		Concert concert2 = dao.getById(1);
+		Concert concert3 = dao.getById(1);
+
+		assertEquals(1, dao.getMissCount());
+		assertEquals(2, dao.getHitCount());
+		assertEquals(2.0 / 3, dao.getHitRatio(), 0.001);
+
+		// Each call returns its own objects.
+		assertEquals(concert1, concert3);
+		assertNotSame(concert2, concert3);
+		assertNotSame(concert2.getPerformer(), concert3.getPerformer());
+		assertEquals(concert1.getPerformer().getId(), concert3.getPerformer().getId());
+		assertEquals(concert1.getDate(), concert3.getDate());
+
+		_logger.info("Average load time: " + dao.getAverageLoadNanos() / 1000 + "us");
+	}
+
+	@Test
+	public void getAllPopulatesTheCache() throws DAOException {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		// The cache holds 10 Concerts, so only the last Concerts returned
+		// remain cached.
+		List<Concert> concerts = dao.getAll();
+		dao.getById(concerts.get(concerts.size() - 1).getId());
+		dao.getById(concerts.get(concerts.size() - 2).getId());
+
+		assertEquals(0, dao.getMissCount());
+		assertEquals(2, dao.getHitCount());
+	}
+
+	@Test
+	public void entriesExpire() throws Exception {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		dao.getById(1);
+		Thread.sleep(TTL_MILLIS + 50);
+		dao.getById(1);
+
+		assertEquals(2, dao.getMissCount());
+		assertEquals(0, dao.getHitCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() throws DAOException {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		// The cache holds 10 Concerts.
+		for(long id = 1; id <= 11; id++) {
+			dao.getById(id);
+		}
+		dao.getById(11);
+		dao.getById(1);
+
+		assertEquals(12, dao.getMissCount());
+		assertEquals(1, dao.getHitCount());
+	}
+
+	@Test
+	public void saveInvalidatesConcertAndPerformer() throws DAOException {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		// Change both Concert 2 ("Divide Tour") and its Performer.
+		Concert divideTour = dao.getById(2);
+		divideTour.setTitle("Divide Tour 2018");
+		divideTour.getPerformer().setName("Ed");
+		dao.save(divideTour);
+
+		Concert concert = dao.getById(2);
+		assertEquals("Divide Tour 2018", concert.getTitle());
+		assertEquals("Ed", concert.getPerformer().getName());
+		assertEquals(2, dao.getMissCount());
+
+		// A new Concert is cached once it's loaded.
+		Concert newConcert = new Concert("Tour", new LocalDateTime(2018, 1, 1, 20, 0), concert.getPerformer());
+		dao.save(newConcert);
+		dao.getById(newConcert.getId());
+		dao.getById(newConcert.getId());
+		assertEquals(3, dao.getMissCount());
+		assertEquals(1, dao.getHitCount());
+	}
+
+	@Test
+	public void deleteInvalidatesConcert() throws DAOException {
+		CachingConcertDAO dao = (CachingConcertDAO)_dao;
+
+		Concert evolve = dao.getById(18);
+		dao.deleteConcert(evolve);
+
+		assertNull(dao.getById(18));
+	}
+}
@@ -0,0 +1,72 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks JDBCConcertDAO's saveAll() method against saving the same 
+ * Concerts one at a time with save(). Run with mvn test -Pbenchmark.
+ *
+ */
+public class ConcertDAOBatchBenchmark {
+
+	private static Logger _logger = LoggerFactory.getLogger(ConcertDAOBatchBenchmark.class);
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int CONCERTS = 22;
+	private static final int BENCHMARK_CONCERTS = 2000;
+
+	private JDBCConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_dao.close();
+	}
+
+	@Test
+	public void benchmarkSaveAllAgainstSave() throws DAOException {
+		Performer performer = _dao.getById(1).getPerformer();
+
+		List<Concert> concerts = createConcerts(performer, "Save ");
+		long start = System.nanoTime();
+		for(Concert concert : concerts) {
+			_dao.save(concert);
+		}
+		long saveElapsed = System.nanoTime() - start;
+
+		concerts = createConcerts(performer, "SaveAll ");
+		start = System.nanoTime();
+		_dao.saveAll(concerts);
+		long saveAllElapsed = System.nanoTime() - start;
+
+		assertEquals(CONCERTS + 2 * BENCHMARK_CONCERTS, _dao.getAll().size());
+		_logger.info(BENCHMARK_CONCERTS + " Concerts: save() " + saveElapsed / 1000000 +
+				"ms, saveAll() " + saveAllElapsed / 1000000 + "ms");
+	}
+
+	private List<Concert> createConcerts(Performer performer, String prefix) {
+		List<Concert> concerts = new ArrayList<Concert>();
+		for(int i = 0; i < BENCHMARK_CONCERTS; i++) {
+			concerts.add(new Concert(prefix + i, new LocalDateTime(2017, 1, 1, 20, 0).plusDays(i), performer));
+		}
+		return concerts;
+	}
+}
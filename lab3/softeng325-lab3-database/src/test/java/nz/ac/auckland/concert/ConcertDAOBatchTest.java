@@ -0,0 +1,148 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests JDBCConcertDAO's saveAll() method. It's compared with saving the
+ * same Concerts one at a time with save() by ConcertDAOBatchBenchmark.
+ *
+ */
+public class ConcertDAOBatchTest {
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int CONCERTS = 22;
+
+	private JDBCConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_dao.close();
+	}
+
+	@Test
+	public void saveAllConcerts() throws DAOException {
+		Performer newPerformer = new Performer("Bastille", "bastille.jpg", Genre.Rock);
+		Performer existingPerformer = _dao.getById(1).getPerformer();
+		existingPerformer.setName("P!NK");
+
+		List<Concert> concerts = new ArrayList<Concert>();
+		for(int i = 0; i < 5; i++) {
+			concerts.add(new Concert("Bastille " + i, new LocalDateTime(2017, 1, 1 + i, 20, 0), newPerformer));
+		}
+		Concert updated = _dao.getById(2);
+		updated.setTitle("Updated");
+		concerts.add(updated);
+		concerts.add(new Concert("P!NK", new LocalDateTime(2017, 2, 1, 20, 0), existingPerformer));
+
+		// Use chunks smaller than the collection, so that the shared
+		// Performer appears in several chunks.
+		_dao.saveAll(concerts, 3);
+
+		List<Concert> all = _dao.getAll();
+		assertEquals(CONCERTS + 6, all.size());
+		for(Concert concert : concerts) {
+			assertNotNull(concert.getId());
+			Concert stored = _dao.getById(concert.getId());
+			assertEquals(concert, stored);
+			assertEquals(concert.getPerformer().getId(), stored.getPerformer().getId());
+		}
+		assertEquals("Updated", _dao.getById(2).getTitle());
+		assertEquals("P!NK", _dao.getById(1).getPerformer().getName());
+
+		// The shared Performer was inserted once.
+		Performer bastille = null;
+		for(Concert concert : all) {
+			if(concert.getPerformer().getName().equals("Bastille")) {
+				if(bastille == null) {
+					bastille = concert.getPerformer();
+				}
+				assertSame(bastille, concert.getPerformer());
+			}
+		}
+		assertEquals(newPerformer.getId(), bastille.getId());
+	}
+
+	@Test
+	public void saveAllSkipsUnchangedConcerts() throws DAOException {
+		List<Concert> concerts = _dao.getAll();
+
+		// Change Concert 2 and its Performer through another copy.
+		Concert divideTour = _dao.getById(2);
+		divideTour.setTitle("Divide Tour 2018");
+		divideTour.getPerformer().setName("Ed");
+		_dao.save(divideTour);
+
+		// Save all Concerts, having changed only Concert 1.
+		Concert deathOfABachelor = null;
+		for(Concert concert : concerts) {
+			if(concert.getId() == 1) {
+				deathOfABachelor = concert;
+			}
+		}
+		deathOfABachelor.setTitle("Death of a Bachelor");
+		_dao.saveAll(concerts);
+
+		// The stale copy of Concert 2 wasn't written.
+		assertEquals("Divide Tour 2018", _dao.getById(2).getTitle());
+		assertEquals("Ed", _dao.getById(2).getPerformer().getName());
+		assertEquals("Death of a Bachelor", _dao.getById(1).getTitle());
+	}
+
+	@Test
+	public void failedChunkIsRolledBack() throws DAOException {
+		Performer performer = new Performer("Bastille", "bastille.jpg", Genre.Rock);
+		List<Concert> concerts = new ArrayList<Concert>();
+		for(int i = 0; i < 4; i++) {
+			concerts.add(new Concert("Bastille " + i, new LocalDateTime(2017, 1, 1 + i, 20, 0), performer));
+		}
+		// The Concert table's TITLE column holds at most 255 characters.
+		StringBuilder title = new StringBuilder();
+		for(int i = 0; i < 256; i++) {
+			title.append('x');
+		}
+		Performer other = new Performer("Sia", "sia.jpg", Genre.Pop);
+		concerts.add(new Concert("Sia", new LocalDateTime(2017, 3, 1, 20, 0), other));
+		concerts.add(new Concert(title.toString(), new LocalDateTime(2017, 3, 2, 20, 0), other));
+
+		try {
+			_dao.saveAll(concerts, 4);
+			fail();
+		} catch(DAOException e) {
+			// Expected.
+		}
+
+		// The first chunk is persisted, the second isn't.
+		assertEquals(CONCERTS + 4, _dao.getAll().size());
+		assertNotNull(performer.getId());
+		assertNull(other.getId());
+		assertNull(concerts.get(4).getId());
+		assertNull(concerts.get(5).getId());
+
+		// The DAO remains usable, with nothing left over from the failed
+		// batch.
+		concerts.get(5).setTitle("Sia again");
+		_dao.saveAll(concerts.subList(4, 6));
+		assertEquals(CONCERTS + 6, _dao.getAll().size());
+	}
+}
@@ -0,0 +1,105 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Multi-threaded benchmark of JDBCConcertDAO. Each thread repeatedly 
+ * retrieves a Concert by ID and, for one operation in OPERATIONS_PER_SAVE,
+ * saves it (updating the Concert and Performer rows). Throughput is logged 
+ * for increasing numbers of threads sharing one DAO. Run with 
+ * mvn test -Pbenchmark.
+ *
+ */
+public class ConcertDAOConcurrencyBenchmark {
+
+	private static Logger _logger = LoggerFactory.getLogger(ConcertDAOConcurrencyBenchmark.class);
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int CONCERTS = 22;
+	private static final int OPERATIONS_PER_THREAD = 500;
+	private static final int OPERATIONS_PER_SAVE = 5;
+
+	private JDBCConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_dao.close();
+	}
+
+	@Test
+	public void benchmarkSaveAndGetById() throws Exception {
+		// Warm up.
+		run(1);
+
+		for(int threads = 1; threads <= _dao.getPoolSize(); threads *= 2) {
+			long start = System.nanoTime();
+			int operations = run(threads);
+			long elapsed = System.nanoTime() - start;
+
+			assertEquals(threads * OPERATIONS_PER_THREAD, operations);
+			_logger.info(threads + " thread(s): " + operations + " operations in " +
+					elapsed / 1000000 + "ms (" + 
+					(long)(operations * 1e9 / elapsed) + " operations/s)");
+		}
+		assertEquals(CONCERTS, _dao.getAll().size());
+	}
+
+	/*
+	 * Runs OPERATIONS_PER_THREAD operations on each of a number of threads, 
+	 * returning the total number of operations completed.
+	 */
+	private int run(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for(int i = 0; i < threads; i++) {
+				final Random random = new Random(i);
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws DAOException {
+						for(int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+							Concert concert = _dao.getById(1 + random.nextInt(CONCERTS));
+							assertNotNull(concert);
+							if(j % OPERATIONS_PER_SAVE == 0) {
+								concert.setDate(concert.getDate().plusMinutes(1));
+								_dao.save(concert);
+							}
+						}
+						return OPERATIONS_PER_THREAD;
+					}
+				}));
+			}
+			int operations = 0;
+			for(Future<Integer> result : results) {
+				operations += result.get();
+			}
+			return operations;
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
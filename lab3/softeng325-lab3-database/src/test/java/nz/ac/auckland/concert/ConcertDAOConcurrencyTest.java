@@ -0,0 +1,80 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests JDBCConcertDAO with several threads sharing one DAO. Its throughput
+ * is measured by ConcertDAOConcurrencyBenchmark.
+ *
+ */
+public class ConcertDAOConcurrencyTest {
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int CONCERTS = 22;
+
+	private JDBCConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_dao.close();
+	}
+
+	@Test
+	public void concurrentInsertsAreGivenDistinctKeys() throws Exception {
+		final int threads = _dao.getPoolSize();
+		final int inserts = 100;
+		final Performer performer = _dao.getById(1).getPerformer();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Long>>> results = new ArrayList<>();
+			for(int i = 0; i < threads; i++) {
+				final int thread = i;
+				results.add(executor.submit(new Callable<List<Long>>() {
+					@Override
+					public List<Long> call() throws DAOException {
+						List<Long> keys = new ArrayList<>();
+						for(int j = 0; j < inserts; j++) {
+							Concert concert = new Concert("Concert " + thread + "-" + j,
+									new LocalDateTime(2018, 1, 1, 20, 0), performer);
+							_dao.save(concert);
+							keys.add(concert.getId());
+						}
+						return keys;
+					}
+				}));
+			}
+			Set<Long> keys = new HashSet<>();
+			for(Future<List<Long>> result : results) {
+				keys.addAll(result.get());
+			}
+			assertEquals(threads * inserts, keys.size());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(CONCERTS + threads * inserts, _dao.getAll().size());
+	}
+}
@@ -0,0 +1,107 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks JDBCConcertDAO's filtered queries against tables of increasing
+ * size. Each query selects the same Concerts whatever the size of the table,
+ * so with the indexes created by db-init.sql its time should grow much more
+ * slowly than the table, unlike filtering the result of getAll(). Run with
+ * mvn test -Pbenchmark; ConcertDAOQueryTest checks that the indexes are used.
+ *
+ */
+public class ConcertDAOQueryBenchmark {
+
+	private static Logger _logger = LoggerFactory.getLogger(ConcertDAOQueryBenchmark.class);
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int[] TABLE_SIZES = {1000, 10000, 100000};
+	private static final int QUERIES = 200;
+
+	// The range of dates of the Concerts added for the benchmark, of which
+	// RANGE_CONCERTS are selected by the date query.
+	private static final LocalDateTime START = new LocalDateTime(2020, 1, 1, 0, 0);
+	private static final int RANGE_CONCERTS = 20;
+
+	@Test
+	public void benchmarkFilteredQueries() throws DAOException {
+		for(int size : TABLE_SIZES) {
+			File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+			JDBCConcertDAO dao = new JDBCConcertDAO(file);
+			try {
+				populate(dao, size);
+				benchmark(dao, size);
+			} finally {
+				dao.close();
+			}
+		}
+	}
+
+	/*
+	 * Adds Concerts, all by one Pop Performer and an hour apart, so that the
+	 * Concert table holds size rows.
+	 *
+	 */
+	private void populate(JDBCConcertDAO dao, int size) throws DAOException {
+		Performer performer = dao.getById(1).getPerformer();
+		List<Concert> concerts = new ArrayList<Concert>();
+		for(int i = dao.getAll().size(); i < size; i++) {
+			concerts.add(new Concert("Concert " + i, START.plusHours(i), performer));
+		}
+		dao.saveAll(concerts);
+	}
+
+	private void benchmark(JDBCConcertDAO dao, int size) throws DAOException {
+		Performer katy = dao.getById(16).getPerformer();
+		LocalDateTime from = START.plusHours(size / 2);
+		LocalDateTime to = from.plusHours(RANGE_CONCERTS);
+
+		long start = System.nanoTime();
+		for(int i = 0; i < QUERIES; i++) {
+			assertEquals(RANGE_CONCERTS, dao.getByDate(from, to).size());
+		}
+		long byDate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < QUERIES; i++) {
+			assertEquals(3, dao.getByGenre(Genre.Metal).size());
+		}
+		long byGenre = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < QUERIES; i++) {
+			assertEquals(2, dao.getByPerformer(katy).size());
+		}
+		long byPerformer = System.nanoTime() - start;
+
+		// For comparison, filter all Concerts in memory.
+		start = System.nanoTime();
+		int count = 0;
+		for(Concert concert : dao.getAll()) {
+			if(concert.getPerformer().getGenre() == Genre.Metal) {
+				count++;
+			}
+		}
+		long scan = System.nanoTime() - start;
+		assertEquals(3, count);
+
+		_logger.info(size + " Concerts: getByDate() " + perQuery(byDate) + "us, getByGenre() " + 
+				perQuery(byGenre) + "us, getByPerformer() " + perQuery(byPerformer) + 
+				"us, getAll() and filter " + scan / 1000 + "us");
+	}
+
+	private static long perQuery(long nanos) {
+		return nanos / QUERIES / 1000;
+	}
+}
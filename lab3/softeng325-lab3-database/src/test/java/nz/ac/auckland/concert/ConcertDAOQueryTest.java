@@ -0,0 +1,92 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that JDBCConcertDAO's filtered queries use the indexes created by
+ * db-init.sql, by examining the query plans H2 chooses for them. The 
+ * effect of the indexes on query times is measured by 
+ * ConcertDAOQueryBenchmark.
+ *
+ */
+public class ConcertDAOQueryTest {
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+	private static final String DATABASE_URL = "jdbc:h2:~/test;mv_store=false";
+
+	private JDBCConcertDAO _dao;
+	private ConnectionPool _pool;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+		_pool = new ConnectionPool(DATABASE_URL, "sa", "sa", 1, 60000, 1000);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_pool.close();
+		_dao.close();
+	}
+
+	@Test
+	public void getByDateUsesDateIndex() throws SQLException {
+		Timestamp from = new Timestamp(new LocalDateTime(2017, 1, 1, 0, 0).toDate().getTime());
+		Timestamp to = new Timestamp(new LocalDateTime(2018, 1, 1, 0, 0).toDate().getTime());
+		String plan = explain(JDBCConcertDAO.SQL_SELECT_CONCERTS_BY_DATE, from, to);
+
+		assertTrue(plan.contains("CONCERT_DATE_INDEX: DATE >= ?1"));
+		assertFalse(plan.contains("tableScan"));
+	}
+
+	@Test
+	public void getByGenreUsesGenreAndPerformerIndexes() throws SQLException {
+		String plan = explain(JDBCConcertDAO.SQL_SELECT_CONCERTS_BY_GENRE, Genre.Metal.toString());
+
+		// Performers are found by genre, and their Concerts by Performer ID.
+		assertTrue(plan.contains("PERFORMER_GENRE_INDEX: GENRE = ?1"));
+		assertTrue(plan.contains("FK_PERFORMER_ID = P.ID"));
+		assertFalse(plan.contains("tableScan"));
+	}
+
+	@Test
+	public void getByPerformerUsesPerformerIndex() throws SQLException {
+		String plan = explain(JDBCConcertDAO.SQL_SELECT_CONCERTS_BY_PERFORMER, 1L);
+
+		// H2 may choose either of the indexes on FK_PERFORMER_ID: the one
+		// created by db-init.sql, or the one backing the foreign key.
+		assertTrue(plan.contains("FK_PERFORMER_ID = ?1"));
+		assertFalse(plan.contains("tableScan"));
+	}
+
+	/*
+	 * Helper method to return the plan H2 chooses for a query.
+	 *
+	 */
+	private String explain(String sql, Object... params) throws SQLException {
+		try(PooledConnection connection = _pool.borrow();
+				PreparedStatement statement = connection.getConnection().prepareStatement("EXPLAIN " + sql)) {
+			for(int i = 0; i < params.length; i++) {
+				statement.setObject(i + 1, params[i]);
+			}
+			try(ResultSet rs = statement.executeQuery()) {
+				rs.next();
+				return rs.getString(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.joda.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks reading a large number of Concerts with JDBCConcertDAO's 
+ * getAll(), streamAll() and getPage() methods. Run with 
+ * mvn test -Pbenchmark; the methods are tested by ConcertDAOTest.
+ *
+ */
+public class ConcertDAOStreamingBenchmark {
+
+	private static Logger _logger = LoggerFactory.getLogger(ConcertDAOStreamingBenchmark.class);
+
+	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
+	private static final String DB_INIT_SCRIPT = "db-init.sql";
+
+	private static final int CONCERTS = 22;
+	private static final int BENCHMARK_CONCERTS = 20000;
+	private static final int PAGE_SIZE = 500;
+
+	private JDBCConcertDAO _dao;
+
+	@Before
+	public void initialiseDatabase() throws DAOException {
+		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
+		_dao = new JDBCConcertDAO(file);
+
+		Performer performer = _dao.getById(1).getPerformer();
+		List<Concert> concerts = new ArrayList<Concert>();
+		for(int i = 0; i < BENCHMARK_CONCERTS; i++) {
+			concerts.add(new Concert("Concert " + i, new LocalDateTime(2017, 1, 1, 20, 0).plusHours(i), performer));
+		}
+		_dao.saveAll(concerts);
+	}
+
+	@After
+	public void closeDatabase() throws DAOException {
+		_dao.close();
+	}
+
+	@Test
+	public void benchmarkGetAllStreamAllAndGetPage() throws DAOException {
+		int expected = CONCERTS + BENCHMARK_CONCERTS;
+
+		long start = System.nanoTime();
+		assertEquals(expected, _dao.getAll().size());
+		log("getAll()", start);
+
+		start = System.nanoTime();
+		try(Stream<Concert> stream = _dao.streamAll()) {
+			assertEquals(expected, stream.count());
+		}
+		log("streamAll()", start);
+
+		start = System.nanoTime();
+		int count = 0;
+		List<Concert> page = _dao.getPage(null, 0, PAGE_SIZE);
+		while(!page.isEmpty()) {
+			count += page.size();
+			Concert last = page.get(page.size() - 1);
+			page = _dao.getPage(last.getTitle(), last.getId(), PAGE_SIZE);
+		}
+		assertEquals(expected, count);
+		log("getPage() (" + PAGE_SIZE + " per page)", start);
+	}
+
+	private void log(String method, long start) {
+		_logger.info(method + ": " + (CONCERTS + BENCHMARK_CONCERTS) + " Concerts in " + 
+				(System.nanoTime() - start) / 1000000 + "ms");
+	}
+}
@@ -8,8 +8,11 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.joda.time.LocalDateTime;
 import org.junit.After;
@@ -21,12 +24,20 @@ public class ConcertDAOTest {
 	private static final String DB_INIT_SCRIPT_DIRECTORY = "src/test/resources";
 	private static final String DB_INIT_SCRIPT = "db-init.sql";
 	
-	private JDBCConcertDAO _dao;
+	protected ConcertDAO _dao;
 	
 	@Before
 	public void initialiseDatabase() throws DAOException {
 		File file = new File(DB_INIT_SCRIPT_DIRECTORY + "/" + DB_INIT_SCRIPT);
-		_dao = new JDBCConcertDAO(file);
+		_dao = createDAO(file);
+	}
+	
+	/**
+	 * Creates the DAO under test, initialising the database by running the
+	 * specified script.
+	 */
+	protected ConcertDAO createDAO(File file) throws DAOException {
+		return new JDBCConcertDAO(file);
 	}
 	
 	@After
@@ -81,6 +92,112 @@ public class ConcertDAOTest {
 		}
 	}
 	
+	@Test
+	public void streamAllConcerts() {
+		try {
+			List<Concert> concerts;
+			try(Stream<Concert> stream = _dao.streamAll()) {
+				concerts = stream.collect(Collectors.toList());
+			}
+			
+			// The Stream should hold the same Concerts as getAll(), in the 
+			// same order.
+			assertEquals(_dao.getAll(), concerts);
+			
+			// Katy Perry's two Concerts should share a Performer object, as
+			// with getAll().
+			Concert oneLoveManchester = new Concert();
+			oneLoveManchester.setTitle("One Love Manchester");
+			Concert witnessTheTour = new Concert();
+			witnessTheTour.setTitle("Witness: The Tour");
+			assertSame(
+					concerts.get(Collections.binarySearch(concerts, oneLoveManchester)).getPerformer(),
+					concerts.get(Collections.binarySearch(concerts, witnessTheTour)).getPerformer());
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void queryConcertsInPages() {
+		try {
+			// Add a Concert with the same title as an existing one, to check
+			// that Concerts with equal titles aren't skipped or repeated.
+			Concert divideTour = _dao.getById(2);
+			_dao.save(new Concert(divideTour.getTitle(), divideTour.getDate(), divideTour.getPerformer()));
+			
+			List<Concert> all = _dao.getAll();
+			List<Long> expectedIds = new ArrayList<Long>();
+			for(Concert concert : all) {
+				expectedIds.add(concert.getId());
+			}
+			
+			// Page through all 23 Concerts, 5 at a time.
+			List<Long> ids = new ArrayList<Long>();
+			List<Concert> page = _dao.getPage(null, 0, 5);
+			while(!page.isEmpty()) {
+				for(Concert concert : page) {
+					ids.add(concert.getId());
+				}
+				Concert last = page.get(page.size() - 1);
+				page = _dao.getPage(last.getTitle(), last.getId(), 5);
+			}
+			assertEquals(23, ids.size());
+			assertEquals(expectedIds, ids);
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void queryConcertsByDate() {
+		try {
+			// Six Concerts are held in September 2017.
+			List<Concert> concerts = _dao.getByDate(
+					new LocalDateTime(2017, 9, 1, 0, 0), new LocalDateTime(2017, 10, 1, 0, 0));
+			assertEquals(6, concerts.size());
+			assertEquals("24K Magic World Tour", concerts.get(0).getTitle());
+			assertEquals("Witness: The Tour", concerts.get(5).getTitle());
+			
+			// The end of the range is exclusive.
+			concerts = _dao.getByDate(
+					new LocalDateTime(2017, 9, 2, 19, 15), new LocalDateTime(2017, 9, 2, 19, 30));
+			assertEquals(1, concerts.size());
+			assertEquals("One More Light Tour", concerts.get(0).getTitle());
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void queryConcertsByGenre() {
+		try {
+			// BabyMetal and Metallica play three Concerts between them.
+			List<Concert> concerts = _dao.getByGenre(Genre.Metal);
+			assertEquals(3, concerts.size());
+			for(Concert concert : concerts) {
+				assertEquals(Genre.Metal, concert.getPerformer().getGenre());
+			}
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void queryConcertsByPerformer() {
+		try {
+			Performer katy = _dao.getById(16).getPerformer();
+			List<Concert> concerts = _dao.getByPerformer(katy);
+			
+			assertEquals(2, concerts.size());
+			assertEquals("One Love Manchester", concerts.get(0).getTitle());
+			assertEquals("Witness: The Tour", concerts.get(1).getTitle());
+			assertSame(concerts.get(0).getPerformer(), concerts.get(1).getPerformer());
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
 	@Test
 	public void queryConcert() {
 		try {
@@ -179,4 +296,58 @@ public class ConcertDAOTest {
 			fail();
 		}
 	}
+	
+	@Test
+	public void saveWritesOnlyChangedColumns() {
+		try {
+			// Query two copies of Concert 11 ("Dangerous Woman").
+			Concert first = _dao.getById(11);
+			Concert second = _dao.getById(11);
+			
+			// Change different properties of each copy, and save both.
+			LocalDateTime newDate = new LocalDateTime(2017, 8, 17, 18, 30);
+			first.setDate(newDate);
+			first.getPerformer().setS3ImageUri("new_image.jpg");
+			_dao.save(first);
+			
+			second.setTitle("Dangerous Woman Tour");
+			second.getPerformer().setName("Ariana");
+			_dao.save(second);
+			
+			// Check that neither save overwrote the other's changes.
+			Concert concert = _dao.getById(11);
+			assertEquals(newDate, concert.getDate());
+			assertEquals("Dangerous Woman Tour", concert.getTitle());
+			assertEquals("new_image.jpg", concert.getPerformer().getS3ImageUri());
+			assertEquals("Ariana", concert.getPerformer().getName());
+		} catch(DAOException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void saveSkipsUnchangedConcertAndPerformer() {
+		try {
+			Concert unchanged = _dao.getById(11);
+			
+			Concert changed = _dao.getById(11);
+			changed.setTitle("Dangerous Woman Tour");
+			changed.getPerformer().setName("Ariana");
+			_dao.save(changed);
+			
+			// Saving the unchanged copy shouldn't write its stale state.
+			_dao.save(unchanged);
+			
+			Concert concert = _dao.getById(11);
+			assertEquals("Dangerous Woman Tour", concert.getTitle());
+			assertEquals("Ariana", concert.getPerformer().getName());
+			
+			// Once saved, a Concert is only written again if it changes.
+			changed.setTitle("Dangerous Woman");
+			_dao.save(changed);
+			assertEquals("Dangerous Woman", _dao.getById(11).getTitle());
+		} catch(DAOException e) {
+			fail();
+		}
+	}
 }
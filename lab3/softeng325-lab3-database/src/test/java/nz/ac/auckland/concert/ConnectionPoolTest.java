@@ -0,0 +1,139 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+
+	private static final String DATABASE_URL = "jdbc:h2:mem:pooltest";
+
+	private ConnectionPool _pool;
+
+	@Before
+	public void createPool() {
+		_pool = new ConnectionPool(DATABASE_URL, "sa", "sa", 2, 200, 100);
+	}
+
+	@After
+	public void closePool() {
+		_pool.close();
+	}
+
+	@Test
+	public void connectionsAreReused() throws SQLException {
+		Connection first;
+		try(PooledConnection connection = _pool.borrow()) {
+			first = connection.getConnection();
+		}
+		assertEquals(1, _pool.getIdleCount());
+
+		try(PooledConnection connection = _pool.borrow()) {
+			assertSame(first, connection.getConnection());
+		}
+	}
+
+	@Test
+	public void poolIsBounded() throws SQLException {
+		try(PooledConnection first = _pool.borrow();
+			PooledConnection second = _pool.borrow()) {
+			try {
+				_pool.borrow();
+				fail();
+			} catch(SQLException e) {
+				// Expected: both connections are in use.
+			}
+		}
+		assertEquals(2, _pool.getIdleCount());
+	}
+
+	@Test
+	public void closingTwiceReturnsConnectionOnce() throws SQLException {
+		PooledConnection connection = _pool.borrow();
+		connection.close();
+		connection.close();
+
+		assertEquals(1, _pool.getIdleCount());
+		assertEquals(2, _pool.getAvailablePermits());
+
+		// The connection can only be lent to one borrower at a time.
+		try(PooledConnection first = _pool.borrow();
+			PooledConnection second = _pool.borrow()) {
+			assertNotSame(first.getConnection(), second.getConnection());
+			assertEquals(0, _pool.getAvailablePermits());
+
+			// Closing a connection from an earlier loan doesn't return it
+			// again.
+			connection.close();
+			assertEquals(0, _pool.getAvailablePermits());
+		}
+		assertEquals(2, _pool.getAvailablePermits());
+	}
+
+	@Test
+	public void invalidConnectionsAreReplaced() throws SQLException {
+		Connection first;
+		try(PooledConnection connection = _pool.borrow()) {
+			first = connection.getConnection();
+		}
+
+		// Break the idle connection behind the pool's back.
+		first.close();
+
+		try(PooledConnection connection = _pool.borrow()) {
+			assertNotSame(first, connection.getConnection());
+			assertTrue(connection.getConnection().isValid(1));
+		}
+	}
+
+	@Test
+	public void idleConnectionsAreEvicted() throws Exception {
+		Connection first;
+		try(PooledConnection connection = _pool.borrow()) {
+			first = connection.getConnection();
+		}
+		Thread.sleep(300);
+		_pool.evictIdleConnections();
+
+		assertEquals(0, _pool.getIdleCount());
+		assertTrue(first.isClosed());
+	}
+
+	@Test
+	public void statementsAreCachedPerConnection() throws SQLException {
+		PreparedStatement first;
+		try(PooledConnection connection = _pool.borrow()) {
+			first = connection.prepareStatement("SELECT ?");
+			first.setInt(1, 325);
+			try(ResultSet rs = first.executeQuery()) {
+				rs.next();
+				assertEquals(325, rs.getInt(1));
+			}
+		}
+
+		// The connection is reused, along with its statement.
+		try(PooledConnection connection = _pool.borrow()) {
+			assertSame(first, connection.prepareStatement("SELECT ?"));
+
+			// Fill the cache, so that the first statement is evicted.
+			for(int i = 0; i < PooledConnection.MAX_CACHED_STATEMENTS; i++) {
+				connection.prepareStatement("SELECT " + i);
+			}
+			assertEquals(PooledConnection.MAX_CACHED_STATEMENTS, 
+					connection.getCachedStatementCount());
+			assertTrue(first.isClosed());
+			assertNotSame(first, connection.prepareStatement("SELECT ?"));
+		}
+	}
+}
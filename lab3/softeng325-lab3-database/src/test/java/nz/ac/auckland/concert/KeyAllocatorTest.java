@@ -0,0 +1,76 @@
+package nz.ac.auckland.concert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyAllocatorTest {
+
+	private static final String DATABASE_URL = "jdbc:h2:mem:keytest";
+
+	private ConnectionPool _pool;
+	private PooledConnection _connection;
+
+	@Before
+	public void createTable() throws SQLException {
+		_pool = new ConnectionPool(DATABASE_URL, "sa", "sa", 1, 60000, 1000);
+		_connection = _pool.borrow();
+		try(Statement statement = _connection.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE ITEM(ID LONG PRIMARY KEY)");
+			statement.execute("INSERT INTO ITEM VALUES(1),(2),(7)");
+		}
+	}
+
+	@After
+	public void dropTable() throws SQLException {
+		try(Statement statement = _connection.getConnection().createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		_connection.close();
+		_pool.close();
+	}
+
+	@Test
+	public void sequenceIsCreatedAfterLargestKey() throws SQLException {
+		KeyAllocator allocator = new KeyAllocator("ITEM_ID_SEQUENCE", "ITEM");
+		for(long key = 8; key < 8 + 2 * KeyAllocator.DEFAULT_BLOCK_SIZE; key++) {
+			assertEquals(key, allocator.nextKey(_connection));
+		}
+	}
+
+	@Test
+	public void blocksUseSequenceIncrement() throws SQLException {
+		try(Statement statement = _connection.getConnection().createStatement()) {
+			statement.execute("CREATE SEQUENCE ITEM_ID_SEQUENCE START WITH 100 INCREMENT BY 3");
+		}
+		KeyAllocator allocator = new KeyAllocator("ITEM_ID_SEQUENCE", "ITEM");
+		KeyAllocator other = new KeyAllocator("ITEM_ID_SEQUENCE", "ITEM");
+
+		// Each allocator reserves its own blocks of 3 keys.
+		assertEquals(100, allocator.nextKey(_connection));
+		assertEquals(103, other.nextKey(_connection));
+		assertEquals(101, allocator.nextKey(_connection));
+		assertEquals(102, allocator.nextKey(_connection));
+		assertEquals(106, allocator.nextKey(_connection));
+		assertEquals(104, other.nextKey(_connection));
+	}
+
+	@Test
+	public void allocatorsNeverShareKeys() throws SQLException {
+		KeyAllocator allocator = new KeyAllocator("ITEM_ID_SEQUENCE", "ITEM");
+		KeyAllocator other = new KeyAllocator("ITEM_ID_SEQUENCE", "ITEM");
+		Set<Long> keys = new HashSet<>();
+		for(int i = 0; i < 5 * KeyAllocator.DEFAULT_BLOCK_SIZE; i++) {
+			assertTrue(keys.add(allocator.nextKey(_connection)));
+			assertTrue(keys.add(other.nextKey(_connection)));
+		}
+	}
+}
@@ -1,5 +1,7 @@
 DROP TABLE IF EXISTS CONCERT;
 DROP TABLE IF EXISTS PERFORMER;
+DROP SEQUENCE IF EXISTS CONCERT_ID_SEQUENCE;
+DROP SEQUENCE IF EXISTS PERFORMER_ID_SEQUENCE;
 
 CREATE TABLE CONCERT(
 ID              LONG PRIMARY KEY,
@@ -15,6 +17,20 @@ GENRE   VARCHAR(30));
 
 ALTER TABLE CONCERT ADD FOREIGN KEY (FK_PERFORMER_ID) REFERENCES PERFORMER(ID);
 
+-- Primary key values for new rows are allocated in blocks of 50, starting
+-- after the rows inserted below.
+CREATE SEQUENCE CONCERT_ID_SEQUENCE START WITH 23 INCREMENT BY 50;
+CREATE SEQUENCE PERFORMER_ID_SEQUENCE START WITH 21 INCREMENT BY 50;
+
+-- Concerts are retrieved in order of title and ID, and paged through by
+-- title and ID.
+CREATE INDEX CONCERT_TITLE_INDEX ON CONCERT(TITLE, ID);
+
+-- Concerts are queried by date, by Performer and by genre.
+CREATE INDEX CONCERT_DATE_INDEX ON CONCERT(DATE);
+CREATE INDEX CONCERT_PERFORMER_INDEX ON CONCERT(FK_PERFORMER_ID);
+CREATE INDEX PERFORMER_GENRE_INDEX ON PERFORMER(GENRE);
+
 INSERT INTO PERFORMER VALUES(1,'Panic! at the Disco','PanicAtTheDisco.jpg','Pop');
 INSERT INTO PERFORMER VALUES(2,'Ed Sheeran','EdSheeran.jpg','Pop');
 INSERT INTO PERFORMER VALUES(3,'Kendrick Lamar','KendrickLamar.jpg','HipHop');
@@ -99,6 +99,14 @@ public class Address {
 		_zipCode = zipCode;
 	}
 	
+	public GeoPosition getLocation() {
+		return _location;
+	}
+	
+	public void setLocation(GeoPosition location) {
+		_location = location;
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof Address))
@@ -1,14 +1,16 @@
 package nz.ac.auckland.parolee.domain;
 
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -19,6 +21,11 @@ import org.joda.time.format.DateTimeFormatter;
 /** 
  * Class to represent a criminal profile. A profile is essentially a series of
  * convictions.
+ * 
+ * The offences of all convictions are also held as an EnumSet (a single long
+ * bitmask), kept up to date as convictions are added or unmarshalled, so 
+ * asking which offences a profile includes doesn't involve a walk over its 
+ * convictions.
  *
  */
 @XmlRootElement
@@ -28,12 +35,41 @@ public class CriminalProfile {
 	@XmlElement(name="convictions")
 	private Set<Conviction> _convictions;
 	
+	@XmlTransient
+	private Set<Offence> _offences;
+	
+	private static final DateTimeFormatter _formatter = DateTimeFormat.forPattern("MMMM yyyy");
+	
 	public CriminalProfile() {
 		_convictions = new HashSet<Conviction>();
+		_offences = EnumSet.noneOf(Offence.class);
 	}
 	
 	public void addConviction(Conviction conviction) {
 		_convictions.add(conviction);
+		_offences.addAll(conviction.getOffenceTags());
+	}
+	
+	public Set<Conviction> getConvictions() {
+		return Collections.unmodifiableSet(_convictions);
+	}
+	
+	/**
+	 * Returns the offences of all convictions.
+	 */
+	public Set<Offence> getOffences() {
+		return Collections.unmodifiableSet(_offences);
+	}
+	
+	/**
+	 * Called by JAXB once the profile's convictions have been unmarshalled.
+	 */
+	@SuppressWarnings("unused")
+	private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+		_offences.clear();
+		for(Conviction conviction : _convictions) {
+			_offences.addAll(conviction.getOffenceTags());
+		}
 	}
 	
 	@Override
@@ -58,29 +94,23 @@ public class CriminalProfile {
 	
 	@Override
 	public String toString() {
-		Set<Offence> allOffences = new HashSet<Offence>();
 		Set<LocalDate> allConvictionDates = new HashSet<LocalDate>();
 		
 		for(Conviction conviction : _convictions) {
-			for(Offence offence : conviction.getOffenceTags()) {
-				allOffences.add(offence);
-			}
 			allConvictionDates.add(conviction.getDate());
 		}
 		
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("Criminal history: ");
 
-		DateTimeFormatter formatter = DateTimeFormat.forPattern("MMMM yyyy");
-		
 		for(LocalDate date : allConvictionDates) {
-			buffer.append(formatter.print(date));
+			buffer.append(_formatter.print(date));
 			buffer.append(", ");
 		}
 		buffer.delete(buffer.length()-2, buffer.length()-1);
 		
 		buffer.append("\n    Offences: ");
-		for(Offence offence : allOffences) {
+		for(Offence offence : _offences) {
 			buffer.append(offence);
 			buffer.append(", ");
 		}
@@ -122,7 +152,8 @@ public class CriminalProfile {
 				Offence... offenceTags) {
 			_date = convictionDate;
 			_description = description;
-			_offenceTags = new HashSet<Offence>(Arrays.asList(offenceTags));
+			_offenceTags = EnumSet.noneOf(Offence.class);
+			Collections.addAll(_offenceTags, offenceTags);
 		}
 		
 		public Set<Offence> getOffenceTags() {
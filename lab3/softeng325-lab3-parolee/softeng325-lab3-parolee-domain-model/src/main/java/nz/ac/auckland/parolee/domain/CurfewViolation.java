@@ -0,0 +1,92 @@
+package nz.ac.auckland.parolee.domain;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Class to represent a breach of a Parolee's curfew: a Movement, recorded
+ * while the curfew was in effect, that places the Parolee away from their
+ * confinement address. A CurfewViolation stores the Parolee's id, the
+ * Movement and the distance, in metres, between the Movement's position and
+ * the confinement address. CurfewViolation instances are immutable.
+ *
+ */
+@XmlRootElement(name="curfew_violation")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CurfewViolation implements Comparable<CurfewViolation> {
+	
+	@XmlAttribute(name="parolee")
+	private long _paroleeId;
+	
+	@XmlElement(name="movement")
+	private Movement _movement;
+	
+	@XmlElement(name="distance")
+	private double _distance;
+	
+	protected CurfewViolation() {
+		// Required by JAXB for unmarshalling purposes.
+	}
+	
+	public CurfewViolation(long paroleeId, Movement movement, double distance) {
+		_paroleeId = paroleeId;
+		_movement = movement;
+		_distance = distance;
+	}
+	
+	public long getParoleeId() {
+		return _paroleeId;
+	}
+	
+	public Movement getMovement() {
+		return _movement;
+	}
+	
+	public double getDistance() {
+		return _distance;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof CurfewViolation))
+            return false;
+        if (obj == this)
+            return true;
+
+        CurfewViolation rhs = (CurfewViolation) obj;
+        return new EqualsBuilder().
+            append(_paroleeId, rhs._paroleeId).
+            append(_movement, rhs._movement).
+            append(_distance, rhs._distance).
+            isEquals();
+	}
+	
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder(17, 31). 
+	            append(_paroleeId).
+	            append(_movement).
+	            append(_distance).
+	            toHashCode();
+	}
+	
+	/**
+	 * Orders CurfewViolations by the time of their Movements.
+	 */
+	@Override
+	public int compareTo(CurfewViolation violation) {
+		return _movement.compareTo(violation._movement);
+	}
+	
+	@Override
+	public String toString() {
+		return "Curfew violation: [" + _paroleeId + "] " + _movement + 
+				", " + Math.round(_distance) + "m from confinement address";
+	}
+}
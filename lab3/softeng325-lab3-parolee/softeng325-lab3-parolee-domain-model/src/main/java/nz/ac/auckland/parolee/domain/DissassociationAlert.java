@@ -0,0 +1,116 @@
+package nz.ac.auckland.parolee.domain;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Class to represent an alert that two dissassociated Parolees have been 
+ * together. A DissassociationAlert is raised by a Parolee's Movement and 
+ * stores the ids of the Parolee and of the dissassociate, the Parolee's 
+ * Movement, the dissassociate's latest Movement at the time, and the 
+ * distance, in metres, between the two. DissassociationAlert instances are
+ * immutable.
+ *
+ */
+@XmlRootElement(name="dissassociation_alert")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class DissassociationAlert implements Comparable<DissassociationAlert> {
+	
+	@XmlAttribute(name="parolee")
+	private long _paroleeId;
+	
+	@XmlAttribute(name="dissassociate")
+	private long _dissassociateId;
+	
+	@XmlElement(name="movement")
+	private Movement _movement;
+	
+	@XmlElement(name="dissassociate_movement")
+	private Movement _dissassociateMovement;
+	
+	@XmlElement(name="distance")
+	private double _distance;
+	
+	protected DissassociationAlert() {
+		// Required by JAXB for unmarshalling purposes.
+	}
+	
+	public DissassociationAlert(long paroleeId, long dissassociateId,
+			Movement movement, Movement dissassociateMovement, double distance) {
+		_paroleeId = paroleeId;
+		_dissassociateId = dissassociateId;
+		_movement = movement;
+		_dissassociateMovement = dissassociateMovement;
+		_distance = distance;
+	}
+	
+	public long getParoleeId() {
+		return _paroleeId;
+	}
+	
+	public long getDissassociateId() {
+		return _dissassociateId;
+	}
+	
+	public Movement getMovement() {
+		return _movement;
+	}
+	
+	public Movement getDissassociateMovement() {
+		return _dissassociateMovement;
+	}
+	
+	public double getDistance() {
+		return _distance;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof DissassociationAlert))
+            return false;
+        if (obj == this)
+            return true;
+
+        DissassociationAlert rhs = (DissassociationAlert) obj;
+        return new EqualsBuilder().
+            append(_paroleeId, rhs._paroleeId).
+            append(_dissassociateId, rhs._dissassociateId).
+            append(_movement, rhs._movement).
+            append(_dissassociateMovement, rhs._dissassociateMovement).
+            append(_distance, rhs._distance).
+            isEquals();
+	}
+	
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder(17, 31). 
+	            append(_paroleeId).
+	            append(_dissassociateId).
+	            append(_movement).
+	            append(_dissassociateMovement).
+	            append(_distance).
+	            toHashCode();
+	}
+	
+	/**
+	 * Orders DissassociationAlerts by the time of the Movements that raised
+	 * them.
+	 */
+	@Override
+	public int compareTo(DissassociationAlert alert) {
+		return _movement.compareTo(alert._movement);
+	}
+	
+	@Override
+	public String toString() {
+		return "Dissassociation alert: [" + _paroleeId + "] " + _movement + 
+				", " + Math.round(_distance) + "m from [" + _dissassociateId + 
+				"] " + _dissassociateMovement;
+	}
+}
@@ -0,0 +1,345 @@
+package nz.ac.auckland.parolee.domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+
+/**
+ * Time-series store for a Parolee's movements. Movements are held in
+ * ascending timestamp order, so that the common case - a GPS fix that is more
+ * recent than any already recorded - is appended in constant (amortised)
+ * time. A movement that arrives out of order is inserted at the position found
+ * by binary search. Movements with equal timestamps are kept in the order in
+ * which they were added.
+ *
+ * Movements aren't stored as objects. Instead, the history is columnar: a
+ * long[] of timestamps (as milliseconds since the epoch, with the local date
+ * and time interpreted as UTC) and double[]s of latitudes and longitudes,
+ * costing 24 bytes per movement. Movement objects are created on demand by
+ * the List returned by getMovements(). A movement without a GeoPosition is
+ * stored with NaN coordinates.
+ *
+ * A MovementHistory is safe for concurrent use. Additions are serialised,
+ * while readers never block: each addition publishes an immutable snapshot
+ * (the arrays and a size), and the List returned by getMovements() is a view
+ * of the snapshot that was current when it was called. An in-order addition
+ * writes beyond the end of every published snapshot, so it can reuse the
+ * arrays; an out-of-order addition, or one that needs more capacity, copies
+ * them.
+ *
+ */
+public class MovementHistory {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final Snapshot EMPTY = new Snapshot(new long[0],
+			new double[0], new double[0], 0);
+
+	private volatile Snapshot _snapshot = EMPTY;
+
+	/**
+	 * Records a movement.
+	 *
+	 * @throws IllegalArgumentException if the movement has no timestamp.
+	 */
+	public synchronized void add(Movement movement) {
+		if(movement.getTimestamp() == null) {
+			throw new IllegalArgumentException("Movement has no timestamp");
+		}
+		long timestamp = toMillis(movement.getTimestamp());
+		GeoPosition position = movement.getGeoPosition();
+		double latitude = position == null ? Double.NaN : position.getLatitude();
+		double longitude = position == null ? Double.NaN : position.getLongitude();
+
+		Snapshot current = _snapshot;
+		long[] timestamps = current._timestamps;
+		double[] latitudes = current._latitudes;
+		double[] longitudes = current._longitudes;
+		int size = current._size;
+
+		if(size == 0 || timestamps[size - 1] <= timestamp) {
+			// Fast path: the movement is the most recent.
+			if(size == timestamps.length) {
+				int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+				timestamps = Arrays.copyOf(timestamps, capacity);
+				latitudes = Arrays.copyOf(latitudes, capacity);
+				longitudes = Arrays.copyOf(longitudes, capacity);
+			}
+			timestamps[size] = timestamp;
+			latitudes[size] = latitude;
+			longitudes[size] = longitude;
+		} else {
+			int index = insertionPoint(timestamps, size, timestamp);
+			int capacity = size == timestamps.length ? size + (size >> 1) + 1
+					: timestamps.length;
+			timestamps = insert(timestamps, size, index, capacity, timestamp);
+			latitudes = insert(latitudes, size, index, capacity, latitude);
+			longitudes = insert(longitudes, size, index, capacity, longitude);
+		}
+		_snapshot = new Snapshot(timestamps, latitudes, longitudes, size + 1);
+	}
+
+	/**
+	 * Records a batch of movements. The batch is sorted and then merged with
+	 * the history in a single pass, so adding k movements to a history of n
+	 * costs O(k log k + n) - or O(k log k) where every movement in the batch
+	 * is more recent than those already recorded. The batch is published as
+	 * a whole: readers see either none or all of its movements.
+	 *
+	 * @throws IllegalArgumentException if any movement has no timestamp, in
+	 *         which case none of the movements are recorded.
+	 */
+	public void addAll(Collection<Movement> movements) {
+		int count = movements.size();
+		if(count == 0) {
+			return;
+		}
+		Movement[] batch = movements.toArray(new Movement[count]);
+		for(Movement movement : batch) {
+			if(movement.getTimestamp() == null) {
+				throw new IllegalArgumentException("Movement has no timestamp");
+			}
+		}
+		// A stable sort, so movements with equal timestamps keep their order.
+		Arrays.sort(batch);
+
+		long[] batchTimestamps = new long[count];
+		for(int i = 0; i < count; i++) {
+			batchTimestamps[i] = toMillis(batch[i].getTimestamp());
+		}
+
+		synchronized(this) {
+			Snapshot current = _snapshot;
+			int size = current._size;
+			long[] timestamps = current._timestamps;
+			double[] latitudes = current._latitudes;
+			double[] longitudes = current._longitudes;
+
+			if(size == 0 || timestamps[size - 1] <= batchTimestamps[0]) {
+				// Fast path: the batch follows the history, so append it.
+				if(size + count > timestamps.length) {
+					int capacity = Math.max(INITIAL_CAPACITY, Math.max(
+							size + count, size + (size >> 1)));
+					timestamps = Arrays.copyOf(timestamps, capacity);
+					latitudes = Arrays.copyOf(latitudes, capacity);
+					longitudes = Arrays.copyOf(longitudes, capacity);
+				}
+				for(int i = 0; i < count; i++) {
+					set(timestamps, latitudes, longitudes, size + i,
+							batchTimestamps[i], batch[i]);
+				}
+			} else {
+				// Merge the history and the batch into new arrays. Where 
+				// timestamps are equal, the history's movement comes first.
+				int capacity = Math.max(size + count, size + (size >> 1));
+				long[] mergedTimestamps = new long[capacity];
+				double[] mergedLatitudes = new double[capacity];
+				double[] mergedLongitudes = new double[capacity];
+				int i = 0;
+				int j = 0;
+				for(int k = 0; k < size + count; k++) {
+					if(j == count || (i < size && timestamps[i] <= batchTimestamps[j])) {
+						mergedTimestamps[k] = timestamps[i];
+						mergedLatitudes[k] = latitudes[i];
+						mergedLongitudes[k] = longitudes[i];
+						i++;
+					} else {
+						set(mergedTimestamps, mergedLatitudes, mergedLongitudes,
+								k, batchTimestamps[j], batch[j]);
+						j++;
+					}
+				}
+				timestamps = mergedTimestamps;
+				latitudes = mergedLatitudes;
+				longitudes = mergedLongitudes;
+			}
+			_snapshot = new Snapshot(timestamps, latitudes, longitudes, size + count);
+		}
+	}
+
+	/**
+	 * Returns the most recent movement, or null if there are no movements.
+	 */
+	public Movement getLatest() {
+		Snapshot current = _snapshot;
+		return current._size == 0 ? null : current.movement(current._size - 1);
+	}
+
+	public int size() {
+		return _snapshot._size;
+	}
+
+	public boolean isEmpty() {
+		return _snapshot._size == 0;
+	}
+
+	/**
+	 * Returns a read-only List of the movements recorded so far, in descending
+	 * timestamp order (i.e. the most recent movement appears first). The List
+	 * isn't affected by later additions. Its Movement objects are created
+	 * when they're retrieved, so retrieving an element twice returns equal,
+	 * but not identical, objects.
+	 */
+	public List<Movement> getMovements() {
+		Snapshot current = _snapshot;
+		return new DescendingView(current, 0, current._size);
+	}
+
+	/**
+	 * Returns a read-only List of the movements whose timestamps lie within
+	 * a range, in descending timestamp order. The range is located by binary
+	 * search, so the cost of this method doesn't depend on the length of the
+	 * history. As with getMovements(), the List isn't affected by later
+	 * additions.
+	 *
+	 * @param from the earliest timestamp (inclusive), or null for no lower 
+	 *        bound.
+	 * @param to the latest timestamp (inclusive), or null for no upper bound.
+	 * @param limit the maximum number of movements to return. Where more
+	 *        movements lie within the range, the most recent are returned.
+	 */
+	public List<Movement> getMovements(LocalDateTime from, LocalDateTime to,
+			int limit) {
+		Snapshot current = _snapshot;
+		int low = from == null ? 0 : lowerBound(current._timestamps,
+				current._size, toMillis(from));
+		int high = to == null ? current._size : insertionPoint(
+				current._timestamps, current._size, toMillis(to));
+		if(high < low) {
+			high = low;
+		}
+		if(high - low > limit) {
+			low = high - limit;
+		}
+		return new DescendingView(current, low, high);
+	}
+
+	static long toMillis(LocalDateTime timestamp) {
+		return timestamp.toDateTime(DateTimeZone.UTC).getMillis();
+	}
+
+	static LocalDateTime toLocalDateTime(long millis) {
+		return new LocalDateTime(millis, DateTimeZone.UTC);
+	}
+
+	/**
+	 * Returns the index at which a movement with the specified timestamp
+	 * should be inserted: the position after any movements with the same
+	 * timestamp.
+	 */
+	private static int insertionPoint(long[] timestamps, int size, long timestamp) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(timestamps[mid] <= timestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first movement whose timestamp isn't earlier
+	 * than the specified timestamp.
+	 */
+	private static int lowerBound(long[] timestamps, int size, long timestamp) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(timestamps[mid] < timestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static void set(long[] timestamps, double[] latitudes,
+			double[] longitudes, int index, long timestamp, Movement movement) {
+		GeoPosition position = movement.getGeoPosition();
+		timestamps[index] = timestamp;
+		latitudes[index] = position == null ? Double.NaN : position.getLatitude();
+		longitudes[index] = position == null ? Double.NaN : position.getLongitude();
+	}
+
+	private static long[] insert(long[] values, int size, int index,
+			int capacity, long value) {
+		long[] copy = new long[capacity];
+		System.arraycopy(values, 0, copy, 0, index);
+		copy[index] = value;
+		System.arraycopy(values, index, copy, index + 1, size - index);
+		return copy;
+	}
+
+	private static double[] insert(double[] values, int size, int index,
+			int capacity, double value) {
+		double[] copy = new double[capacity];
+		System.arraycopy(values, 0, copy, 0, index);
+		copy[index] = value;
+		System.arraycopy(values, index, copy, index + 1, size - index);
+		return copy;
+	}
+
+	private static class Snapshot {
+		private final long[] _timestamps;
+		private final double[] _latitudes;
+		private final double[] _longitudes;
+		private final int _size;
+
+		Snapshot(long[] timestamps, double[] latitudes, double[] longitudes,
+				int size) {
+			_timestamps = timestamps;
+			_latitudes = latitudes;
+			_longitudes = longitudes;
+			_size = size;
+		}
+
+		Movement movement(int index) {
+			GeoPosition position = null;
+			if(!Double.isNaN(_latitudes[index]) || !Double.isNaN(_longitudes[index])) {
+				position = new GeoPosition(_latitudes[index], _longitudes[index]);
+			}
+			return new Movement(toLocalDateTime(_timestamps[index]), position);
+		}
+	}
+
+	private static class DescendingView extends AbstractList<Movement>
+			implements RandomAccess {
+		private final Snapshot _snapshot;
+		private final int _low;
+		private final int _high;
+
+		/**
+		 * Creates a view of the snapshot's movements from index low 
+		 * (inclusive) to index high (exclusive).
+		 */
+		DescendingView(Snapshot snapshot, int low, int high) {
+			_snapshot = snapshot;
+			_low = low;
+			_high = high;
+		}
+
+		@Override
+		public Movement get(int index) {
+			if(index < 0 || index >= _high - _low) {
+				throw new IndexOutOfBoundsException("Index: " + index +
+						", Size: " + (_high - _low));
+			}
+			return _snapshot.movement(_high - 1 - index);
+		}
+
+		@Override
+		public int size() {
+			return _high - _low;
+		}
+	}
+}
@@ -1,13 +1,11 @@
 package nz.ac.auckland.parolee.domain;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
@@ -16,11 +14,14 @@ import org.joda.time.format.DateTimeFormatter;
  * - Personal details: lastname, firstname, gender, date-of-birth, home address;
  * - Curfew: any constraints on the Parolee's location;
  * - Criminal profile: criminal history of the Parolee;
- * - Dissassociates: other Parolees who the Parolee is not permitted to be with;
  * - Movements: a timestamped history of where the Parolee has been.
  * 
  * A Parolee is uniquely identified by an id value of type Long.
  * 
+ * The Parolees who a Parolee is not permitted to be with (its dissassociates)
+ * aren't part of a Parolee; the Web service holds them, by id, in a single 
+ * store so that both Parolees of a dissassociation always agree.
+ * 
  */
 public class Parolee {
 	
@@ -32,8 +33,7 @@ public class Parolee {
 	private Address _homeAddress;
 	private Curfew _curfew;
 	private CriminalProfile _criminalProfile;
-	private Set<Parolee> _dissassociates;
-	private List<Movement> _movements;
+	private MovementHistory _movements;
 	
 	
 	public Parolee(long id,
@@ -50,8 +50,7 @@ public class Parolee {
 		_dateOfBirth = dateOfBirth;
 		_homeAddress = address;
 		_curfew = curfew;
-		_dissassociates = new HashSet<Parolee>();
-		_movements = new ArrayList<Movement>();
+		_movements = new MovementHistory();
 	}
 	
 	public long getId() {
@@ -119,42 +118,36 @@ public class Parolee {
 	}
 	
 	public void addMovement(Movement movement) {
-		// Store the new movement.
+		// Store the new movement. MovementHistory keeps movements in 
+		// timestamp order, and may be called concurrently.
 		_movements.add(movement);
-		
-		// Ensure that movements are sorted in descending order (i.e. that the
-		// most recent movement appears first.
-		Collections.sort(_movements, Collections.reverseOrder());
-	}
-	
-	public List<Movement> getMovements() {
-		// Returns the Parolee's movements in a read-only collection.
-		return Collections.unmodifiableList(_movements);
 	}
 	
-	public Movement getLastKnownPosition() {
-		Movement movement = null;
-		
-		if(!_movements.isEmpty()) {
-			movement = _movements.get(0);
-		}
-		return movement;
+	/**
+	 * Records a batch of movements, merging them into the Parolee's history
+	 * in a single pass.
+	 */
+	public void addMovements(Collection<Movement> movements) {
+		_movements.addAll(movements);
 	}
 	
-	public void addDissassociate(Parolee parolee) {
-		_dissassociates.add(parolee);
-	}
-	
-	public void removeDissassociate(Parolee parolee) {
-		_dissassociates.remove(parolee);
+	public List<Movement> getMovements() {
+		// Returns the Parolee's movements in a read-only collection, sorted
+		// in descending order (i.e. the most recent movement appears first).
+		return _movements.getMovements();
 	}
 	
-	public Set<Parolee> getDissassociates() {
-		return Collections.unmodifiableSet(_dissassociates);
+	/**
+	 * Returns, in descending order, the Parolee's movements whose timestamps
+	 * lie between from and to (inclusive). Either bound may be null. At most
+	 * limit movements - the most recent in the range - are returned.
+	 */
+	public List<Movement> getMovements(LocalDateTime from, LocalDateTime to, int limit) {
+		return _movements.getMovements(from, to, limit);
 	}
 	
-	public void updateDissassociates(Set<Parolee> dissassociates) {
-		_dissassociates = dissassociates;
+	public Movement getLastKnownPosition() {
+		return _movements.getLatest();
 	}
 	
 	@Override
@@ -211,31 +204,9 @@ public class Parolee {
 			buffer.append("No criminal profile");
 		}
 		
-		buffer.append("\n");
-		buffer.append("  Dissassociates: ");
-		if(_dissassociates.isEmpty()) {
-			buffer.append("none");
-		} else {
-			for(Parolee dissassociate : _dissassociates) {
-				buffer.append("[");
-				buffer.append(dissassociate._id);
-				buffer.append("]");
-				buffer.append(" ");
-				if(dissassociate._lastname != null) {
-					buffer.append(dissassociate._lastname);
-					buffer.append(", ");
-				}
-				if(dissassociate._firstname != null) {
-					buffer.append(dissassociate._firstname);
-				}
-				buffer.append(";");
-			}
-			buffer.deleteCharAt(buffer.length()-1);
-		}
-		
 		if(!_movements.isEmpty()) {
 			buffer.append("\n  Last known location: ");
-			Movement lastMovement = _movements.get(0);
+			Movement lastMovement = _movements.getLatest();
 			buffer.append(lastMovement);
 		}
 		
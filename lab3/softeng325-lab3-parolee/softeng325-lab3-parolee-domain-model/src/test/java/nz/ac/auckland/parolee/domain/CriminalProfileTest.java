@@ -0,0 +1,54 @@
+package nz.ac.auckland.parolee.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.EnumSet;
+
+import javax.xml.bind.JAXBContext;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import nz.ac.auckland.parolee.domain.CriminalProfile.Conviction;
+import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
+
+/**
+ * Unit tests for CriminalProfile's aggregate set of offences.
+ *
+ */
+public class CriminalProfileTest {
+
+	@Test
+	public void offencesAggregateConvictions() {
+		CriminalProfile profile = new CriminalProfile();
+		assertTrue(profile.getOffences().isEmpty());
+
+		profile.addConviction(new Conviction(new LocalDate(1994, 1, 19),
+				"Crime of passion", Offence.MURDER,
+				Offence.POSSESION_OF_OFFENSIVE_WEAPON));
+		profile.addConviction(new Conviction(new LocalDate(2001, 3, 2),
+				"Shoplifting", Offence.THEFT, Offence.MURDER));
+
+		assertEquals(EnumSet.of(Offence.THEFT, Offence.MURDER,
+				Offence.POSSESION_OF_OFFENSIVE_WEAPON), profile.getOffences());
+	}
+
+	@Test
+	public void offencesAreRebuiltWhenUnmarshalled() throws Exception {
+		CriminalProfile profile = new CriminalProfile();
+		profile.addConviction(new Conviction(new LocalDate(1994, 1, 19),
+				"Tax fraud", Offence.TAX_EVASION));
+
+		JAXBContext context = JAXBContext.newInstance(CriminalProfile.class);
+		StringWriter writer = new StringWriter();
+		context.createMarshaller().marshal(profile, writer);
+		CriminalProfile copy = (CriminalProfile)context.createUnmarshaller()
+				.unmarshal(new StringReader(writer.toString()));
+
+		assertEquals(profile, copy);
+		assertEquals(EnumSet.of(Offence.TAX_EVASION), copy.getOffences());
+	}
+}
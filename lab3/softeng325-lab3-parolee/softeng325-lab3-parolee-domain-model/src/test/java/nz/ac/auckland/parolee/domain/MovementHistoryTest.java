@@ -0,0 +1,210 @@
+package nz.ac.auckland.parolee.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+
+/**
+ * Unit tests for MovementHistory.
+ *
+ */
+public class MovementHistoryTest {
+	private static final LocalDateTime START = new LocalDateTime(2017, 8, 1, 0, 0);
+	private static final GeoPosition POSITION = new GeoPosition(-36.852617, 174.769525);
+
+	@Test
+	public void emptyHistory() {
+		MovementHistory history = new MovementHistory();
+
+		assertTrue(history.isEmpty());
+		assertNull(history.getLatest());
+		assertTrue(history.getMovements().isEmpty());
+	}
+
+	@Test
+	public void movementsAreReturnedMostRecentFirst() {
+		MovementHistory history = new MovementHistory();
+		Movement first = movement(0);
+		Movement second = movement(1);
+		Movement third = movement(2);
+
+		history.add(second);
+		history.add(third);
+		history.add(first);
+
+		List<Movement> movements = history.getMovements();
+		assertEquals(3, movements.size());
+		assertEquals(third, movements.get(0));
+		assertEquals(second, movements.get(1));
+		assertEquals(first, movements.get(2));
+		assertEquals(third, history.getLatest());
+	}
+
+	@Test
+	public void outOfOrderMovementsAreSorted() {
+		MovementHistory history = new MovementHistory();
+		List<Movement> expected = new ArrayList<Movement>();
+		Random random = new Random(325);
+
+		for(int i = 0; i < 1000; i++) {
+			Movement movement = movement(random.nextInt(500));
+			history.add(movement);
+			expected.add(movement);
+		}
+		Collections.sort(expected, Collections.reverseOrder());
+
+		assertEquals(expected, history.getMovements());
+	}
+
+	@Test
+	public void batchesAreMerged() {
+		MovementHistory history = new MovementHistory();
+		List<Movement> expected = new ArrayList<Movement>();
+		Random random = new Random(325);
+
+		for(int b = 0; b < 10; b++) {
+			List<Movement> batch = new ArrayList<Movement>();
+			for(int i = 0; i < 100; i++) {
+				batch.add(movement(random.nextInt(2000)));
+			}
+			history.addAll(batch);
+			expected.addAll(batch);
+		}
+		Collections.sort(expected, Collections.reverseOrder());
+
+		assertEquals(expected, history.getMovements());
+	}
+
+	@Test
+	public void batchesFollowingTheHistoryAreAppended() {
+		MovementHistory history = new MovementHistory();
+		history.add(movement(0));
+		List<Movement> before = history.getMovements();
+
+		history.addAll(Arrays.asList(movement(3), movement(1), movement(2)));
+		history.addAll(Collections.<Movement>emptyList());
+
+		assertEquals(1, before.size());
+		assertEquals(Arrays.asList(movement(3), movement(2), movement(1),
+				movement(0)), history.getMovements());
+	}
+
+	@Test
+	public void batchWithoutTimestampIsRejected() {
+		MovementHistory history = new MovementHistory();
+		try {
+			history.addAll(Arrays.asList(movement(0), new Movement(null, POSITION)));
+			fail();
+		} catch(IllegalArgumentException e) {
+		}
+		assertTrue(history.isEmpty());
+	}
+
+	@Test
+	public void rangeQueries() {
+		MovementHistory history = new MovementHistory();
+		for(int i = 0; i < 100; i++) {
+			history.add(movement(i));
+		}
+		LocalDateTime from = START.plusMinutes(10);
+		LocalDateTime to = START.plusMinutes(20);
+
+		List<Movement> range = history.getMovements(from, to, Integer.MAX_VALUE);
+		assertEquals(11, range.size());
+		assertEquals(movement(20), range.get(0));
+		assertEquals(movement(10), range.get(10));
+
+		List<Movement> limited = history.getMovements(from, to, 3);
+		assertEquals(3, limited.size());
+		assertEquals(movement(20), limited.get(0));
+		assertEquals(movement(18), limited.get(2));
+
+		assertEquals(90, history.getMovements(from, null, Integer.MAX_VALUE).size());
+		assertEquals(21, history.getMovements(null, to, Integer.MAX_VALUE).size());
+		assertTrue(history.getMovements(to, from, Integer.MAX_VALUE).isEmpty());
+		assertTrue(history.getMovements(START.plusMinutes(200), null, 10).isEmpty());
+	}
+
+	@Test
+	public void listIsUnaffectedByLaterAdditions() {
+		MovementHistory history = new MovementHistory();
+		history.add(movement(1));
+		List<Movement> movements = history.getMovements();
+
+		history.add(movement(2));
+		history.add(movement(0));
+
+		assertEquals(1, movements.size());
+		assertEquals(movement(1), movements.get(0));
+		assertEquals(3, history.size());
+	}
+
+	@Test
+	public void movementsAreStoredExactly() {
+		MovementHistory history = new MovementHistory();
+		Movement movement = new Movement(new LocalDateTime(2017, 8, 1, 12, 34, 56, 789),
+				new GeoPosition(-36.8526171234, 174.7695251234));
+		Movement withoutPosition = new Movement(START, null);
+
+		history.add(movement);
+		history.add(withoutPosition);
+
+		assertEquals(movement, history.getMovements().get(0));
+		assertEquals(withoutPosition, history.getMovements().get(1));
+		assertNull(history.getMovements().get(1).getGeoPosition());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void movementWithoutTimestampIsRejected() {
+		new MovementHistory().add(new Movement(null, POSITION));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void listIsReadOnly() {
+		MovementHistory history = new MovementHistory();
+		history.getMovements().add(movement(0));
+	}
+
+	@Test
+	public void concurrentAdditionsAreAllRecorded() throws Exception {
+		final MovementHistory history = new MovementHistory();
+		final int perThread = 5000;
+		Thread[] threads = new Thread[4];
+
+		for(int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = 0; i < perThread; i++) {
+						history.add(movement(i * threads.length + offset));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		List<Movement> movements = history.getMovements();
+		assertEquals(perThread * threads.length, movements.size());
+		for(int i = 1; i < movements.size(); i++) {
+			assertTrue(movements.get(i - 1).compareTo(movements.get(i)) > 0);
+		}
+	}
+
+	private static Movement movement(int minutes) {
+		return new Movement(START.plusMinutes(minutes), POSITION);
+	}
+}
@@ -0,0 +1,62 @@
+package nz.ac.auckland.parolee.dto;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Class to represent the throughput of the Web service's bulk Movement
+ * ingest: the number of Movements recorded by bulk requests, and the time
+ * spent parsing and recording them, since the Web service's data was last
+ * initialised.
+ *
+ */
+@XmlRootElement(name="ingest-statistics")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class IngestStatistics {
+
+	@XmlElement(name="movements")
+	private long _movements;
+
+	@XmlElement(name="nanos")
+	private long _nanos;
+
+	protected IngestStatistics() {
+
+	}
+
+	public IngestStatistics(long movements, long nanos) {
+		_movements = movements;
+		_nanos = nanos;
+	}
+
+	/**
+	 * Returns the number of Movements recorded.
+	 */
+	public long getMovements() {
+		return _movements;
+	}
+
+	/**
+	 * Returns the time, in nanoseconds, taken to record the Movements.
+	 */
+	public long getNanos() {
+		return _nanos;
+	}
+
+	/**
+	 * Returns the number of Movements recorded per second, or 0 if none
+	 * have been recorded.
+	 */
+	public long getMovementsPerSecond() {
+		return _nanos == 0 ? 0 : _movements * 1000000000L / _nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "IngestStatistics: " + _movements + " movements in " +
+				_nanos / 1000 + "us (" + getMovementsPerSecond() +
+				" movements/s)";
+	}
+}
@@ -0,0 +1,62 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+
+/**
+ * Converts Addresses to GeoPositions. An Address that includes a location is
+ * converted to that location. Otherwise, the Address is looked up in a local
+ * table of known addresses, keyed by street number, street name, suburb and 
+ * city (ignoring case and surrounding whitespace). 
+ * 
+ * The table is held in memory and contains the confinement addresses used by
+ * the Web service; further entries can be added with add(). An 
+ * AddressGeocoder is safe for concurrent use.
+ *
+ */
+public class AddressGeocoder {
+	private Map<String, GeoPosition> _locations = new ConcurrentHashMap<String, GeoPosition>();
+
+	public AddressGeocoder() {
+		add(new Address("15", "Bermuda road", "St Johns", "Auckland", "1071"),
+				new GeoPosition(-36.873633, 174.841092));
+		add(new Address("22", "Tarawera Terrace", "St Heliers", "Auckland", "1071"),
+				new GeoPosition(-36.854690, 174.857930));
+		add(new Address("67", "Drayton Gardens", "Oraeki", "Auckland", "1071"),
+				new GeoPosition(-36.865790, 174.823320));
+	}
+
+	/**
+	 * Adds an entry to the lookup table.
+	 */
+	public void add(Address address, GeoPosition location) {
+		_locations.put(key(address), location);
+	}
+
+	/**
+	 * Returns the location of an Address, or null if it is unknown.
+	 */
+	public GeoPosition geocode(Address address) {
+		if(address == null) {
+			return null;
+		}
+		if(address.getLocation() != null) {
+			return address.getLocation();
+		}
+		return _locations.get(key(address));
+	}
+
+	private static String key(Address address) {
+		return normalise(address.getStreetNumber()) + '|' + 
+				normalise(address.getStreetName()) + '|' + 
+				normalise(address.getSuburb()) + '|' + 
+				normalise(address.getCity());
+	}
+
+	private static String normalise(String value) {
+		return value == null ? "" : value.trim().toLowerCase();
+	}
+}
@@ -0,0 +1,278 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+
+import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.CurfewViolation;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+/**
+ * Checks Movements against Parolees' curfews as they are recorded, and holds
+ * the resulting CurfewViolations.
+ * 
+ * For each Parolee with a curfew, the confinement address is geocoded once, 
+ * and a Fence is computed: the curfew period as minutes of the day, and the
+ * squared radius (RADIUS_METRES by default) and metres-per-degree scale 
+ * factors around the confinement address. The Fence is recomputed only when
+ * the Parolee's Curfew object is replaced. Checking a Movement then takes a 
+ * handful of arithmetic operations: a Movement outside the curfew period is
+ * decided from its time alone, and one within it by comparing its squared
+ * distance from the confinement address with the squared radius.
+ * 
+ * Violations are held in skip lists ordered most recent first, one for each
+ * Parolee and one for all Parolees, so recording a violation takes O(log n)
+ * time and a query reads only the violations it returns. At most RETENTION
+ * violations are held for each Parolee; recording another discards the
+ * Parolee's oldest.
+ * 
+ * A Parolee whose confinement address can't be geocoded isn't monitored.
+ * A CurfewMonitor is safe for concurrent use.
+ *
+ */
+public class CurfewMonitor {
+	// The distance from the confinement address at which a Parolee is 
+	// considered to have left it.
+	static final double RADIUS_METRES = 100;
+
+	// The number of violations held for each Parolee.
+	static final int RETENTION = 1000;
+
+	private static final double EARTH_RADIUS_METRES = 6371008.8;
+	private static final double METRES_PER_DEGREE = EARTH_RADIUS_METRES * Math.PI / 180;
+
+	private final AddressGeocoder _geocoder;
+	private final double _radius;
+	private final int _retention;
+
+	private Map<Long, Fence> _fences = new ConcurrentHashMap<Long, Fence>();
+
+	// Violations, most recent first: for each Parolee, and for all Parolees.
+	private Map<Long, Violations> _violations = new ConcurrentHashMap<Long, Violations>();
+	private NavigableSet<Entry> _allViolations = new ConcurrentSkipListSet<Entry>();
+
+	// Orders violations recorded for the same time.
+	private final AtomicLong _sequence = new AtomicLong();
+
+	public CurfewMonitor(AddressGeocoder geocoder) {
+		this(geocoder, RADIUS_METRES, RETENTION);
+	}
+
+	public CurfewMonitor(AddressGeocoder geocoder, double radiusMetres) {
+		this(geocoder, radiusMetres, RETENTION);
+	}
+
+	public CurfewMonitor(AddressGeocoder geocoder, double radiusMetres, int retention) {
+		_geocoder = geocoder;
+		_radius = radiusMetres;
+		_retention = retention;
+	}
+
+	/**
+	 * Checks a newly recorded Movement against a Parolee's curfew, returning
+	 * the resulting CurfewViolation or null if the curfew wasn't breached.
+	 */
+	public CurfewViolation check(Parolee parolee, Movement movement) {
+		Fence fence = getFence(parolee);
+		if(fence == null || movement.getGeoPosition() == null) {
+			return null;
+		}
+
+		double distance = fence.distanceOutside(movement);
+		if(distance < 0) {
+			return null;
+		}
+
+		CurfewViolation violation = new CurfewViolation(parolee.getId(), movement, distance);
+		Violations violations = _violations.get(parolee.getId());
+		if(violations == null) {
+			_violations.putIfAbsent(parolee.getId(), new Violations());
+			violations = _violations.get(parolee.getId());
+		}
+		Entry entry = new Entry(violation, _sequence.incrementAndGet());
+		violations._entries.add(entry);
+		_allViolations.add(entry);
+
+		// Discard the Parolee's oldest violation once it has too many.
+		if(violations._count.incrementAndGet() > _retention) {
+			Entry oldest = violations._entries.pollLast();
+			if(oldest != null) {
+				_allViolations.remove(oldest);
+				violations._count.decrementAndGet();
+			}
+		}
+		return violation;
+	}
+
+	/**
+	 * Returns a Parolee's CurfewViolations, most recent first.
+	 */
+	public List<CurfewViolation> getViolations(long paroleeId) {
+		return getViolations(paroleeId, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns, most recent first, a Parolee's CurfewViolations whose 
+	 * Movements are no earlier than since. since may be null. At most limit
+	 * violations are returned.
+	 */
+	public List<CurfewViolation> getViolations(long paroleeId, LocalDateTime since, int limit) {
+		Violations violations = _violations.get(paroleeId);
+		if(violations == null) {
+			return new ArrayList<CurfewViolation>();
+		}
+		return select(violations._entries, since, limit);
+	}
+
+	/**
+	 * Returns all Parolees' CurfewViolations, most recent first.
+	 */
+	public List<CurfewViolation> getViolations() {
+		return getViolations(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns, most recent first, all Parolees' CurfewViolations whose
+	 * Movements are no earlier than since. since may be null. At most limit
+	 * violations are returned.
+	 */
+	public List<CurfewViolation> getViolations(LocalDateTime since, int limit) {
+		return select(_allViolations, since, limit);
+	}
+
+	private static List<CurfewViolation> select(NavigableSet<Entry> entries, LocalDateTime since, int limit) {
+		List<CurfewViolation> result = new ArrayList<CurfewViolation>();
+		for(Entry entry : entries) {
+			if(result.size() >= limit || 
+					(since != null && entry._timestamp.isBefore(since))) {
+				break;
+			}
+			result.add(entry._violation);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Fence for a Parolee's current curfew, computing it if the
+	 * Parolee hasn't been seen before or its Curfew has been replaced.
+	 */
+	private Fence getFence(Parolee parolee) {
+		Curfew curfew = parolee.getCurfew();
+		Fence fence = _fences.get(parolee.getId());
+		if(fence != null && fence._curfew == curfew) {
+			return fence._centre == null ? null : fence;
+		}
+
+		GeoPosition centre = null;
+		if(curfew != null && curfew.getStartTime() != null && curfew.getEndTime() != null) {
+			centre = _geocoder.geocode(curfew.getConfinementAddress());
+		}
+		// Unmonitored Parolees are cached too, with a null centre.
+		fence = new Fence(curfew, centre, _radius);
+		_fences.put(parolee.getId(), fence);
+		return centre == null ? null : fence;
+	}
+
+	/**
+	 * A Parolee's violations, and their number.
+	 */
+	private static class Violations {
+		private final NavigableSet<Entry> _entries = new ConcurrentSkipListSet<Entry>();
+		private final AtomicInteger _count = new AtomicInteger();
+	}
+
+	/**
+	 * A recorded violation. Entries are ordered most recent first, and those
+	 * for the same time by when they were recorded, so no two are equal.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private final CurfewViolation _violation;
+		private final LocalDateTime _timestamp;
+		private final long _sequence;
+
+		Entry(CurfewViolation violation, long sequence) {
+			_violation = violation;
+			_timestamp = violation.getMovement().getTimestamp();
+			_sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry entry) {
+			int result = entry._timestamp.compareTo(_timestamp);
+			return result != 0 ? result : Long.compare(entry._sequence, _sequence);
+		}
+	}
+
+	/**
+	 * Precomputed form of a Curfew.
+	 */
+	private static class Fence {
+		private final Curfew _curfew;
+		private final GeoPosition _centre;
+
+		private int _startMinute;
+		private int _endMinute;
+
+		private double _radiusSquared;
+		private double _metresPerDegreeLongitude;
+
+		Fence(Curfew curfew, GeoPosition centre, double radius) {
+			_curfew = curfew;
+			_centre = centre;
+			if(centre == null) {
+				return;
+			}
+
+			_startMinute = curfew.getStartTime().getMillisOfDay() / 60000;
+			_endMinute = curfew.getEndTime().getMillisOfDay() / 60000;
+
+			_radiusSquared = radius * radius;
+			_metresPerDegreeLongitude = METRES_PER_DEGREE * Math.cos(Math.toRadians(centre.getLatitude()));
+		}
+
+		/**
+		 * Returns the Movement's distance, in metres, from the centre if the
+		 * Movement was during the curfew period and outside the radius; and 
+		 * -1 otherwise.
+		 */
+		double distanceOutside(Movement movement) {
+			if(!inPeriod(movement.getTimestamp().toLocalTime())) {
+				return -1;
+			}
+
+			// Equirectangular approximation, which is accurate to well within
+			// a metre over the distances that matter here.
+			GeoPosition position = movement.getGeoPosition();
+			double dy = (position.getLatitude() - _centre.getLatitude()) * METRES_PER_DEGREE;
+			double dx = (position.getLongitude() - _centre.getLongitude()) * _metresPerDegreeLongitude;
+			double distanceSquared = dx * dx + dy * dy;
+			if(distanceSquared <= _radiusSquared) {
+				return -1;
+			}
+			return Math.sqrt(distanceSquared);
+		}
+
+		/**
+		 * Returns true if a time lies within the curfew period. A period whose
+		 * end precedes its start (e.g. 20:00 to 06:30) spans midnight.
+		 */
+		boolean inPeriod(LocalTime time) {
+			int minute = time.getMillisOfDay() / 60000;
+			if(_startMinute <= _endMinute) {
+				return minute >= _startMinute && minute < _endMinute;
+			}
+			return minute >= _startMinute || minute < _endMinute;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store of dissassociations between Parolees, identified by id. 
+ * Dissassociation is symmetric: if Parolee a is a dissassociate of Parolee b,
+ * then b is a dissassociate of a. The store is an undirected graph, held as 
+ * an adjacency set of ids (a LongSet) for each Parolee, so edges are added,
+ * removed and looked up without creating objects per edge.
+ * 
+ * A DissassociateGraph is safe for concurrent use. Queries share a read lock,
+ * and each update - including a bulk update - holds the write lock for its
+ * duration, so queries never see part of an update.
+ *
+ */
+public class DissassociateGraph {
+	private static final long[] NONE = new long[0];
+
+	private Map<Long, LongSet> _adjacency = new HashMap<Long, LongSet>();
+	private ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Replaces a Parolee's dissassociates. Edges between the Parolee and its
+	 * former dissassociates are removed, from both ends, and edges to the
+	 * new dissassociates are added, to both ends.
+	 */
+	public void setDissassociates(long id, long[] dissassociates) {
+		_lock.writeLock().lock();
+		try {
+			LongSet current = _adjacency.remove(id);
+			if(current != null) {
+				for(long other : current.toArray()) {
+					unlink(other, id);
+				}
+			}
+			for(long other : dissassociates) {
+				if(other != id) {
+					link(id, other);
+					link(other, id);
+				}
+			}
+		} finally {
+			_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds dissassociations between a Parolee and each of a set of others.
+	 */
+	public void addDissassociates(long id, long[] dissassociates) {
+		_lock.writeLock().lock();
+		try {
+			for(long other : dissassociates) {
+				if(other != id) {
+					link(id, other);
+					link(other, id);
+				}
+			}
+		} finally {
+			_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a Parolee, and all of its dissassociations, from the graph.
+	 */
+	public void remove(long id) {
+		setDissassociates(id, NONE);
+	}
+
+	/**
+	 * Returns the ids of a Parolee's dissassociates, in ascending order.
+	 */
+	public long[] getDissassociates(long id) {
+		_lock.readLock().lock();
+		try {
+			LongSet dissassociates = _adjacency.get(id);
+			return dissassociates == null ? NONE : dissassociates.toArray();
+		} finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns true if two Parolees are dissassociates.
+	 */
+	public boolean areDissassociates(long id, long other) {
+		_lock.readLock().lock();
+		try {
+			LongSet dissassociates = _adjacency.get(id);
+			return dissassociates != null && dissassociates.contains(other);
+		} finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the ids of the Parolees within depth hops of a Parolee, 
+	 * excluding the Parolee itself. The ids are ordered by the number of 
+	 * hops, and in ascending order for each hop. A depth of 1 returns the
+	 * Parolee's dissassociates; a depth of 2 adds their dissassociates, and
+	 * so on.
+	 */
+	public long[] getNeighbourhood(long id, int depth) {
+		_lock.readLock().lock();
+		try {
+			LongSet visited = new LongSet();
+			visited.add(id);
+
+			long[] frontier = { id };
+			long[] result = NONE;
+			for(int hop = 0; hop < depth && frontier.length > 0; hop++) {
+				LongSet next = new LongSet();
+				for(long member : frontier) {
+					LongSet dissassociates = _adjacency.get(member);
+					if(dissassociates == null) {
+						continue;
+					}
+					for(long other : dissassociates.toArray()) {
+						if(visited.add(other)) {
+							next.add(other);
+						}
+					}
+				}
+				frontier = next.toArray();
+				result = concat(result, frontier);
+			}
+			return result;
+		} finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	private void link(long from, long to) {
+		LongSet dissassociates = _adjacency.get(from);
+		if(dissassociates == null) {
+			dissassociates = new LongSet();
+			_adjacency.put(from, dissassociates);
+		}
+		dissassociates.add(to);
+	}
+
+	private void unlink(long from, long to) {
+		LongSet dissassociates = _adjacency.get(from);
+		if(dissassociates != null) {
+			dissassociates.remove(to);
+			if(dissassociates.isEmpty()) {
+				_adjacency.remove(from);
+			}
+		}
+	}
+
+	private static long[] concat(long[] first, long[] second) {
+		long[] result = new long[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
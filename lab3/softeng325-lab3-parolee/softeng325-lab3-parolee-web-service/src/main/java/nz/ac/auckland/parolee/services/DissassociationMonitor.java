@@ -0,0 +1,281 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+
+import nz.ac.auckland.parolee.domain.DissassociationAlert;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+/**
+ * Raises DissassociationAlerts when dissassociated Parolees are found 
+ * together, and holds the alerts.
+ * 
+ * Each Movement is checked as it is recorded, against the last known 
+ * positions of the moving Parolee's dissassociates only. The dissassociates'
+ * ids are obtained from the DissassociateGraph, and their positions are
+ * looked up by id in the ProximityIndex, so checking a Movement costs 
+ * O(d) for a Parolee with d dissassociates, regardless of how many Parolees
+ * or Movements are held. Two Parolees are together when their positions are
+ * within RADIUS_METRES of each other and their timestamps are within 
+ * WINDOW_MINUTES of each other.
+ * 
+ * An alert is raised when a pair of dissassociates is first found together.
+ * While they're found together again within WINDOW_MINUTES of the last time
+ * they were, no further alert is raised for the pair; once they haven't 
+ * been for longer than that, a new alert is raised.
+ * 
+ * As with CurfewMonitor's violations, alerts are held in skip lists ordered
+ * most recent first, one for each Parolee and one for all Parolees, so 
+ * recording an alert takes O(log n) time and a query reads only the alerts
+ * it returns. An alert is recorded against both Parolees. At most RETENTION
+ * alerts are held for each Parolee; recording another discards the 
+ * Parolee's oldest, which is then no longer returned among the alerts for 
+ * all Parolees either.
+ * 
+ * A DissassociationMonitor is safe for concurrent use.
+ *
+ */
+public class DissassociationMonitor {
+	static final double RADIUS_METRES = 100;
+	static final int WINDOW_MINUTES = 10;
+
+	// The number of alerts held for each Parolee.
+	static final int RETENTION = 1000;
+
+	private final ProximityIndex _proximityIndex;
+	private final DissassociateGraph _dissassociateGraph;
+	private final double _radiusKm;
+	private final long _windowMillis;
+	private final int _retention;
+
+	// Alerts, most recent first: for each Parolee, and for all Parolees.
+	private Map<Long, Alerts> _alerts = new ConcurrentHashMap<Long, Alerts>();
+	private NavigableSet<Entry> _allAlerts = new ConcurrentSkipListSet<Entry>();
+
+	// The last time, in milliseconds, that each pair of dissassociates was
+	// found together.
+	private ConcurrentMap<Pair, Long> _together = new ConcurrentHashMap<Pair, Long>();
+
+	// Orders alerts recorded for the same time.
+	private final AtomicLong _sequence = new AtomicLong();
+
+	public DissassociationMonitor(ProximityIndex proximityIndex,
+			DissassociateGraph dissassociateGraph) {
+		this(proximityIndex, dissassociateGraph, RADIUS_METRES, WINDOW_MINUTES, RETENTION);
+	}
+
+	public DissassociationMonitor(ProximityIndex proximityIndex,
+			DissassociateGraph dissassociateGraph, double radiusMetres,
+			int windowMinutes) {
+		this(proximityIndex, dissassociateGraph, radiusMetres, windowMinutes, RETENTION);
+	}
+
+	public DissassociationMonitor(ProximityIndex proximityIndex,
+			DissassociateGraph dissassociateGraph, double radiusMetres,
+			int windowMinutes, int retention) {
+		_proximityIndex = proximityIndex;
+		_dissassociateGraph = dissassociateGraph;
+		_radiusKm = radiusMetres / 1000;
+		_windowMillis = windowMinutes * 60000L;
+		_retention = retention;
+	}
+
+	/**
+	 * Checks a newly recorded Movement against the last known positions of
+	 * a Parolee's dissassociates, returning any alerts raised. No alert is 
+	 * raised for a dissassociate the Parolee was already found with within
+	 * the window.
+	 */
+	public List<DissassociationAlert> check(Parolee parolee, Movement movement) {
+		GeoPosition position = movement.getGeoPosition();
+		if(position == null) {
+			return Collections.emptyList();
+		}
+		long time = toMillis(movement.getTimestamp());
+
+		List<DissassociationAlert> raised = new ArrayList<DissassociationAlert>();
+		for(long dissassociateId : _dissassociateGraph.getDissassociates(parolee.getId())) {
+			Movement latest = _proximityIndex.getLatest(dissassociateId);
+			if(latest == null || 
+					Math.abs(toMillis(latest.getTimestamp()) - time) > _windowMillis) {
+				continue;
+			}
+			double distance = ProximityIndex.distance(position, latest.getGeoPosition());
+			if(distance <= _radiusKm && startsEncounter(parolee.getId(), dissassociateId, time)) {
+				DissassociationAlert alert = new DissassociationAlert(
+						parolee.getId(), dissassociateId, movement,
+						latest, distance * 1000);
+				Entry entry = new Entry(alert, _sequence.incrementAndGet());
+				_allAlerts.add(entry);
+				record(parolee.getId(), entry);
+				record(dissassociateId, entry);
+				raised.add(alert);
+			}
+		}
+		return raised;
+	}
+
+	/**
+	 * Returns the alerts that involve a Parolee, most recent first.
+	 */
+	public List<DissassociationAlert> getAlerts(long paroleeId) {
+		return getAlerts(paroleeId, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns, most recent first, the alerts that involve a Parolee whose 
+	 * Movements are no earlier than since. since may be null. At most limit
+	 * alerts are returned.
+	 */
+	public List<DissassociationAlert> getAlerts(long paroleeId, LocalDateTime since, int limit) {
+		Alerts alerts = _alerts.get(paroleeId);
+		if(alerts == null) {
+			return new ArrayList<DissassociationAlert>();
+		}
+		return select(alerts._entries, since, limit);
+	}
+
+	/**
+	 * Returns all alerts, most recent first.
+	 */
+	public List<DissassociationAlert> getAlerts() {
+		return getAlerts(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns, most recent first, all alerts whose Movements are no earlier
+	 * than since. since may be null. At most limit alerts are returned.
+	 */
+	public List<DissassociationAlert> getAlerts(LocalDateTime since, int limit) {
+		return select(_allAlerts, since, limit);
+	}
+
+	/**
+	 * Records that a pair of dissassociates was found together at time, 
+	 * returning true if they hadn't already been found together within the
+	 * window.
+	 */
+	private boolean startsEncounter(long paroleeId, long dissassociateId, long time) {
+		Pair pair = new Pair(paroleeId, dissassociateId);
+		while(true) {
+			Long last = _together.get(pair);
+			if(last == null) {
+				if(_together.putIfAbsent(pair, time) == null) {
+					return true;
+				}
+			} else if(Math.abs(time - last) > _windowMillis) {
+				if(_together.replace(pair, last, time)) {
+					return true;
+				}
+			} else if(time <= last || _together.replace(pair, last, time)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds an alert to a Parolee's alerts, discarding the Parolee's oldest
+	 * once it has too many.
+	 */
+	private void record(long paroleeId, Entry entry) {
+		Alerts alerts = _alerts.get(paroleeId);
+		if(alerts == null) {
+			_alerts.putIfAbsent(paroleeId, new Alerts());
+			alerts = _alerts.get(paroleeId);
+		}
+		alerts._entries.add(entry);
+		if(alerts._count.incrementAndGet() > _retention) {
+			Entry oldest = alerts._entries.pollLast();
+			if(oldest != null) {
+				_allAlerts.remove(oldest);
+				alerts._count.decrementAndGet();
+			}
+		}
+	}
+
+	private static List<DissassociationAlert> select(NavigableSet<Entry> entries, LocalDateTime since, int limit) {
+		List<DissassociationAlert> result = new ArrayList<DissassociationAlert>();
+		for(Entry entry : entries) {
+			if(result.size() >= limit || 
+					(since != null && entry._timestamp.isBefore(since))) {
+				break;
+			}
+			result.add(entry._alert);
+		}
+		return result;
+	}
+
+	private static long toMillis(LocalDateTime timestamp) {
+		return timestamp.toDateTime(DateTimeZone.UTC).getMillis();
+	}
+
+	/**
+	 * A Parolee's alerts, and their number.
+	 */
+	private static class Alerts {
+		private final NavigableSet<Entry> _entries = new ConcurrentSkipListSet<Entry>();
+		private final AtomicInteger _count = new AtomicInteger();
+	}
+
+	/**
+	 * A recorded alert. Entries are ordered most recent first, and those for
+	 * the same time by when they were recorded, so no two are equal.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private final DissassociationAlert _alert;
+		private final LocalDateTime _timestamp;
+		private final long _sequence;
+
+		Entry(DissassociationAlert alert, long sequence) {
+			_alert = alert;
+			_timestamp = alert.getMovement().getTimestamp();
+			_sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry entry) {
+			int result = entry._timestamp.compareTo(_timestamp);
+			return result != 0 ? result : Long.compare(entry._sequence, _sequence);
+		}
+	}
+
+	/**
+	 * An unordered pair of Parolee ids.
+	 */
+	private static class Pair {
+		private final long _low;
+		private final long _high;
+
+		Pair(long id1, long id2) {
+			_low = Math.min(id1, id2);
+			_high = Math.max(id1, id2);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Pair)) {
+				return false;
+			}
+			Pair pair = (Pair)obj;
+			return _low == pair._low && _high == pair._high;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(_low) * 31 + Long.hashCode(_high);
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of Parolee ids, organised in the manner of a roaring
+ * bitmap. The id space is divided into chunks of 65536 ids, keyed by the high
+ * 16 bits of an id. Each chunk that holds at least one id has a container for
+ * the low 16 bits of its ids:
+ *
+ * - while a chunk holds at most 4096 ids, a sorted char[] (2 bytes per id).
+ * - beyond that, a bitmap of 1024 longs (8KB, however many ids it holds).
+ *
+ * So a sparse set costs little more than a sorted array, and a dense set no
+ * more than a plain bitmap. Containers are converted from one form to the
+ * other as ids are added and removed.
+ *
+ * Intersection (and()) walks the two sets' chunk keys in step and intersects
+ * only the containers of chunks they share: arrays by merging, an array and
+ * a bitmap by probing the bitmap, and two bitmaps by ANDing words.
+ *
+ * Ids must lie in the range 0 to Integer.MAX_VALUE. An IdBitmap isn't safe
+ * for concurrent use; callers must synchronise access.
+ *
+ */
+public class IdBitmap {
+	private static final long[] NONE = new long[0];
+
+	// Maximum number of ids held in an array container.
+	static final int ARRAY_MAX = 4096;
+
+	private int[] _keys = new int[0];
+	private Container[] _containers = new Container[0];
+	private int _size;
+
+	/**
+	 * Adds an id, returning true if it wasn't already present.
+	 */
+	public boolean add(long id) {
+		int key = highBits(id);
+		char low = (char)id;
+		int index = Arrays.binarySearch(_keys, 0, _size, key);
+		if(index < 0) {
+			index = -index - 1;
+			insert(index, key, new ArrayContainer());
+		}
+		Container container = _containers[index];
+		if(container.contains(low)) {
+			return false;
+		}
+		_containers[index] = container.add(low);
+		return true;
+	}
+
+	/**
+	 * Removes an id, returning true if it was present.
+	 */
+	public boolean remove(long id) {
+		int index = Arrays.binarySearch(_keys, 0, _size, highBits(id));
+		if(index < 0) {
+			return false;
+		}
+		char low = (char)id;
+		Container container = _containers[index];
+		if(!container.contains(low)) {
+			return false;
+		}
+		container = container.remove(low);
+		if(container.cardinality() == 0) {
+			System.arraycopy(_keys, index + 1, _keys, index, _size - index - 1);
+			System.arraycopy(_containers, index + 1, _containers, index, _size - index - 1);
+			_containers[--_size] = null;
+		} else {
+			_containers[index] = container;
+		}
+		return true;
+	}
+
+	public boolean contains(long id) {
+		if(id < 0 || id > Integer.MAX_VALUE) {
+			return false;
+		}
+		int index = Arrays.binarySearch(_keys, 0, _size, (int)(id >>> 16));
+		return index >= 0 && _containers[index].contains((char)id);
+	}
+
+	public int cardinality() {
+		int cardinality = 0;
+		for(int i = 0; i < _size; i++) {
+			cardinality += _containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+
+	/**
+	 * Returns the ids, in ascending order.
+	 */
+	public long[] toArray() {
+		int cardinality = cardinality();
+		if(cardinality == 0) {
+			return NONE;
+		}
+		long[] ids = new long[cardinality];
+		int count = 0;
+		for(int i = 0; i < _size; i++) {
+			count = _containers[i].copyTo(ids, count, (long)_keys[i] << 16);
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns a new IdBitmap holding the ids present in both of two
+	 * IdBitmaps.
+	 */
+	public static IdBitmap and(IdBitmap first, IdBitmap second) {
+		IdBitmap result = new IdBitmap();
+		int i = 0;
+		int j = 0;
+		while(i < first._size && j < second._size) {
+			int key = first._keys[i];
+			int other = second._keys[j];
+			if(key < other) {
+				i++;
+			} else if(key > other) {
+				j++;
+			} else {
+				Container container = first._containers[i].and(second._containers[j]);
+				if(container.cardinality() > 0) {
+					result.insert(result._size, key, container);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	private void insert(int index, int key, Container container) {
+		if(_size == _keys.length) {
+			int capacity = Math.max(4, _size * 2);
+			_keys = Arrays.copyOf(_keys, capacity);
+			_containers = Arrays.copyOf(_containers, capacity);
+		}
+		System.arraycopy(_keys, index, _keys, index + 1, _size - index);
+		System.arraycopy(_containers, index, _containers, index + 1, _size - index);
+		_keys[index] = key;
+		_containers[index] = container;
+		_size++;
+	}
+
+	private static int highBits(long id) {
+		if(id < 0 || id > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Id out of range: " + id);
+		}
+		return (int)(id >>> 16);
+	}
+
+	/**
+	 * The low 16 bits of the ids in a chunk. add() and remove() return the
+	 * container that should replace the receiver, which may be of the other
+	 * form.
+	 */
+	private static abstract class Container {
+		abstract boolean contains(char value);
+
+		abstract Container add(char value);
+
+		abstract Container remove(char value);
+
+		abstract int cardinality();
+
+		abstract Container and(Container other);
+
+		/**
+		 * Copies the container's values, combined with high, to ids from
+		 * position offset, returning the position after the last copied.
+		 */
+		abstract int copyTo(long[] ids, int offset, long high);
+	}
+
+	private static class ArrayContainer extends Container {
+		private char[] _values;
+		private int _cardinality;
+
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+		ArrayContainer(char[] values, int cardinality) {
+			_values = values;
+			_cardinality = cardinality;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(_values, 0, _cardinality, value) >= 0;
+		}
+
+		@Override
+		Container add(char value) {
+			if(_cardinality == ARRAY_MAX) {
+				return toBitmap().add(value);
+			}
+			int index = -Arrays.binarySearch(_values, 0, _cardinality, value) - 1;
+			if(_cardinality == _values.length) {
+				_values = Arrays.copyOf(_values, Math.min(ARRAY_MAX, _cardinality * 2));
+			}
+			System.arraycopy(_values, index, _values, index + 1, _cardinality - index);
+			_values[index] = value;
+			_cardinality++;
+			return this;
+		}
+
+		@Override
+		Container remove(char value) {
+			int index = Arrays.binarySearch(_values, 0, _cardinality, value);
+			System.arraycopy(_values, index + 1, _values, index, _cardinality - index - 1);
+			_cardinality--;
+			return this;
+		}
+
+		@Override
+		int cardinality() {
+			return _cardinality;
+		}
+
+		@Override
+		Container and(Container other) {
+			char[] values = new char[_cardinality];
+			int count = 0;
+			if(other instanceof BitmapContainer) {
+				for(int i = 0; i < _cardinality; i++) {
+					if(other.contains(_values[i])) {
+						values[count++] = _values[i];
+					}
+				}
+			} else {
+				ArrayContainer array = (ArrayContainer)other;
+				int i = 0;
+				int j = 0;
+				while(i < _cardinality && j < array._cardinality) {
+					if(_values[i] < array._values[j]) {
+						i++;
+					} else if(_values[i] > array._values[j]) {
+						j++;
+					} else {
+						values[count++] = _values[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			return new ArrayContainer(values, count);
+		}
+
+		@Override
+		int copyTo(long[] ids, int offset, long high) {
+			for(int i = 0; i < _cardinality; i++) {
+				ids[offset++] = high | _values[i];
+			}
+			return offset;
+		}
+
+		private BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for(int i = 0; i < _cardinality; i++) {
+				bitmap.add(_values[i]);
+			}
+			return bitmap;
+		}
+	}
+
+	private static class BitmapContainer extends Container {
+		private final long[] _words;
+		private int _cardinality;
+
+		BitmapContainer() {
+			this(new long[1024], 0);
+		}
+
+		BitmapContainer(long[] words, int cardinality) {
+			_words = words;
+			_cardinality = cardinality;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return (_words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		Container add(char value) {
+			_words[value >>> 6] |= 1L << value;
+			_cardinality++;
+			return this;
+		}
+
+		@Override
+		Container remove(char value) {
+			_words[value >>> 6] &= ~(1L << value);
+			_cardinality--;
+			return _cardinality > ARRAY_MAX ? this : toArray();
+		}
+
+		@Override
+		int cardinality() {
+			return _cardinality;
+		}
+
+		@Override
+		Container and(Container other) {
+			if(other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] otherWords = ((BitmapContainer)other)._words;
+			long[] words = new long[_words.length];
+			int cardinality = 0;
+			for(int i = 0; i < words.length; i++) {
+				words[i] = _words[i] & otherWords[i];
+				cardinality += Long.bitCount(words[i]);
+			}
+			BitmapContainer result = new BitmapContainer(words, cardinality);
+			return cardinality > ARRAY_MAX ? result : result.toArray();
+		}
+
+		@Override
+		int copyTo(long[] ids, int offset, long high) {
+			for(int i = 0; i < _words.length; i++) {
+				long word = _words[i];
+				while(word != 0) {
+					ids[offset++] = high | (i << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return offset;
+		}
+
+		private ArrayContainer toArray() {
+			char[] values = new char[Math.max(4, _cardinality)];
+			int count = 0;
+			for(int i = 0; i < _words.length; i++) {
+				long word = _words[i];
+				while(word != 0) {
+					values[count++] = (char)((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, count);
+		}
+	}
+}
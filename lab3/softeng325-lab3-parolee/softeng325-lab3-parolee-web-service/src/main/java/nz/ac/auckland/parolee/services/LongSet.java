@@ -0,0 +1,128 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive long values, implemented as an open-addressing hash table
+ * with linear probing. Values aren't boxed, so a LongSet of n values occupies
+ * a single long[] of between 2n and 4n elements.
+ * 
+ * LongSet isn't thread-safe.
+ *
+ */
+class LongSet {
+	private static final int INITIAL_CAPACITY = 4;
+
+	// Slots holding 0 are empty; whether 0 is a member is recorded separately.
+	private long[] _table = new long[INITIAL_CAPACITY];
+	private int _size;
+	private boolean _containsZero;
+
+	public boolean add(long value) {
+		if(value == 0) {
+			boolean added = !_containsZero;
+			_containsZero = true;
+			return added;
+		}
+		int index = indexOf(_table, value);
+		if(_table[index] == value) {
+			return false;
+		}
+		_table[index] = value;
+		if(++_size * 2 > _table.length) {
+			resize(_table.length * 2);
+		}
+		return true;
+	}
+
+	public boolean remove(long value) {
+		if(value == 0) {
+			boolean removed = _containsZero;
+			_containsZero = false;
+			return removed;
+		}
+		int index = indexOf(_table, value);
+		if(_table[index] != value) {
+			return false;
+		}
+		_table[index] = 0;
+		_size--;
+
+		// Shift back any following values in the probe sequence that would
+		// otherwise become unreachable.
+		int mask = _table.length - 1;
+		int empty = index;
+		for(int i = (index + 1) & mask; _table[i] != 0; i = (i + 1) & mask) {
+			int home = hash(_table[i]) & mask;
+			// Move the value if its home slot isn't cyclically in (empty, i].
+			if(((i - home) & mask) >= ((i - empty) & mask)) {
+				_table[empty] = _table[i];
+				_table[i] = 0;
+				empty = i;
+			}
+		}
+		return true;
+	}
+
+	public boolean contains(long value) {
+		if(value == 0) {
+			return _containsZero;
+		}
+		return _table[indexOf(_table, value)] == value;
+	}
+
+	public int size() {
+		return _size + (_containsZero ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the values in the set, in ascending order.
+	 */
+	public long[] toArray() {
+		long[] values = new long[size()];
+		int count = 0;
+		if(_containsZero) {
+			values[count++] = 0;
+		}
+		for(long value : _table) {
+			if(value != 0) {
+				values[count++] = value;
+			}
+		}
+		Arrays.sort(values);
+		return values;
+	}
+
+	/**
+	 * Returns the index of the slot that holds value, or of the empty slot 
+	 * at which it would be added.
+	 */
+	private static int indexOf(long[] table, long value) {
+		int mask = table.length - 1;
+		int index = hash(value) & mask;
+		while(table[index] != 0 && table[index] != value) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void resize(int capacity) {
+		long[] table = new long[capacity];
+		for(long value : _table) {
+			if(value != 0) {
+				table[indexOf(table, value)] = value;
+			}
+		}
+		_table = table;
+	}
+
+	private static int hash(long value) {
+		// Spread sequential ids across the table.
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+}
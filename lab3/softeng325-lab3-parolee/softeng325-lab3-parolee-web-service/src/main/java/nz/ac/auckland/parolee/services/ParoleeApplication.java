@@ -22,8 +22,9 @@ public class ParoleeApplication extends Application
 	  ParoleeResource resource = new ParoleeResource();
       singletons.add(resource);
       
-      // Register the ContextResolver class for JAXB.
-      //classes.add(ParoleeResolver.class);
+      // Register the ContextResolver for JAXB. As a singleton, its 
+      // JAXBContext is created once, when the application is deployed.
+      singletons.add(new ParoleeResolver());
    }
 
    @Override
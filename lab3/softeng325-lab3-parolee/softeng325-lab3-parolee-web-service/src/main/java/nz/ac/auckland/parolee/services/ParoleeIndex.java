@@ -0,0 +1,313 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.joda.time.LocalDate;
+
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.CriminalProfile;
+import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+/**
+ * Secondary indexes over Parolees, for searching by name, gender, date of
+ * birth, suburb and offence. Each index maps a value to the set of ids of
+ * the Parolees with that value, held as a BitSet indexed by id:
+ *
+ * - names: a sorted map from first and last names (in lower case), so that
+ *   a name prefix selects a contiguous range of keys.
+ * - genders: an EnumMap, with a BitSet per Gender.
+ * - dates of birth: a sorted map, so that a range of dates selects a
+ *   contiguous range of keys.
+ * - suburbs: a hash map from suburb (in lower case).
+ * - offences: an EnumMap, with an IdBitmap (a compressed bitmap) per 
+ *   Offence. A Parolee is indexed under each offence of its criminal 
+ *   profile.
+ *
+ * A search for several offences ANDs their IdBitmaps, so its cost depends
+ * on the number of Parolees convicted of those offences. Otherwise, a 
+ * search intersects the BitSets selected by each of its criteria, so its
+ * cost depends on the number of Parolees rather than on how many index
+ * entries are examined one at a time. Ids are used as bit indexes, so they
+ * must be less than Integer.MAX_VALUE.
+ *
+ * The values a Parolee was indexed under are remembered, so that when the
+ * Parolee is updated its old entries can be removed. Because Parolees are
+ * mutable, update() must be called whenever an indexed property changes.
+ *
+ * A ParoleeIndex is safe for concurrent use. Searches share a read lock and
+ * updates hold the write lock.
+ *
+ */
+public class ParoleeIndex {
+	private static final long[] NONE = new long[0];
+
+	private NavigableMap<String, BitSet> _names = new TreeMap<String, BitSet>();
+	private Map<Gender, BitSet> _genders = new EnumMap<Gender, BitSet>(Gender.class);
+	private NavigableMap<LocalDate, BitSet> _datesOfBirth = new TreeMap<LocalDate, BitSet>();
+	private Map<String, BitSet> _suburbs = new HashMap<String, BitSet>();
+	private Map<Offence, IdBitmap> _offences = new EnumMap<Offence, IdBitmap>(Offence.class);
+	private BitSet _all = new BitSet();
+
+	// The values under which each Parolee is currently indexed.
+	private Map<Long, Entry> _entries = new HashMap<Long, Entry>();
+
+	private ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Indexes a Parolee, replacing any entries made for it previously.
+	 */
+	public void update(Parolee parolee) {
+		int id = toIndex(parolee.getId());
+		Entry entry = new Entry(parolee);
+
+		_lock.writeLock().lock();
+		try {
+			Entry previous = _entries.put(parolee.getId(), entry);
+			if(previous != null) {
+				unindex(id, previous);
+			}
+			index(id, entry);
+		} finally {
+			_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a Parolee from the indexes.
+	 */
+	public void remove(long id) {
+		_lock.writeLock().lock();
+		try {
+			Entry previous = _entries.remove(id);
+			if(previous != null) {
+				unindex(toIndex(id), previous);
+			}
+		} finally {
+			_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the ids, in ascending order, of the Parolees that satisfy all
+	 * of the specified criteria. A criterion that is null (or, for offences,
+	 * empty) isn't applied, so with no criteria the ids of all indexed
+	 * Parolees are returned.
+	 *
+	 * @param name a prefix of the first or last name, ignoring case.
+	 * @param gender the gender.
+	 * @param bornAfter the earliest date of birth (inclusive).
+	 * @param bornBefore the latest date of birth (inclusive).
+	 * @param suburb the suburb of the home address, ignoring case.
+	 * @param offences offences that the Parolee must all have been convicted
+	 *        of.
+	 */
+	public long[] search(String name, Gender gender, LocalDate bornAfter,
+			LocalDate bornBefore, String suburb, Set<Offence> offences) {
+		_lock.readLock().lock();
+		try {
+			BitSet result = (BitSet)_all.clone();
+			if(gender != null) {
+				result.and(get(_genders, gender));
+			}
+			if(suburb != null) {
+				result.and(get(_suburbs, normalise(suburb)));
+			}
+			if(offences != null && !offences.isEmpty()) {
+				IdBitmap convicted = null;
+				for(Offence offence : offences) {
+					IdBitmap ids = _offences.get(offence);
+					if(ids == null) {
+						convicted = new IdBitmap();
+						break;
+					}
+					convicted = convicted == null ? ids : IdBitmap.and(convicted, ids);
+				}
+				result = retain(result, convicted);
+			}
+			if(name != null && !result.isEmpty()) {
+				String prefix = normalise(name);
+				result.and(union(_names.subMap(prefix, true,
+						prefix + Character.MAX_VALUE, false)));
+			}
+			if((bornAfter != null || bornBefore != null) && !result.isEmpty()) {
+				NavigableMap<LocalDate, BitSet> range = _datesOfBirth;
+				if(bornAfter != null) {
+					range = range.tailMap(bornAfter, true);
+				}
+				if(bornBefore != null) {
+					range = range.headMap(bornBefore, true);
+				}
+				result.and(union(range));
+			}
+			return toIds(result);
+		} finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	private void index(int id, Entry entry) {
+		_all.set(id);
+		for(String name : entry._names) {
+			add(_names, name, id);
+		}
+		if(entry._gender != null) {
+			add(_genders, entry._gender, id);
+		}
+		if(entry._dateOfBirth != null) {
+			add(_datesOfBirth, entry._dateOfBirth, id);
+		}
+		if(entry._suburb != null) {
+			add(_suburbs, entry._suburb, id);
+		}
+		for(Offence offence : entry._offences) {
+			IdBitmap ids = _offences.get(offence);
+			if(ids == null) {
+				ids = new IdBitmap();
+				_offences.put(offence, ids);
+			}
+			ids.add(id);
+		}
+	}
+
+	private void unindex(int id, Entry entry) {
+		_all.clear(id);
+		for(String name : entry._names) {
+			remove(_names, name, id);
+		}
+		if(entry._gender != null) {
+			remove(_genders, entry._gender, id);
+		}
+		if(entry._dateOfBirth != null) {
+			remove(_datesOfBirth, entry._dateOfBirth, id);
+		}
+		if(entry._suburb != null) {
+			remove(_suburbs, entry._suburb, id);
+		}
+		for(Offence offence : entry._offences) {
+			IdBitmap ids = _offences.get(offence);
+			if(ids != null) {
+				ids.remove(id);
+				if(ids.isEmpty()) {
+					_offences.remove(offence);
+				}
+			}
+		}
+	}
+
+	private static <K> void add(Map<K, BitSet> index, K key, int id) {
+		BitSet ids = index.get(key);
+		if(ids == null) {
+			ids = new BitSet();
+			index.put(key, ids);
+		}
+		ids.set(id);
+	}
+
+	private static <K> void remove(Map<K, BitSet> index, K key, int id) {
+		BitSet ids = index.get(key);
+		if(ids != null) {
+			ids.clear(id);
+			if(ids.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	private static <K> BitSet get(Map<K, BitSet> index, K key) {
+		BitSet ids = index.get(key);
+		return ids == null ? new BitSet() : ids;
+	}
+
+	private static BitSet union(Map<?, BitSet> index) {
+		BitSet result = new BitSet();
+		for(BitSet ids : index.values()) {
+			result.or(ids);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the members of bits that are also in ids.
+	 */
+	private static BitSet retain(BitSet bits, IdBitmap ids) {
+		BitSet result = new BitSet();
+		for(long id : ids.toArray()) {
+			if(bits.get((int)id)) {
+				result.set((int)id);
+			}
+		}
+		return result;
+	}
+
+	private static long[] toIds(BitSet bits) {
+		if(bits.isEmpty()) {
+			return NONE;
+		}
+		long[] ids = new long[bits.cardinality()];
+		int count = 0;
+		for(int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+			ids[count++] = id;
+		}
+		return ids;
+	}
+
+	private static int toIndex(long id) {
+		if(id < 0 || id >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Parolee id out of range: " + id);
+		}
+		return (int)id;
+	}
+
+	private static String normalise(String value) {
+		return value.trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * The values under which a Parolee is indexed, captured when it was
+	 * indexed.
+	 */
+	private static class Entry {
+		private final List<String> _names;
+		private final Gender _gender;
+		private final LocalDate _dateOfBirth;
+		private final String _suburb;
+		private final Set<Offence> _offences;
+
+		Entry(Parolee parolee) {
+			List<String> names = new ArrayList<String>(2);
+			if(parolee.getFirstname() != null) {
+				names.add(normalise(parolee.getFirstname()));
+			}
+			if(parolee.getLastname() != null) {
+				names.add(normalise(parolee.getLastname()));
+			}
+			_names = names;
+			_gender = parolee.getGender();
+			_dateOfBirth = parolee.getDateOfBirth();
+
+			Address address = parolee.getHomeAddress();
+			_suburb = address == null || address.getSuburb() == null ? null :
+				normalise(address.getSuburb());
+
+			CriminalProfile profile = parolee.getCriminalProfile();
+			_offences = EnumSet.noneOf(Offence.class);
+			if(profile != null) {
+				_offences.addAll(profile.getOffences());
+			}
+		}
+	}
+}
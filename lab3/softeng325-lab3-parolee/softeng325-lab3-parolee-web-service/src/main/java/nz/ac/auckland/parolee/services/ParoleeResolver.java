@@ -1,13 +1,23 @@
 package nz.ac.auckland.parolee.services;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.ws.rs.ext.ContextResolver;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 
+import nz.ac.auckland.jaxb.PooledJAXBContext;
 import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.CriminalProfile;
 import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.CurfewViolation;
+import nz.ac.auckland.parolee.domain.DissassociationAlert;
+import nz.ac.auckland.parolee.domain.GeoPosition;
 import nz.ac.auckland.parolee.domain.Movement;
-import nz.ac.auckland.parolee.domain.Parolee;
+import nz.ac.auckland.parolee.dto.IngestStatistics;
+import nz.ac.auckland.parolee.dto.Parolee;
 
 /**
  * ContextResolver implementation to return a customised JAXBContext for the
@@ -16,31 +26,42 @@ import nz.ac.auckland.parolee.domain.Parolee;
  * The JAX-RS run-time will create a default JAXBContext. To use a default
  * JAXBContext, this class isn't required and shouldn't be registered.
  * 
- * This class is included to show how a customised JAXBContext can be created. 
- * For the customised JAXBContext to be used, this class must be registered 
- * with JAX-RS, by class ParoleeApplication. As with registering any component,
- * the Application class (i.e. ParoleeApplication for this Web service), should
- * return this class from its getClasses() method.   
+ * This class creates a single PooledJAXBContext for all of the types that the
+ * Web service marshals and unmarshals. The context is built eagerly, when the
+ * Web service is deployed, rather than on the first request for each type; 
+ * and Marshaller/Unmarshaller instances are reused by the threads that 
+ * process requests. For the customised JAXBContext to be used, this class 
+ * must be registered with JAX-RS, by class ParoleeApplication. As with 
+ * registering any component, the Application class (i.e. ParoleeApplication
+ * for this Web service), should return an instance of this class from its
+ * getSingletons() method.
  *
  */
 public class ParoleeResolver implements ContextResolver<JAXBContext> {
-	private JAXBContext _context;
+	private static final Class<?>[] TYPES = { Parolee.class,
+			CriminalProfile.class, Movement.class, Curfew.class,
+			Address.class, GeoPosition.class, CurfewViolation.class,
+			DissassociationAlert.class, IngestStatistics.class };
+
+	private static final Set<Class<?>> _types = new HashSet<Class<?>>(
+			Arrays.asList(TYPES));
+
+	private final JAXBContext _context;
 
 	public ParoleeResolver() {
 		try {
 			// The JAXB Context should be able to marshal and unmarshal the
 			// specified classes.
-			_context = JAXBContext.newInstance(Parolee.class, Curfew.class,
-					Movement.class, Address.class);
+			_context = new PooledJAXBContext(TYPES);
 		} catch (JAXBException e) {
-			e.printStackTrace();
+			// Without the context, no request could be processed.
+			throw new IllegalStateException("Unable to create JAXBContext", e);
 		}
 	}
 
 	@Override
 	public JAXBContext getContext(Class<?> type) {
-		if (type.equals(Parolee.class) || type.equals(Curfew.class)
-				|| type.equals(Movement.class) || type.equals(Address.class)) {
+		if (_types.contains(type)) {
 			return _context;
 		} else {
 			return null;
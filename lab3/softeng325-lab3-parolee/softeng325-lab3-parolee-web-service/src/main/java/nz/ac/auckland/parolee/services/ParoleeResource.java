@@ -1,12 +1,21 @@
 package nz.ac.auckland.parolee.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.Consumes;
@@ -18,13 +27,26 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
@@ -35,11 +57,14 @@ import org.slf4j.LoggerFactory;
 import nz.ac.auckland.parolee.domain.Address;
 import nz.ac.auckland.parolee.domain.CriminalProfile;
 import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.CurfewViolation;
+import nz.ac.auckland.parolee.domain.DissassociationAlert;
 import nz.ac.auckland.parolee.domain.Gender;
 import nz.ac.auckland.parolee.domain.GeoPosition;
 import nz.ac.auckland.parolee.domain.Movement;
 import nz.ac.auckland.parolee.domain.Parolee;
 import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
+import nz.ac.auckland.parolee.dto.IngestStatistics;
 
 /**
  * Web service resource implementation for the Parolee application. An instance
@@ -50,8 +75,23 @@ import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
 public class ParoleeResource {
 	private static final Logger _logger = LoggerFactory.getLogger(ParoleeResource.class);
 	
-	private Map<Long, Parolee> _paroleeDB;
+	private static final XMLOutputFactory _outputFactory = XMLOutputFactory.newInstance();
+	private static final XMLInputFactory _inputFactory = createInputFactory();
+	
+	private ConcurrentNavigableMap<Long, Parolee> _paroleeDB;
 	private AtomicLong _idCounter;
+	
+	private AddressGeocoder _geocoder = new AddressGeocoder();
+	private CurfewMonitor _curfewMonitor;
+	private ProximityIndex _proximityIndex;
+	private DissassociationMonitor _dissassociationMonitor;
+	private DissassociateGraph _dissassociateGraph;
+	private ParoleeIndex _paroleeIndex;
+	
+	// Totals for movements recorded by createMovements(), reported by 
+	// getIngestStatistics().
+	private final AtomicLong _ingestedMovements = new AtomicLong();
+	private final AtomicLong _ingestNanos = new AtomicLong();
 
 	public ParoleeResource() {
 		reloadDatabase();
@@ -81,6 +121,7 @@ public class ParoleeResource {
 		Parolee parolee = ParoleeMapper.toDomainModel(dtoParolee);
 		parolee.setId(_idCounter.incrementAndGet());
 		_paroleeDB.put(parolee.getId(), parolee);
+		_paroleeIndex.update(parolee);
 		
 		// Return a Response that specifies a status code of 201 Created along
 		// with the Location header set to the URI of the newly created Parolee.
@@ -104,11 +145,121 @@ public class ParoleeResource {
 			Movement movement) {
 		Parolee parolee = findParolee(id);
 		parolee.addMovement(movement);
+		_curfewMonitor.check(parolee, movement);
+		_dissassociationMonitor.check(parolee, movement);
+		indexPosition(parolee);
 		
 		// JAX-RS will add the default response code to the HTTP response 
 		// message.
 	}
 
+	/**
+	 * Records a batch of Movements for one or more Parolees, e.g. those 
+	 * stored by a tracking device while it was offline. The request body
+	 * is a movements element containing movement elements, each with a
+	 * parolee attribute identifying the Parolee:
+	 * 
+	 * <movements>
+	 *    <movement parolee="1">
+	 *       <time_stamp>2017-08-01T12:00:00.000</time_stamp>
+	 *       <geo_position>...</geo_position>
+	 *    </movement>
+	 *    ...
+	 * </movements>
+	 * 
+	 * The body is parsed incrementally, and the Movements are grouped by 
+	 * Parolee so that each Parolee's history is updated with a single merge.
+	 * The Movements are then checked for curfew violations and dissassociates
+	 * being together in time order across the batch, so that each Movement
+	 * is checked against where its Parolee's dissassociates were at the time.
+	 * Either all of the Movements are recorded or, if the body is malformed
+	 * (400) or refers to an unknown Parolee (404), none are.
+	 * 
+	 * @param is
+	 *            the HTTP request body.
+	 */
+	@POST
+	@Path("movements")
+	@Consumes(MediaType.APPLICATION_XML)
+	public void createMovements(InputStream is, @Context Providers providers) {
+		JAXBContext context = providers.getContextResolver(JAXBContext.class,
+				MediaType.APPLICATION_XML_TYPE).getContext(Movement.class);
+
+		long start = System.nanoTime();
+		Map<Long, List<Movement>> batches;
+		try {
+			batches = inputMovements(is, context);
+		} catch(JAXBException | XMLStreamException | NumberFormatException e) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		long parsed = System.nanoTime();
+
+		// Check that all Parolees exist before recording any Movements.
+		Map<Parolee, List<Movement>> paroleeBatches = new LinkedHashMap<Parolee, List<Movement>>();
+		List<Map.Entry<Parolee, Movement>> checks = new ArrayList<Map.Entry<Parolee, Movement>>();
+		for(Map.Entry<Long, List<Movement>> batch : batches.entrySet()) {
+			Parolee parolee = findParolee(batch.getKey());
+			if(parolee == null) {
+				throw new WebApplicationException(Response.Status.NOT_FOUND);
+			}
+			paroleeBatches.put(parolee, batch.getValue());
+			for(Movement movement : batch.getValue()) {
+				checks.add(new AbstractMap.SimpleImmutableEntry<Parolee, Movement>(parolee, movement));
+			}
+		}
+
+		int count = 0;
+		for(Map.Entry<Parolee, List<Movement>> batch : paroleeBatches.entrySet()) {
+			batch.getKey().addMovements(batch.getValue());
+			count += batch.getValue().size();
+		}
+
+		// Check the Movements in time order, indexing each position as it's
+		// checked, so that a Movement is checked against its Parolee's 
+		// dissassociates' positions at the time rather than where the batch
+		// leaves them. The sort is stable, so Movements with the same time
+		// are checked in document order.
+		Collections.sort(checks, new Comparator<Map.Entry<Parolee, Movement>>() {
+			@Override
+			public int compare(Map.Entry<Parolee, Movement> e1, Map.Entry<Parolee, Movement> e2) {
+				return e1.getValue().compareTo(e2.getValue());
+			}
+		});
+		for(Map.Entry<Parolee, Movement> check : checks) {
+			Parolee parolee = check.getKey();
+			Movement movement = check.getValue();
+			_curfewMonitor.check(parolee, movement);
+			_dissassociationMonitor.check(parolee, movement);
+			if(movement.getGeoPosition() != null) {
+				_proximityIndex.update(parolee.getId(), movement);
+			}
+		}
+		long merged = System.nanoTime();
+
+		_ingestedMovements.addAndGet(count);
+		_ingestNanos.addAndGet(merged - start);
+		_logger.debug("Ingested " + count + " movements for " + 
+				paroleeBatches.size() + " parolees: parsed in " + 
+				(parsed - start) / 1000 + "us, merged in " + 
+				(merged - parsed) / 1000 + "us (" + 
+				perSecond(count, merged - start) + " movements/s)");
+		
+		// JAX-RS will add the default response code (204 No Content) to the
+		// HTTP response message.
+	}
+
+	/**
+	 * Returns the number of Movements recorded by bulk requests to 
+	 * createMovements(), and the time taken to record them, since the Web 
+	 * service's data was last initialised.
+	 */
+	@GET
+	@Path("movements/statistics")
+	@Produces(MediaType.APPLICATION_XML)
+	public IngestStatistics getIngestStatistics() {
+		return new IngestStatistics(_ingestedMovements.get(), _ingestNanos.get());
+	}
+
 	/**
 	 * Updates an existing Parolee. The parts of a Parolee that can be updated
 	 * are those represented by a nz.ac.auckland.parolee.dto.Parolee
@@ -133,6 +284,7 @@ public class ParoleeResource {
 		parolee.setDateOfBirth(dtoParolee.getDateOfBirth());
 		parolee.setHomeAddress(dtoParolee.getHomeAddress());
 		parolee.setCurfew(dtoParolee.getCurfew());
+		_paroleeIndex.update(parolee);
 		
 		// JAX-RS will add the default response code (204 No Content) to the
 		// HTTP response message.
@@ -140,6 +292,8 @@ public class ParoleeResource {
 	
 	/**
 	 * Updates the set of a dissassociate Parolees for a given Parolee.
+	 * Dissassociation is symmetric, so the Parolee is also added to (or 
+	 * removed from) the dissassociates of each Parolee added (or removed).
 	 * 
 	 * @param id the Parolee whose dissassociates should be updated.
 	 * 
@@ -149,18 +303,21 @@ public class ParoleeResource {
 	@Path("{id}/dissassociates")
 	@Consumes(MediaType.APPLICATION_XML)
 	public void updateDissassociates(@PathParam("id") long id, Set<nz.ac.auckland.parolee.dto.Parolee> dissassociates) {
-		// Get the Parolee object from the database.
-		Parolee parolee = findParolee(id);
-		
-		// Lookup the dissassociate Parolee instances in the database.
-		Set<Parolee> dissassociatesInDatabase = new HashSet<Parolee>();
+		// Check that the Parolees exist. Only their ids are needed.
+		if(!_paroleeDB.containsKey(id)) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		long[] ids = new long[dissassociates.size()];
+		int count = 0;
 		for(nz.ac.auckland.parolee.dto.Parolee dtoParolee : dissassociates) {
-			Parolee dissassociate = findParolee(dtoParolee.getId());
-			dissassociatesInDatabase.add(dissassociate);
+			if(!_paroleeDB.containsKey(dtoParolee.getId())) {
+				throw new WebApplicationException(Response.Status.NOT_FOUND);
+			}
+			ids[count++] = dtoParolee.getId();
 		}
 		
-		// Update the Parolee by setting its dissassociates.
-		parolee.updateDissassociates(dissassociatesInDatabase);
+		// Replace the Parolee's edges in the dissassociate graph.
+		_dissassociateGraph.setDissassociates(id, ids);
 		
 		// JAX-RS will add the default response code (204 No Content) to the
 		// HTTP response message.
@@ -182,6 +339,7 @@ public class ParoleeResource {
 		
 		// Update the Parolee's criminal profile.
 		parolee.setCriminalProfile(profile);
+		_paroleeIndex.update(parolee);
 		
 		// JAX-RS will add the default response code (204 No Content) to the
 		// HTTP response message.
@@ -216,48 +374,103 @@ public class ParoleeResource {
 	 * Returns a view of the Parolee database, represented as a List of
 	 * nz.ac.auckland.parolee.dto.Parolee objects.
 	 * 
+	 * Parolees are returned in id order, a page at a time. A page begins with
+	 * the Parolee whose id is start (or, if there is no such Parolee, the 
+	 * next one in id order) and contains at most size Parolees. The response
+	 * includes prev and next Link headers for the adjacent pages, where they
+	 * exist. Because the database is ordered by id, a page is located in 
+	 * O(log n) time, and its Parolees are written to the response message 
+	 * body as they're read, so a page can be of any size.
+	 * 
+	 * Where the near and radius query parameters are specified, the Parolees
+	 * whose last known positions lie within radius kilometres of near (a 
+	 * latitude,longitude pair) are returned, nearest first.
+	 * 
 	 */
 	@GET
 	@Produces(MediaType.APPLICATION_XML)
-	public Response getParolees(@DefaultValue("1") @QueryParam("start") int start, 
+	public Response getParolees(@DefaultValue("1") @QueryParam("start") long start, 
 			@DefaultValue("1") @QueryParam("size")int size,
-			@Context UriInfo uriInfo) {
+			@QueryParam("near") String near,
+			@QueryParam("radius") Double radius,
+			@Context UriInfo uriInfo,
+			@Context Providers providers) {
+		if(near != null || radius != null) {
+			return getParoleesNear(near, radius);
+		}
+		if(size <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		
 		URI uri = uriInfo.getAbsolutePath();
 		
 		Link previous = null;
 		Link next = null;
 		
-		if(start > 1) {
-			// There are previous Parolees - create a previous link.
-			previous = Link.fromUri(uri + "?start={start}&size={size}")
-					.rel("prev")
-					.build(start - 1, size);
+		// Find the id of the last Parolee on the page, and the id of the 
+		// Parolee that starts the next page. Only the keys are traversed.
+		Iterator<Long> ids = _paroleeDB.tailMap(start, true).keySet().iterator();
+		Long last = null;
+		for(int i = 0; i < size && ids.hasNext(); i++) {
+			last = ids.next();
 		}
-		if(start + size <= _paroleeDB.size()) {
+		if(ids.hasNext()) {
 			// There are successive parolees - create a next link.
 			next = Link.fromUri(uri + "?start={start}&size={size}")
 					.rel("next")
-					.build(start + 1, size);
-		}
-
-		// Create list of Parolees to return.
-		List<nz.ac.auckland.parolee.dto.Parolee> parolees = 
-				new ArrayList<nz.ac.auckland.parolee.dto.Parolee>();
-		long paroleeId = start;
-		for(int i = 0; i < size; i++) {
-			Parolee parolee = _paroleeDB.get(paroleeId);
-			parolees.add(ParoleeMapper.toDto(parolee));
+					.build(ids.next(), size);
 		}
 		
-		// Create a GenericEntity to wrap the list of Parolees to return. This
-		// is necessary to preserve generic type data when using any
-		// MessageBodyWriter to handle translation to a particular data format.
-		GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>> entity = 
-				new GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>>(parolees) {};
+		// Walk back from start to find where the previous page begins.
+		ids = _paroleeDB.headMap(start, false).descendingKeySet().iterator();
+		Long first = null;
+		for(int i = 0; i < size && ids.hasNext(); i++) {
+			first = ids.next();
+		}
+		if(first != null) {
+			// There are previous Parolees - create a previous link.
+			previous = Link.fromUri(uri + "?start={start}&size={size}")
+					.rel("prev")
+					.build(first, size);
+		}
+
+		// Select the page's Parolees. Ids are allocated in increasing order, 
+		// so Parolees created from now on won't appear in the page.
+		final Iterable<Parolee> page = last == null ? 
+				new ArrayList<Parolee>() : 
+				_paroleeDB.subMap(start, true, last, true).values();
+
+		final JAXBContext context = providers.getContextResolver(
+				JAXBContext.class, MediaType.APPLICATION_XML_TYPE).getContext(
+				nz.ac.auckland.parolee.dto.Parolee.class);
+
+		// Write the Parolees directly to the HTTP response message body, 
+		// converting each to a DTO as it's written. The XML is the same as 
+		// JAX-RS produces when marshalling a List.
+		StreamingOutput stream = new StreamingOutput() {
+			public void write(OutputStream os) throws IOException {
+				try {
+					outputCollection(os, new Iterable<Object>() {
+						public Iterator<Object> iterator() {
+							final Iterator<Parolee> parolees = page.iterator();
+							return new Iterator<Object>() {
+								public boolean hasNext() {
+									return parolees.hasNext();
+								}
+								public Object next() {
+									return ParoleeMapper.toDto(parolees.next());
+								}
+							};
+						}
+					}, context);
+				} catch(JAXBException | XMLStreamException e) {
+					throw new IOException(e);
+				}
+			}
+		};
 		
-		// Build a Response that contains the list of Parolees plus the link 
-		// headers.
- 		ResponseBuilder builder = Response.ok(entity);
+		// Build a Response that contains the Parolees plus the link headers.
+ 		ResponseBuilder builder = Response.ok(stream);
  		if(previous != null) {
  			builder.links(previous);
  		}
@@ -267,56 +480,195 @@ public class ParoleeResource {
  		Response response = builder.build();
  		
  		// Return the custom Response. The JAX-RS run-time will process this,
- 		// extracting the List of Parolee objects and marshalling them into the
- 		// HTTP response message body. In addition, since the Response object
- 		// contains headers (previous and/or next), these will be added to the 
- 		// HTTP response message. The Response object was created with the 200
- 		// Ok status code, and this too will be added for the status header.
+ 		// invoking the StreamingOutput to write the HTTP response message 
+ 		// body. In addition, since the Response object contains headers 
+ 		// (previous and/or next), these will be added to the HTTP response 
+ 		// message. The Response object was created with the 200 Ok status 
+ 		// code, and this too will be added for the status header.
  		return response;
 	}
 
 	/**
-	 * Returns movement history for a particular Parolee.
+	 * Returns the Parolees whose last known positions lie within radius
+	 * kilometres of near, using the proximity index.
+	 */
+	protected Response getParoleesNear(String near, Double radius) {
+		GeoPosition location = parseGeoPosition(near);
+		if(radius == null || !(radius > 0)) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+
+		List<nz.ac.auckland.parolee.dto.Parolee> parolees = 
+				new ArrayList<nz.ac.auckland.parolee.dto.Parolee>();
+		for(ProximityIndex.Neighbour neighbour : _proximityIndex.findNear(location, radius)) {
+			Parolee parolee = findParolee(neighbour.getParoleeId());
+			if(parolee != null) {
+				parolees.add(ParoleeMapper.toDto(parolee));
+			}
+		}
+		GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>> entity = 
+				new GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>>(parolees) {};
+		return Response.ok(entity).build();
+	}
+
+	/**
+	 * Searches for Parolees, returning those that satisfy all of the 
+	 * specified criteria in id order. Each criterion is optional; with none,
+	 * all Parolees are returned. The search is answered from secondary 
+	 * indexes (see ParoleeIndex) rather than by examining each Parolee.
+	 * 
+	 * @param name
+	 *            a prefix of the first or last name, ignoring case.
+	 * @param gender
+	 *            MALE or FEMALE.
+	 * @param bornAfter
+	 *            the earliest date of birth (inclusive), in ISO format (e.g.
+	 *            1970-01-31).
+	 * @param bornBefore
+	 *            the latest date of birth (inclusive), in ISO format.
+	 * @param suburb
+	 *            the suburb of the home address, ignoring case.
+	 * @param offences
+	 *            offences (e.g. MURDER) that the Parolee must all have been
+	 *            convicted of. The parameter can be repeated.
+	 */
+	@GET
+	@Path("search")
+	@Produces(MediaType.APPLICATION_XML)
+	public Response searchParolees(@QueryParam("name") String name,
+			@QueryParam("gender") String gender,
+			@QueryParam("bornAfter") String bornAfter,
+			@QueryParam("bornBefore") String bornBefore,
+			@QueryParam("suburb") String suburb,
+			@QueryParam("offence") List<String> offences) {
+		Gender genderValue = null;
+		if(gender != null) {
+			genderValue = Gender.fromString(gender);
+			if(genderValue == null) {
+				throw new WebApplicationException(Response.Status.BAD_REQUEST);
+			}
+		}
+		Set<Offence> offenceValues = EnumSet.noneOf(Offence.class);
+		for(String offence : offences) {
+			try {
+				offenceValues.add(Offence.valueOf(offence.trim().toUpperCase()));
+			} catch(IllegalArgumentException e) {
+				throw new WebApplicationException(Response.Status.BAD_REQUEST);
+			}
+		}
+
+		long[] ids = _paroleeIndex.search(name, genderValue, 
+				parseDate(bornAfter), parseDate(bornBefore), suburb, 
+				offenceValues);
+
+		List<nz.ac.auckland.parolee.dto.Parolee> parolees = 
+				new ArrayList<nz.ac.auckland.parolee.dto.Parolee>(ids.length);
+		for(long id : ids) {
+			Parolee parolee = findParolee(id);
+			if(parolee != null) {
+				parolees.add(ParoleeMapper.toDto(parolee));
+			}
+		}
+		GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>> entity = 
+				new GenericEntity<List<nz.ac.auckland.parolee.dto.Parolee>>(parolees) {};
+		return Response.ok(entity).build();
+	}
+
+	/**
+	 * Returns movement history for a particular Parolee, most recent movement
+	 * first. The history can be restricted to a time range, and to a maximum
+	 * number of movements.
 	 * 
 	 * @param id
 	 *            the unique identifier of the Parolee.
+	 * @param from
+	 *            the earliest timestamp (inclusive) of movements to return, 
+	 *            in ISO format (e.g. 2017-08-01T12:00). Optional.
+	 * @param to
+	 *            the latest timestamp (inclusive) of movements to return, in
+	 *            ISO format. Optional.
+	 * @param limit
+	 *            the maximum number of movements to return. Where more 
+	 *            movements lie within the range, the most recent are 
+	 *            returned. Optional.
 	 * 
 	 */
 	@GET
 	@Path("{id}/movements")
 	@Produces(MediaType.APPLICATION_XML)
-	public List<Movement> getMovements(@PathParam("id") long id) {
+	public Response getMovements(@PathParam("id") long id,
+			@QueryParam("from") String from,
+			@QueryParam("to") String to,
+			@QueryParam("limit") Integer limit,
+			@Context Providers providers) {
+		if(limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+
 		// Get the Parolee object from the database.
 		Parolee parolee = findParolee(id);
+		if(parolee == null) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
 
-		// Return the Parolee's movements.
-		return parolee.getMovements();
-		
-		// JAX-RS will processed the returned value, marshalling it and storing
-		// it in the HTTP response message body. It will use the default status 
-		// code of 200 Ok.
+		// Select the requested movements. This is a view of the Parolee's 
+		// movement history, located by binary search; Movement objects are
+		// created only as they're written.
+		final List<Movement> movements = parolee.getMovements(
+				parseTimestamp(from), parseTimestamp(to),
+				limit == null ? Integer.MAX_VALUE : limit);
+
+		final JAXBContext context = providers.getContextResolver(
+				JAXBContext.class, MediaType.APPLICATION_XML_TYPE).getContext(
+				Movement.class);
+
+		// Write the movements directly to the HTTP response message body,
+		// producing the same XML as JAX-RS does when marshalling a List.
+		StreamingOutput stream = new StreamingOutput() {
+			public void write(OutputStream os) throws IOException {
+				try {
+					outputCollection(os, movements, context);
+				} catch(JAXBException | XMLStreamException e) {
+					throw new IOException(e);
+				}
+			}
+		};
+		return Response.ok(stream).build();
 	}
 
 	/**
-	 * Returns the dissassociates associated directly with a particular Parolee.
-	 * Each dissassociate is represented as an instance of class
-	 * nz.ac.auckland.parolee.dto.Parolee.
+	 * Returns the dissassociates associated with a particular Parolee. By
+	 * default, only direct dissassociates are returned; with depth=2, their
+	 * dissassociates are also returned, and so on. Dissassociates are ordered
+	 * by the number of hops from the Parolee. Each dissassociate is 
+	 * represented as an instance of class nz.ac.auckland.parolee.dto.Parolee.
 	 * 
 	 * @param id
 	 *            the unique identifier of the Parolee.
+	 * @param depth
+	 *            the maximum number of hops from the Parolee.
 	 */
 	@GET
 	@Path("{id}/dissassociates")
 	@Produces(MediaType.APPLICATION_XML)
 	public List<nz.ac.auckland.parolee.dto.Parolee> getParoleeDissassociates(
-			@PathParam("id") long id) {
-		// Get the Parolee object from the database.
-		Parolee parolee = findParolee(id);
+			@PathParam("id") long id, 
+			@DefaultValue("1") @QueryParam("depth") int depth) {
+		if(depth <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		if(!_paroleeDB.containsKey(id)) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
 
+		// The graph is traversed using ids alone; DTOs are created only for
+		// the Parolees returned.
 		List<nz.ac.auckland.parolee.dto.Parolee> dissassociates = new ArrayList<nz.ac.auckland.parolee.dto.Parolee>();
-
-		for (Parolee dissassociate : parolee.getDissassociates()) {
-			dissassociates.add(ParoleeMapper.toDto(dissassociate));
+		for(long dissassociateId : _dissassociateGraph.getNeighbourhood(id, depth)) {
+			Parolee dissassociate = findParolee(dissassociateId);
+			if(dissassociate != null) {
+				dissassociates.add(ParoleeMapper.toDto(dissassociate));
+			}
 		}
 		return dissassociates;
 		
@@ -325,6 +677,107 @@ public class ParoleeResource {
 		// code of 200 Ok.
 	}
 
+	/**
+	 * Returns the curfew violations detected for all Parolees, most recent
+	 * first. Violations are detected as Movements are recorded.
+	 * 
+	 * @param since if specified, only violations whose Movements are no 
+	 * earlier than since are returned.
+	 * 
+	 * @param limit if specified, at most limit violations - the most recent -
+	 * are returned.
+	 */
+	@GET
+	@Path("violations")
+	@Produces(MediaType.APPLICATION_XML)
+	public List<CurfewViolation> getCurfewViolations(@QueryParam("since") String since,
+			@QueryParam("limit") Integer limit) {
+		if(limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		return _curfewMonitor.getViolations(parseTimestamp(since), 
+				limit == null ? Integer.MAX_VALUE : limit);
+	}
+
+	/**
+	 * Returns the curfew violations detected for a particular Parolee, most
+	 * recent first.
+	 * 
+	 * @param id the unique identifier of the Parolee.
+	 * 
+	 * @param since if specified, only violations whose Movements are no 
+	 * earlier than since are returned.
+	 * 
+	 * @param limit if specified, at most limit violations - the most recent -
+	 * are returned.
+	 */
+	@GET
+	@Path("{id}/violations")
+	@Produces(MediaType.APPLICATION_XML)
+	public List<CurfewViolation> getCurfewViolations(@PathParam("id") long id,
+			@QueryParam("since") String since,
+			@QueryParam("limit") Integer limit) {
+		if(limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		if(findParolee(id) == null) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		return _curfewMonitor.getViolations(id, parseTimestamp(since), 
+				limit == null ? Integer.MAX_VALUE : limit);
+	}
+
+	/**
+	 * Returns the alerts raised for all Parolees by dissassociates being 
+	 * together, most recent first. Alerts are raised as Movements are 
+	 * recorded.
+	 * 
+	 * @param since if specified, only alerts whose Movements are no earlier
+	 * than since are returned.
+	 * 
+	 * @param limit if specified, at most limit alerts - the most recent - 
+	 * are returned.
+	 */
+	@GET
+	@Path("alerts")
+	@Produces(MediaType.APPLICATION_XML)
+	public List<DissassociationAlert> getDissassociationAlerts(@QueryParam("since") String since,
+			@QueryParam("limit") Integer limit) {
+		if(limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		return _dissassociationMonitor.getAlerts(parseTimestamp(since), 
+				limit == null ? Integer.MAX_VALUE : limit);
+	}
+
+	/**
+	 * Returns the dissassociation alerts that involve a particular Parolee,
+	 * most recent first.
+	 * 
+	 * @param id the unique identifier of the Parolee.
+	 * 
+	 * @param since if specified, only alerts whose Movements are no earlier
+	 * than since are returned.
+	 * 
+	 * @param limit if specified, at most limit alerts - the most recent - 
+	 * are returned.
+	 */
+	@GET
+	@Path("{id}/alerts")
+	@Produces(MediaType.APPLICATION_XML)
+	public List<DissassociationAlert> getDissassociationAlerts(@PathParam("id") long id,
+			@QueryParam("since") String since,
+			@QueryParam("limit") Integer limit) {
+		if(limit != null && limit <= 0) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		if(findParolee(id) == null) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		return _dissassociationMonitor.getAlerts(id, parseTimestamp(since), 
+				limit == null ? Integer.MAX_VALUE : limit);
+	}
+
 	/**
 	 * Returns the CriminalProfile for a particular Parolee.
 	 * 
@@ -345,13 +798,162 @@ public class ParoleeResource {
 	}
 	
 	
+	/**
+	 * Writes JAXB objects (e.g. Movements) to an OutputStream as a collection
+	 * element, with a child element for each object. Each object is 
+	 * marshalled as it is obtained from the Iterable.
+	 */
+	protected void outputCollection(OutputStream os, Iterable<?> elements,
+			JAXBContext context) throws JAXBException, XMLStreamException {
+		XMLStreamWriter writer = _outputFactory.createXMLStreamWriter(os, "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement("collection");
+
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		for(Object element : elements) {
+			marshaller.marshal(element, writer);
+		}
+
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 * Reads a batch of movements from an InputStream, returning them grouped
+	 * by Parolee id, in document order. Each movement element is unmarshalled
+	 * as soon as it has been read, so the document is never held in memory.
+	 */
+	protected Map<Long, List<Movement>> inputMovements(InputStream is,
+			JAXBContext context) throws JAXBException, XMLStreamException {
+		Map<Long, List<Movement>> batches = new LinkedHashMap<Long, List<Movement>>();
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		XMLStreamReader reader = _inputFactory.createXMLStreamReader(is);
+		try {
+			int event = reader.getEventType();
+			while(true) {
+				if(event == XMLStreamConstants.START_ELEMENT && 
+						reader.getLocalName().equals("movement")) {
+					String id = reader.getAttributeValue(null, "parolee");
+					if(id == null) {
+						throw new XMLStreamException("Movement has no parolee attribute");
+					}
+					Long paroleeId = Long.valueOf(id.trim());
+
+					// Unmarshalling leaves the reader positioned at the event
+					// following the movement element.
+					Movement movement = unmarshaller.unmarshal(reader, Movement.class).getValue();
+					if(movement.getTimestamp() == null) {
+						throw new XMLStreamException("Movement has no timestamp");
+					}
+
+					List<Movement> batch = batches.get(paroleeId);
+					if(batch == null) {
+						batch = new ArrayList<Movement>();
+						batches.put(paroleeId, batch);
+					}
+					batch.add(movement);
+					event = reader.getEventType();
+				} else if(reader.hasNext()) {
+					event = reader.next();
+				} else {
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return batches;
+	}
+
+	private static long perSecond(long count, long nanos) {
+		return nanos == 0 ? 0 : count * 1000000000L / nanos;
+	}
+
+	/**
+	 * Parses a latitude,longitude query parameter.
+	 */
+	protected GeoPosition parseGeoPosition(String position) {
+		if(position == null) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		String[] parts = position.split(",");
+		try {
+			if(parts.length == 2) {
+				double latitude = Double.parseDouble(parts[0].trim());
+				double longitude = Double.parseDouble(parts[1].trim());
+				if(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180) {
+					return new GeoPosition(latitude, longitude);
+				}
+			}
+		} catch(NumberFormatException e) {
+		}
+		throw new WebApplicationException(Response.Status.BAD_REQUEST);
+	}
+
+	/**
+	 * Updates the proximity index with a Parolee's last known position.
+	 */
+	protected void indexPosition(Parolee parolee) {
+		Movement latest = parolee.getLastKnownPosition();
+		if(latest != null && latest.getGeoPosition() != null) {
+			_proximityIndex.update(parolee.getId(), latest);
+		}
+	}
+
+	/**
+	 * Parses an optional date query parameter.
+	 */
+	protected LocalDate parseDate(String date) {
+		if(date == null) {
+			return null;
+		}
+		try {
+			return new LocalDate(date);
+		} catch(IllegalArgumentException e) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * Parses an optional timestamp query parameter.
+	 */
+	protected LocalDateTime parseTimestamp(String timestamp) {
+		if(timestamp == null) {
+			return null;
+		}
+		try {
+			return new LocalDateTime(timestamp);
+		} catch(IllegalArgumentException e) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// Request bodies are untrusted, so don't process DTDs or resolve
+		// external entities.
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
 	protected Parolee findParolee(long id) {
 		return _paroleeDB.get(id);
 	}
 
 	protected void reloadDatabase() {
-		_paroleeDB = new ConcurrentHashMap<Long, Parolee>();
+		_paroleeDB = new ConcurrentSkipListMap<Long, Parolee>();
 		_idCounter = new AtomicLong();
+		_curfewMonitor = new CurfewMonitor(_geocoder);
+		_proximityIndex = new ProximityIndex();
+		_dissassociateGraph = new DissassociateGraph();
+		_dissassociationMonitor = new DissassociationMonitor(_proximityIndex, _dissassociateGraph);
+		_paroleeIndex = new ParoleeIndex();
+		_ingestedMovements.set(0);
+		_ingestNanos.set(0);
 
 		// === Initialise Parolee #1
 		long id = _idCounter.incrementAndGet();
@@ -403,5 +1005,10 @@ public class ParoleeResource {
 				address,
 				null);
 		_paroleeDB.put(id, parolee);
+		
+		for(Parolee p : _paroleeDB.values()) {
+			indexPosition(p);
+			_paroleeIndex.update(p);
+		}
 	}
 }
@@ -0,0 +1,262 @@
+package nz.ac.auckland.parolee.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+
+/**
+ * Spatial index of Parolees' last known positions, supporting "who is near
+ * this location?" queries without examining every Parolee. The index holds
+ * each Parolee's most recent Movement, which can also be looked up by id.
+ * 
+ * The index is a grid of cells, each CELL_DEGREES of latitude by 
+ * CELL_DEGREES of longitude (roughly 1km square at New Zealand's latitudes).
+ * Each cell holds the ids of the Parolees positioned within it. A query 
+ * examines only the cells that overlap the bounding box of the query circle,
+ * then filters their Parolees by distance, so its cost depends on the number
+ * of Parolees near the location rather than on the number indexed. Moving a
+ * Parolee costs two hash map updates, and only when it changes cells.
+ * 
+ * A ProximityIndex is safe for concurrent use.
+ *
+ */
+public class ProximityIndex {
+	static final double CELL_DEGREES = 0.01;
+
+	private static final double EARTH_RADIUS_KM = 6371.0088;
+	private static final double KM_PER_DEGREE = EARTH_RADIUS_KM * Math.PI / 180;
+
+	private static final int COLUMNS = (int)Math.round(360 / CELL_DEGREES);
+	private static final int ROWS = (int)Math.round(180 / CELL_DEGREES);
+
+	// Parolee ids, by cell.
+	private Map<Long, Set<Long>> _cells = new ConcurrentHashMap<Long, Set<Long>>();
+
+	// Parolee positions, by Parolee id.
+	private Map<Long, Entry> _entries = new ConcurrentHashMap<Long, Entry>();
+
+	// Locks that serialise updates for the same Parolee.
+	private final Object[] _locks = createLocks(64);
+
+	/**
+	 * A Parolee found by a query, together with its distance from the query
+	 * location.
+	 */
+	public static class Neighbour {
+		private final long _paroleeId;
+		private final Movement _movement;
+		private final double _distance;
+
+		Neighbour(long paroleeId, Movement movement, double distance) {
+			_paroleeId = paroleeId;
+			_movement = movement;
+			_distance = distance;
+		}
+
+		public long getParoleeId() {
+			return _paroleeId;
+		}
+
+		/**
+		 * Returns the Parolee's last known position.
+		 */
+		public Movement getMovement() {
+			return _movement;
+		}
+
+		/**
+		 * Returns the distance from the query location, in kilometres.
+		 */
+		public double getDistance() {
+			return _distance;
+		}
+	}
+
+	/**
+	 * Records a Parolee's last known position, replacing any previous 
+	 * position. The Movement must have a GeoPosition. A Movement older than
+	 * the Parolee's recorded position is ignored, so that concurrent updates
+	 * applied out of order can't replace a newer position with an older one.
+	 * 
+	 * @return true if the position was recorded, false if it was ignored.
+	 */
+	public boolean update(long paroleeId, Movement movement) {
+		GeoPosition position = movement.getGeoPosition();
+		long cell = cell(position.getLatitude(), position.getLongitude());
+		// Updates for the same Parolee are serialised so that a Parolee is
+		// never left in two cells, and so that the timestamp check and the 
+		// replacement are atomic.
+		synchronized(lockFor(paroleeId)) {
+			Entry previous = _entries.get(paroleeId);
+			if(previous != null && movement.getTimestamp().isBefore(previous._movement.getTimestamp())) {
+				return false;
+			}
+			_entries.put(paroleeId, new Entry(movement, cell));
+			if(previous != null && previous._cell == cell) {
+				return true;
+			}
+			cellMembers(cell).add(paroleeId);
+			if(previous != null) {
+				Set<Long> members = _cells.get(previous._cell);
+				if(members != null) {
+					members.remove(paroleeId);
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns a Parolee's last known position, or null if the Parolee isn't
+	 * indexed.
+	 */
+	public Movement getLatest(long paroleeId) {
+		Entry entry = _entries.get(paroleeId);
+		return entry == null ? null : entry._movement;
+	}
+
+	/**
+	 * Removes a Parolee from the index.
+	 */
+	public void remove(long paroleeId) {
+		synchronized(lockFor(paroleeId)) {
+			Entry previous = _entries.remove(paroleeId);
+			if(previous != null) {
+				Set<Long> members = _cells.get(previous._cell);
+				if(members != null) {
+					members.remove(paroleeId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the indexed Parolees within radiusKm kilometres of a location,
+	 * nearest first.
+	 */
+	public List<Neighbour> findNear(GeoPosition location, double radiusKm) {
+		double latitude = location.getLatitude();
+		double longitude = location.getLongitude();
+
+		double latitudeDelta = radiusKm / KM_PER_DEGREE;
+		int minRow = row(Math.max(-90, latitude - latitudeDelta));
+		int maxRow = row(Math.min(90, latitude + latitudeDelta));
+
+		// The longitude span widens towards the poles. Where it spans the 
+		// globe, every column is examined.
+		double maxAbsLatitude = Math.min(90, Math.abs(latitude) + latitudeDelta);
+		double cos = Math.cos(Math.toRadians(maxAbsLatitude));
+		int minColumn;
+		int maxColumn;
+		if(cos <= 0 || radiusKm / (KM_PER_DEGREE * cos) >= 180) {
+			minColumn = 0;
+			maxColumn = COLUMNS - 1;
+		} else {
+			double longitudeDelta = radiusKm / (KM_PER_DEGREE * cos);
+			minColumn = column(longitude - longitudeDelta);
+			maxColumn = column(longitude + longitudeDelta);
+			if(maxColumn < minColumn) {
+				// The span crosses the antimeridian.
+				maxColumn += COLUMNS;
+			}
+		}
+
+		List<Neighbour> neighbours = new ArrayList<Neighbour>();
+		for(int row = minRow; row <= maxRow; row++) {
+			for(int column = minColumn; column <= maxColumn; column++) {
+				Set<Long> members = _cells.get(key(row, column % COLUMNS));
+				if(members == null) {
+					continue;
+				}
+				for(Long paroleeId : members) {
+					Entry entry = _entries.get(paroleeId);
+					if(entry == null) {
+						continue;
+					}
+					double distance = distance(location, entry._movement.getGeoPosition());
+					if(distance <= radiusKm) {
+						neighbours.add(new Neighbour(paroleeId, entry._movement, distance));
+					}
+				}
+			}
+		}
+
+		Collections.sort(neighbours, new Comparator<Neighbour>() {
+			@Override
+			public int compare(Neighbour n1, Neighbour n2) {
+				return Double.compare(n1._distance, n2._distance);
+			}
+		});
+		return neighbours;
+	}
+
+	/**
+	 * Returns the great-circle distance between two positions, in 
+	 * kilometres.
+	 */
+	static double distance(GeoPosition p1, GeoPosition p2) {
+		double lat1 = Math.toRadians(p1.getLatitude());
+		double lat2 = Math.toRadians(p2.getLatitude());
+		double dLat = lat2 - lat1;
+		double dLng = Math.toRadians(p2.getLongitude() - p1.getLongitude());
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + 
+				Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	private Set<Long> cellMembers(long cell) {
+		Set<Long> members = _cells.get(cell);
+		if(members == null) {
+			_cells.putIfAbsent(cell, Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()));
+			members = _cells.get(cell);
+		}
+		return members;
+	}
+
+	private Object lockFor(long paroleeId) {
+		// Lock striping: Parolees share a small number of lock objects.
+		return _locks[(int)(paroleeId & (_locks.length - 1))];
+	}
+
+	private static Object[] createLocks(int count) {
+		Object[] locks = new Object[count];
+		for(int i = 0; i < count; i++) {
+			locks[i] = new Object();
+		}
+		return locks;
+	}
+
+	private static long cell(double latitude, double longitude) {
+		return key(row(latitude), column(longitude));
+	}
+
+	private static long key(int row, int column) {
+		return (long)row * COLUMNS + column;
+	}
+
+	private static int row(double latitude) {
+		return Math.min(ROWS - 1, (int)Math.floor((latitude + 90) / CELL_DEGREES));
+	}
+
+	private static int column(double longitude) {
+		int column = (int)Math.floor((longitude + 180) / CELL_DEGREES) % COLUMNS;
+		return column < 0 ? column + COLUMNS : column;
+	}
+
+	private static class Entry {
+		private final Movement _movement;
+		private final long _cell;
+
+		Entry(Movement movement, long cell) {
+			_movement = movement;
+			_cell = cell;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.CurfewViolation;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for CurfewMonitor.
+ *
+ */
+public class CurfewMonitorTest {
+	private static final GeoPosition HOME = new GeoPosition(-36.873633, 174.841092);
+
+	// About 50m and 500m north of HOME.
+	private static final GeoPosition NEAR = new GeoPosition(-36.873183, 174.841092);
+	private static final GeoPosition FAR = new GeoPosition(-36.869137, 174.841092);
+
+	private static final LocalDateTime NIGHT = new LocalDateTime(2017, 8, 1, 23, 0);
+	private static final LocalDateTime EARLY_MORNING = new LocalDateTime(2017, 8, 2, 5, 0);
+	private static final LocalDateTime DAY = new LocalDateTime(2017, 8, 2, 12, 0);
+
+	private CurfewMonitor _monitor;
+	private Parolee _parolee;
+
+	@Before
+	public void setUp() {
+		_monitor = new CurfewMonitor(new AddressGeocoder());
+
+		Address address = new Address("15", "Bermuda road", "St Johns", "Auckland", "1071");
+		_parolee = new Parolee(1, "Sinnen", "Oliver", Gender.MALE,
+				new LocalDate(1970, 5, 26), address, new Curfew(address,
+						new LocalTime(20, 00), new LocalTime(06, 30)));
+	}
+
+	@Test
+	public void movementsWithinRadiusAreAllowed() {
+		assertNull(_monitor.check(_parolee, new Movement(NIGHT, HOME)));
+		assertNull(_monitor.check(_parolee, new Movement(NIGHT, NEAR)));
+		assertTrue(_monitor.getViolations(1).isEmpty());
+	}
+
+	@Test
+	public void movementsOutsideCurfewPeriodAreAllowed() {
+		assertNull(_monitor.check(_parolee, new Movement(DAY, FAR)));
+	}
+
+	@Test
+	public void movementsAwayFromHomeDuringCurfewAreViolations() {
+		CurfewViolation violation = _monitor.check(_parolee, new Movement(NIGHT, FAR));
+		assertNotNull(violation);
+		assertEquals(1, violation.getParoleeId());
+		assertEquals(500, violation.getDistance(), 5);
+
+		// The curfew spans midnight.
+		assertNotNull(_monitor.check(_parolee, new Movement(EARLY_MORNING, FAR)));
+
+		List<CurfewViolation> violations = _monitor.getViolations(1);
+		assertEquals(2, violations.size());
+		assertEquals(EARLY_MORNING, violations.get(0).getMovement().getTimestamp());
+		assertEquals(violations, _monitor.getViolations());
+	}
+
+	@Test
+	public void violationsAreSelectedBySinceAndLimit() {
+		for(int i = 0; i < 5; i++) {
+			_monitor.check(_parolee, new Movement(NIGHT.plusMinutes(i), FAR));
+		}
+		// Recorded out of order, and at the same time as another.
+		_monitor.check(_parolee, new Movement(NIGHT.plusMinutes(2), FAR));
+
+		List<CurfewViolation> violations = _monitor.getViolations(1, NIGHT.plusMinutes(2), 10);
+		assertEquals(4, violations.size());
+		assertEquals(NIGHT.plusMinutes(4), violations.get(0).getMovement().getTimestamp());
+		assertEquals(NIGHT.plusMinutes(2), violations.get(3).getMovement().getTimestamp());
+
+		violations = _monitor.getViolations(null, 2);
+		assertEquals(2, violations.size());
+		assertEquals(NIGHT.plusMinutes(3), violations.get(1).getMovement().getTimestamp());
+		assertTrue(_monitor.getViolations(2, null, 10).isEmpty());
+	}
+
+	@Test
+	public void oldestViolationsAreDiscarded() {
+		_monitor = new CurfewMonitor(new AddressGeocoder(), CurfewMonitor.RADIUS_METRES, 3);
+		for(int i = 0; i < 5; i++) {
+			_monitor.check(_parolee, new Movement(NIGHT.plusMinutes(i), FAR));
+		}
+
+		List<CurfewViolation> violations = _monitor.getViolations(1);
+		assertEquals(3, violations.size());
+		assertEquals(NIGHT.plusMinutes(2), violations.get(2).getMovement().getTimestamp());
+		assertEquals(violations, _monitor.getViolations());
+	}
+
+	@Test
+	public void replacedCurfewIsUsed() {
+		_parolee.setCurfew(new Curfew(_parolee.getHomeAddress(),
+				new LocalTime(9, 0), new LocalTime(17, 0)));
+
+		assertNull(_monitor.check(_parolee, new Movement(NIGHT, FAR)));
+		assertNotNull(_monitor.check(_parolee, new Movement(DAY, FAR)));
+	}
+
+	@Test
+	public void unknownAddressesArentMonitored() {
+		Address address = new Address("1", "Queen Street", "CBD", "Auckland", "1010");
+		_parolee.setCurfew(new Curfew(address, new LocalTime(20, 0), new LocalTime(6, 30)));
+		assertNull(_monitor.check(_parolee, new Movement(NIGHT, FAR)));
+
+		// An address with a location needs no lookup.
+		address = new Address("1", "Queen Street", "CBD", "Auckland", "1010", HOME);
+		_parolee.setCurfew(new Curfew(address, new LocalTime(20, 0), new LocalTime(6, 30)));
+		assertNotNull(_monitor.check(_parolee, new Movement(NIGHT, FAR)));
+	}
+}
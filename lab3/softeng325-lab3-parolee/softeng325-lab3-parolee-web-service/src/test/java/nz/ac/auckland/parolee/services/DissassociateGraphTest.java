@@ -0,0 +1,80 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for DissassociateGraph and LongSet.
+ *
+ */
+public class DissassociateGraphTest {
+
+	@Test
+	public void dissassociationIsSymmetric() {
+		DissassociateGraph graph = new DissassociateGraph();
+		graph.setDissassociates(1, new long[] { 3, 2 });
+
+		assertArrayEquals(new long[] { 2, 3 }, graph.getDissassociates(1));
+		assertArrayEquals(new long[] { 1 }, graph.getDissassociates(2));
+		assertTrue(graph.areDissassociates(3, 1));
+		assertFalse(graph.areDissassociates(2, 3));
+	}
+
+	@Test
+	public void settingDissassociatesReplacesEdges() {
+		DissassociateGraph graph = new DissassociateGraph();
+		graph.setDissassociates(1, new long[] { 2, 3 });
+		graph.setDissassociates(1, new long[] { 3, 4 });
+
+		assertArrayEquals(new long[] { 3, 4 }, graph.getDissassociates(1));
+		assertEquals(0, graph.getDissassociates(2).length);
+		assertArrayEquals(new long[] { 1 }, graph.getDissassociates(4));
+
+		graph.addDissassociates(2, new long[] { 3 });
+		graph.remove(3);
+		assertArrayEquals(new long[] { 4 }, graph.getDissassociates(1));
+		assertEquals(0, graph.getDissassociates(2).length);
+	}
+
+	@Test
+	public void neighbourhoodIsOrderedByHops() {
+		// 1 - 2 - 4 - 5, and 1 - 3 - 4.
+		DissassociateGraph graph = new DissassociateGraph();
+		graph.setDissassociates(1, new long[] { 2, 3 });
+		graph.setDissassociates(4, new long[] { 2, 3, 5 });
+
+		assertArrayEquals(new long[] { 2, 3 }, graph.getNeighbourhood(1, 1));
+		assertArrayEquals(new long[] { 2, 3, 4 }, graph.getNeighbourhood(1, 2));
+		assertArrayEquals(new long[] { 2, 3, 4, 5 }, graph.getNeighbourhood(1, 10));
+		assertEquals(0, graph.getNeighbourhood(6, 2).length);
+	}
+
+	@Test
+	public void longSetBehavesAsASet() {
+		LongSet set = new LongSet();
+		Set<Long> expected = new HashSet<Long>();
+		Random random = new Random(325);
+
+		for(int i = 0; i < 100000; i++) {
+			long value = random.nextInt(2000) - 100;
+			if(random.nextBoolean()) {
+				assertEquals(expected.add(value), set.add(value));
+			} else {
+				assertEquals(expected.remove(value), set.remove(value));
+			}
+			assertEquals(expected.size(), set.size());
+		}
+		for(long value = -100; value < 1900; value++) {
+			assertEquals(expected.contains(value), set.contains(value));
+		}
+		assertEquals(expected.size(), set.toArray().length);
+	}
+}
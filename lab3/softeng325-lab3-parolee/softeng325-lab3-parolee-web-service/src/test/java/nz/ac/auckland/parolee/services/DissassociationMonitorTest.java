@@ -0,0 +1,156 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import nz.ac.auckland.parolee.domain.DissassociationAlert;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for DissassociationMonitor.
+ *
+ */
+public class DissassociationMonitorTest {
+	private static final GeoPosition PLACE = new GeoPosition(-36.848461, 174.763336);
+
+	// About 50m and 500m north of PLACE.
+	private static final GeoPosition NEAR = new GeoPosition(-36.848011, 174.763336);
+	private static final GeoPosition FAR = new GeoPosition(-36.843965, 174.763336);
+
+	private static final LocalDateTime NOW = new LocalDateTime(2017, 8, 1, 12, 0);
+
+	private ProximityIndex _index;
+	private DissassociationMonitor _monitor;
+	private Parolee _oliver;
+	private Parolee _catherine;
+	private Parolee _nasser;
+
+	@Before
+	public void setUp() {
+		_index = new ProximityIndex();
+		DissassociateGraph graph = new DissassociateGraph();
+		_monitor = new DissassociationMonitor(_index, graph);
+
+		_oliver = parolee(1);
+		_catherine = parolee(2);
+		_nasser = parolee(3);
+		graph.setDissassociates(1, new long[] { 2 });
+
+		_index.update(2, new Movement(NOW, NEAR));
+		_index.update(3, new Movement(NOW, PLACE));
+	}
+
+	@Test
+	public void dissassociatesTogetherRaiseAlerts() {
+		Movement movement = new Movement(NOW.plusMinutes(5), PLACE);
+		List<DissassociationAlert> alerts = _monitor.check(_oliver, movement);
+
+		assertEquals(1, alerts.size());
+		DissassociationAlert alert = alerts.get(0);
+		assertEquals(1, alert.getParoleeId());
+		assertEquals(2, alert.getDissassociateId());
+		assertEquals(movement, alert.getMovement());
+		assertEquals(50, alert.getDistance(), 1);
+
+		assertEquals(alerts, _monitor.getAlerts(1));
+		assertEquals(alerts, _monitor.getAlerts(2));
+		assertEquals(alerts, _monitor.getAlerts());
+		assertTrue(_monitor.getAlerts(3).isEmpty());
+	}
+
+	@Test
+	public void dissassociatesStayingTogetherRaiseOneAlert() {
+		assertEquals(1, _monitor.check(_oliver, new Movement(NOW.plusMinutes(1), PLACE)).size());
+
+		// Each later fix is within the window of the last time they were 
+		// found together.
+		for(int minutes = 2; minutes <= 30; minutes++) {
+			_index.update(2, new Movement(NOW.plusMinutes(minutes - 1), NEAR));
+			assertTrue(_monitor.check(_oliver, new Movement(NOW.plusMinutes(minutes), PLACE)).isEmpty());
+		}
+		assertEquals(1, _monitor.getAlerts().size());
+
+		// Once they've been apart for longer than the window, meeting again
+		// raises a new alert.
+		_index.update(2, new Movement(NOW.plusMinutes(60), NEAR));
+		assertEquals(1, _monitor.check(_oliver, new Movement(NOW.plusMinutes(60), PLACE)).size());
+		assertEquals(2, _monitor.getAlerts().size());
+	}
+
+	@Test
+	public void alertsAreSelectedBySinceAndLimit() {
+		for(int hours = 0; hours < 3; hours++) {
+			_index.update(2, new Movement(NOW.plusHours(hours), NEAR));
+			_monitor.check(_oliver, new Movement(NOW.plusHours(hours), PLACE));
+		}
+
+		List<DissassociationAlert> alerts = _monitor.getAlerts(NOW.plusHours(1), Integer.MAX_VALUE);
+		assertEquals(2, alerts.size());
+		assertEquals(NOW.plusHours(2), alerts.get(0).getMovement().getTimestamp());
+		assertEquals(NOW.plusHours(1), alerts.get(1).getMovement().getTimestamp());
+
+		alerts = _monitor.getAlerts(2, null, 1);
+		assertEquals(1, alerts.size());
+		assertEquals(NOW.plusHours(2), alerts.get(0).getMovement().getTimestamp());
+	}
+
+	@Test
+	public void oldestAlertsAreDiscarded() {
+		DissassociateGraph graph = new DissassociateGraph();
+		graph.setDissassociates(1, new long[] { 2 });
+		DissassociationMonitor monitor = new DissassociationMonitor(_index, graph,
+				DissassociationMonitor.RADIUS_METRES, DissassociationMonitor.WINDOW_MINUTES, 2);
+		for(int hours = 0; hours < 3; hours++) {
+			_index.update(2, new Movement(NOW.plusHours(hours), NEAR));
+			monitor.check(_oliver, new Movement(NOW.plusHours(hours), PLACE));
+		}
+
+		List<DissassociationAlert> alerts = monitor.getAlerts(1);
+		assertEquals(2, alerts.size());
+		assertEquals(NOW.plusHours(1), alerts.get(1).getMovement().getTimestamp());
+		assertEquals(alerts, monitor.getAlerts());
+	}
+
+	@Test
+	public void dissassociationIsSymmetric() {
+		_index.update(1, new Movement(NOW, PLACE));
+		List<DissassociationAlert> alerts = _monitor.check(_catherine, new Movement(NOW, NEAR));
+
+		assertEquals(1, alerts.size());
+		assertEquals(2, alerts.get(0).getParoleeId());
+		assertEquals(1, alerts.get(0).getDissassociateId());
+	}
+
+	@Test
+	public void dissassociatesApartRaiseNoAlerts() {
+		assertTrue(_monitor.check(_oliver, new Movement(NOW, FAR)).isEmpty());
+	}
+
+	@Test
+	public void dissassociatesAtDifferentTimesRaiseNoAlerts() {
+		assertTrue(_monitor.check(_oliver, new Movement(NOW.plusMinutes(11), PLACE)).isEmpty());
+		assertTrue(_monitor.check(_oliver, new Movement(NOW.minusMinutes(11), PLACE)).isEmpty());
+	}
+
+	@Test
+	public void otherParoleesRaiseNoAlerts() {
+		// Nasser is at PLACE, but isn't one of Oliver's dissassociates.
+		assertTrue(_monitor.check(_oliver, new Movement(NOW, FAR)).isEmpty());
+		assertTrue(_monitor.check(_nasser, new Movement(NOW, NEAR)).isEmpty());
+	}
+
+	private static Parolee parolee(long id) {
+		return new Parolee(id, "Lastname", "Firstname", Gender.MALE,
+				new LocalDate(1970, 1, 1), null, null);
+	}
+}
@@ -0,0 +1,92 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for IdBitmap.
+ *
+ */
+public class IdBitmapTest {
+
+	@Test
+	public void addAndRemove() {
+		IdBitmap bitmap = new IdBitmap();
+		assertTrue(bitmap.add(70000));
+		assertTrue(bitmap.add(3));
+		assertFalse(bitmap.add(3));
+
+		assertTrue(bitmap.contains(3));
+		assertFalse(bitmap.contains(4));
+		assertArrayEquals(new long[] { 3, 70000 }, bitmap.toArray());
+
+		assertTrue(bitmap.remove(70000));
+		assertFalse(bitmap.remove(70000));
+		assertArrayEquals(new long[] { 3 }, bitmap.toArray());
+	}
+
+	@Test
+	public void denseChunksAreConvertedAndRestored() {
+		// Fill a chunk beyond the array container's capacity, so that it's 
+		// held as a bitmap, then empty it again.
+		IdBitmap bitmap = new IdBitmap();
+		int count = IdBitmap.ARRAY_MAX * 2;
+		for(int id = 0; id < count; id++) {
+			bitmap.add(id * 3 % 65536);
+		}
+		assertEquals(count, bitmap.cardinality());
+		for(int id = 0; id < count; id += 2) {
+			assertTrue(bitmap.remove(id * 3 % 65536));
+		}
+		assertEquals(count / 2, bitmap.cardinality());
+		for(int id = 1; id < count; id += 2) {
+			assertTrue(bitmap.contains(id * 3 % 65536));
+		}
+	}
+
+	@Test
+	public void matchesSortedSet() {
+		Random random = new Random(325);
+		IdBitmap first = new IdBitmap();
+		IdBitmap second = new IdBitmap();
+		SortedSet<Long> firstIds = new TreeSet<Long>();
+		SortedSet<Long> secondIds = new TreeSet<Long>();
+
+		// The first set is sparse across several chunks and the second is 
+		// dense in a few, so all container combinations are intersected.
+		for(int i = 0; i < 50000; i++) {
+			long sparse = random.nextInt(4 * 65536);
+			long dense = random.nextInt(2 * 65536);
+			assertEquals(firstIds.add(sparse), first.add(sparse));
+			assertEquals(secondIds.add(dense), second.add(dense));
+			if(i % 3 == 0) {
+				long removed = random.nextInt(4 * 65536);
+				assertEquals(firstIds.remove(removed), first.remove(removed));
+			}
+		}
+		assertArrayEquals(toArray(firstIds), first.toArray());
+		assertArrayEquals(toArray(secondIds), second.toArray());
+
+		SortedSet<Long> both = new TreeSet<Long>(firstIds);
+		both.retainAll(secondIds);
+		assertArrayEquals(toArray(both), IdBitmap.and(first, second).toArray());
+		assertArrayEquals(toArray(both), IdBitmap.and(second, first).toArray());
+	}
+
+	private static long[] toArray(SortedSet<Long> ids) {
+		long[] result = new long[ids.size()];
+		int count = 0;
+		for(long id : ids) {
+			result[count++] = id;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,99 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.CriminalProfile;
+import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.Parolee;
+
+/**
+ * Unit tests for ParoleeIndex.
+ *
+ */
+public class ParoleeIndexTest {
+	private ParoleeIndex _index;
+	private Parolee _oliver;
+
+	@Before
+	public void createIndex() {
+		_index = new ParoleeIndex();
+
+		_oliver = new Parolee(1, "Sinnen", "Oliver", Gender.MALE,
+				new LocalDate(1970, 5, 26),
+				new Address("15", "Bermuda road", "St Johns", "Auckland", "1071"), null);
+		CriminalProfile profile = new CriminalProfile();
+		profile.addConviction(new CriminalProfile.Conviction(new LocalDate(
+				1994, 1, 19), "Crime of passion", Offence.MURDER,
+				Offence.POSSESION_OF_OFFENSIVE_WEAPON));
+		_oliver.setCriminalProfile(profile);
+		_index.update(_oliver);
+
+		_index.update(new Parolee(2, "Watson", "Catherine", Gender.FEMALE,
+				new LocalDate(1970, 2, 9),
+				new Address("22", "Tarawera Terrace", "St Heliers", "Auckland", "1071"), null));
+		_index.update(new Parolee(3, "Giacaman", "Nasser", Gender.MALE,
+				new LocalDate(1980, 10, 19),
+				new Address("67", "Drayton Gardens", "Oraeki", "Auckland", "1071"), null));
+	}
+
+	@Test
+	public void searchWithoutCriteriaReturnsAll() {
+		assertArrayEquals(new long[] { 1, 2, 3 }, 
+				_index.search(null, null, null, null, null, null));
+	}
+
+	@Test
+	public void searchIntersectsCriteria() {
+		assertArrayEquals(new long[] { 1, 3 }, 
+				_index.search(null, Gender.MALE, null, null, null, null));
+		assertArrayEquals(new long[] { 1 }, _index.search(null, Gender.MALE, 
+				null, new LocalDate(1975, 1, 1), null, null));
+		assertArrayEquals(new long[] { 2 }, 
+				_index.search(null, null, null, null, "st heliers", null));
+		assertArrayEquals(new long[] { 1 }, _index.search(null, null, null, null,
+				null, EnumSet.of(Offence.MURDER, Offence.POSSESION_OF_OFFENSIVE_WEAPON)));
+		assertEquals(0, _index.search(null, null, null, null, null,
+				EnumSet.of(Offence.MURDER, Offence.THEFT)).length);
+	}
+
+	@Test
+	public void searchMatchesNamePrefixes() {
+		// Prefixes of first and last names match, ignoring case.
+		assertArrayEquals(new long[] { 1 }, 
+				_index.search("sin", null, null, null, null, null));
+		assertArrayEquals(new long[] { 2 }, 
+				_index.search("Cath", null, null, null, null, null));
+		assertArrayEquals(new long[] { 1, 3 }, 
+				_index.search("", Gender.MALE, null, null, null, null));
+		assertEquals(0, _index.search("x", null, null, null, null, null).length);
+	}
+
+	@Test
+	public void updateReplacesEntries() {
+		_oliver.setLastname("Smith");
+		_oliver.setDateOfBirth(new LocalDate(1990, 1, 1));
+		_oliver.setCriminalProfile(null);
+		_index.update(_oliver);
+
+		assertEquals(0, _index.search("Sinnen", null, null, null, null, null).length);
+		assertArrayEquals(new long[] { 1 }, 
+				_index.search("smith", null, null, null, null, null));
+		assertArrayEquals(new long[] { 1 }, _index.search(null, null, 
+				new LocalDate(1985, 1, 1), null, null, null));
+		assertEquals(0, _index.search(null, null, null, null, null, 
+				EnumSet.of(Offence.MURDER)).length);
+
+		_index.remove(1);
+		assertArrayEquals(new long[] { 2, 3 }, 
+				_index.search(null, null, null, null, null, null));
+	}
+}
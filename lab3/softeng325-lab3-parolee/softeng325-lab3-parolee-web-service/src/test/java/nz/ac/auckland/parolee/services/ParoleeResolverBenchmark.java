@@ -0,0 +1,71 @@
+package nz.ac.auckland.parolee.services;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.bind.JAXBContext;
+
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.dto.Parolee;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for ParoleeResolver, which logs the cost of creating the 
+ * JAXBContext and of marshalling a Parolee with and without pooled 
+ * Marshallers. Run with mvn test -Pbenchmark.
+ *
+ */
+public class ParoleeResolverBenchmark {
+	private static final Logger _logger = LoggerFactory.getLogger(ParoleeResolverBenchmark.class);
+
+	private static final int ITERATIONS = 20000;
+
+	@Test
+	public void measureMarshallingCost() throws Exception {
+		long start = System.nanoTime();
+		JAXBContext pooled = new ParoleeResolver().getContext(Parolee.class);
+		long contextNanos = System.nanoTime() - start;
+
+		JAXBContext plain = JAXBContext.newInstance(Parolee.class);
+		Parolee parolee = createParolee();
+
+		// Warm up.
+		marshal(plain, parolee, ITERATIONS);
+		marshal(pooled, parolee, ITERATIONS);
+
+		long plainNanos = marshal(plain, parolee, ITERATIONS);
+		long pooledNanos = marshal(pooled, parolee, ITERATIONS);
+
+		_logger.info("JAXBContext created in " + contextNanos / 1000000 + "ms");
+		_logger.info("Marshalling a Parolee: " + plainNanos / ITERATIONS
+				+ "ns with a new Marshaller per request, " + pooledNanos
+				/ ITERATIONS + "ns with a pooled Marshaller");
+	}
+
+	private static long marshal(JAXBContext context, Parolee parolee,
+			int iterations) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			context.createMarshaller().marshal(parolee, new ByteArrayOutputStream());
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static Parolee createParolee() {
+		Address address = new Address("15", "Bermuda road", "St Johns",
+				"Auckland", "1071");
+		return new Parolee(1, "Sinnen", "Oliver", Gender.MALE, new LocalDate(
+				1970, 5, 26), address, new Curfew(address, new LocalTime(20,
+				00), new LocalTime(06, 30)), new Movement(new LocalDateTime(
+				2017, 8, 1, 12, 0), new GeoPosition(-36.852617, 174.769525)));
+	}
+}
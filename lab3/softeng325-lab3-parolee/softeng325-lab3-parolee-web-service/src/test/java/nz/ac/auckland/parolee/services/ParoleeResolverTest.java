@@ -0,0 +1,132 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import nz.ac.auckland.jaxb.PooledJAXBContext;
+import nz.ac.auckland.parolee.domain.Address;
+import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.Gender;
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.dto.Parolee;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+/**
+ * Unit tests for ParoleeResolver and PooledJAXBContext. The cost of 
+ * marshalling with PooledJAXBContext is measured by ParoleeResolverBenchmark.
+ *
+ */
+public class ParoleeResolverTest {
+	@Test
+	public void resolvesServiceTypesOnly() {
+		ParoleeResolver resolver = new ParoleeResolver();
+
+		JAXBContext context = resolver.getContext(Parolee.class);
+		assertSame(context, resolver.getContext(Movement.class));
+		assertNull(resolver.getContext(String.class));
+	}
+
+	@Test
+	public void reusesMarshallersPerThread() throws Exception {
+		final JAXBContext context = new ParoleeResolver().getContext(Parolee.class);
+		Marshaller marshaller = context.createMarshaller();
+		assertSame(marshaller, context.createMarshaller());
+
+		final AtomicReference<Marshaller> other = new AtomicReference<Marshaller>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					other.set(context.createMarshaller());
+				} catch (Exception e) {
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotSame(marshaller, other.get());
+	}
+
+	@Test
+	public void reusedMarshallersAreReset() throws Exception {
+		JAXBContext context = new ParoleeResolver().getContext(Parolee.class);
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "ISO-8859-1");
+
+		marshaller = context.createMarshaller();
+		assertEquals(false, marshaller.getProperty(Marshaller.JAXB_FRAGMENT));
+		assertEquals(false, marshaller.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+		assertEquals("UTF-8", marshaller.getProperty(Marshaller.JAXB_ENCODING));
+
+		// A schema location can't be unset, so the Marshaller is replaced.
+		marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, "parolee.xsd");
+		Marshaller replacement = context.createMarshaller();
+		assertNotSame(marshaller, replacement);
+		assertNull(replacement.getProperty(Marshaller.JAXB_SCHEMA_LOCATION));
+		assertSame(replacement, context.createMarshaller());
+	}
+
+	@Test
+	public void keepsMarshallersForMaxSizeThreads() throws Exception {
+		final JAXBContext context = new PooledJAXBContext(1, Parolee.class);
+		Marshaller marshaller = context.createMarshaller();
+		assertSame(marshaller, context.createMarshaller());
+
+		// A second thread isn't given a kept Marshaller.
+		final AtomicReference<Marshaller> first = new AtomicReference<Marshaller>();
+		final AtomicReference<Marshaller> second = new AtomicReference<Marshaller>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					first.set(context.createMarshaller());
+					second.set(context.createMarshaller());
+				} catch (Exception e) {
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotSame(first.get(), second.get());
+	}
+
+	@Test
+	public void roundTripsParolee() throws Exception {
+		JAXBContext context = new ParoleeResolver().getContext(Parolee.class);
+		Parolee parolee = createParolee();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		context.createMarshaller().marshal(parolee, out);
+		Parolee copy = (Parolee) context.createUnmarshaller().unmarshal(
+				new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals(parolee, copy);
+		assertEquals(parolee.getCurfew(), copy.getCurfew());
+		assertEquals(parolee.getLastKnownPosition(), copy.getLastKnownPosition());
+	}
+
+	private static Parolee createParolee() {
+		Address address = new Address("15", "Bermuda road", "St Johns",
+				"Auckland", "1071");
+		return new Parolee(1, "Sinnen", "Oliver", Gender.MALE, new LocalDate(
+				1970, 5, 26), address, new Curfew(address, new LocalTime(20,
+				00), new LocalTime(06, 30)), new Movement(new LocalDateTime(
+				2017, 8, 1, 12, 0), new GeoPosition(-36.852617, 174.769525)));
+	}
+}
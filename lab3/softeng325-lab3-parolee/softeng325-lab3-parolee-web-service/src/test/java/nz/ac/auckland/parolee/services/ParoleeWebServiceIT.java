@@ -8,6 +8,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -25,9 +26,12 @@ import nz.ac.auckland.parolee.domain.Address;
 import nz.ac.auckland.parolee.domain.CriminalProfile;
 import nz.ac.auckland.parolee.domain.CriminalProfile.Offence;
 import nz.ac.auckland.parolee.domain.Curfew;
+import nz.ac.auckland.parolee.domain.CurfewViolation;
+import nz.ac.auckland.parolee.domain.DissassociationAlert;
 import nz.ac.auckland.parolee.domain.Gender;
 import nz.ac.auckland.parolee.domain.GeoPosition;
 import nz.ac.auckland.parolee.domain.Movement;
+import nz.ac.auckland.parolee.dto.IngestStatistics;
 import nz.ac.auckland.parolee.dto.Parolee;
 
 import org.joda.time.LocalDate;
@@ -251,6 +255,46 @@ public class ParoleeWebServiceIT {
 		assertEquals(1, updatedDissassociates.size());
 	}
 
+	/**
+	 * Tests that dissassociation is symmetric, and that the Web service can
+	 * return dissassociates more than one hop away.
+	 */
+	@Test
+	public void queryDissassociatesToDepth() {
+		// Oliver is a dissassociate of Catherine, who is a dissassociate of 
+		// Nasser.
+		Set<Parolee> dissassociates = new HashSet<Parolee>();
+		dissassociates.add(_client.target(WEB_SERVICE_URI + "/1").request()
+				.accept(MediaType.APPLICATION_XML).get(Parolee.class));
+		dissassociates.add(_client.target(WEB_SERVICE_URI + "/3").request()
+				.accept(MediaType.APPLICATION_XML).get(Parolee.class));
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/2/dissassociates")
+				.request().put(Entity.xml(new GenericEntity<Set<Parolee>>(
+						dissassociates) {
+				}));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		List<Parolee> direct = _client
+				.target(WEB_SERVICE_URI + "/1/dissassociates")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, direct.size());
+		assertEquals(2, direct.get(0).getId());
+
+		List<Parolee> twoHops = _client
+				.target(WEB_SERVICE_URI + "/1/dissassociates")
+				.queryParam("depth", 2)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(2, twoHops.size());
+		assertEquals(2, twoHops.get(0).getId());
+		assertEquals(3, twoHops.get(1).getId());
+	}
+
 	@Test
 	public void updateCriminalProfile() {
 		final String targetUri = WEB_SERVICE_URI + "/1/criminal-profile";
@@ -365,7 +409,50 @@ public class ParoleeWebServiceIT {
 		assertEquals(1, parolees.size());
 		assertEquals(2, parolees.get(0).getId());
 		assertEquals("<" + WEB_SERVICE_URI + "?start=1&size=1>; rel=\"prev\"", previous.toString());
-		assertNotNull("<" + WEB_SERVICE_URI + "?start=1&size=1>; rel=\"prev\"", next.toString());
+		assertEquals("<" + WEB_SERVICE_URI + "?start=3&size=1>; rel=\"next\"", next.toString());
+	}
+
+	/**
+	 * Tests that the Web service returns consistent pages of Parolees when the
+	 * page size is greater than 1, and rejects a page size that isn't 
+	 * positive.
+	 */
+	@Test
+	public void queryAllParoleesInPages() {
+		Response response = _client
+				.target(WEB_SERVICE_URI + "?start=1&size=2").request().get();
+		Link previous = response.getLink("prev");
+		Link next = response.getLink("next");
+		List<Parolee> parolees = response.readEntity(new GenericType<List<Parolee>>() {});
+		response.close();
+
+		// The first page holds Parolees 1 and 2.
+		assertEquals(2, parolees.size());
+		assertEquals(1, parolees.get(0).getId());
+		assertEquals(2, parolees.get(1).getId());
+		assertNull(previous);
+		assertEquals("<" + WEB_SERVICE_URI + "?start=3&size=2>; rel=\"next\"", next.toString());
+
+		response = _client.target(next).request().get();
+		previous = response.getLink("prev");
+		next = response.getLink("next");
+		parolees = response.readEntity(new GenericType<List<Parolee>>() {});
+		response.close();
+
+		// The second, and last, page holds Parolee 3 only.
+		assertEquals(1, parolees.size());
+		assertEquals(3, parolees.get(0).getId());
+		assertEquals("<" + WEB_SERVICE_URI + "?start=1&size=2>; rel=\"prev\"", previous.toString());
+		assertNull(next);
+
+		// A page beyond the last Parolee is empty.
+		parolees = _client.target(WEB_SERVICE_URI + "?start=4&size=2").request()
+				.get(new GenericType<List<Parolee>>() {});
+		assertEquals(0, parolees.size());
+
+		response = _client.target(WEB_SERVICE_URI + "?size=0").request().get();
+		assertEquals(400, response.getStatus());
+		response.close();
 	}
 
 	/**
@@ -383,4 +470,465 @@ public class ParoleeWebServiceIT {
 		// Oliver has 3 recorded movements.
 		assertEquals(3, movementsForOliver.size());
 	}
+
+	/**
+	 * Tests that the Web service can return a time range of a Parolee's
+	 * movements, and limit the number returned.
+	 */
+	@Test
+	public void queryParoleeMovementsInRange() {
+		// Oliver's movements were recorded now, an hour ago and a day ago.
+		LocalDateTime now = new LocalDateTime();
+
+		List<Movement> lastTwoHours = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.queryParam("from", now.minusHours(2).toString())
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertEquals(2, lastTwoHours.size());
+		assertTrue(lastTwoHours.get(0).compareTo(lastTwoHours.get(1)) > 0);
+
+		List<Movement> beforeTwoHours = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.queryParam("to", now.minusHours(2).toString())
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertEquals(1, beforeTwoHours.size());
+
+		List<Movement> latest = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.queryParam("limit", 1)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertEquals(1, latest.size());
+		assertEquals(lastTwoHours.get(0), latest.get(0));
+	}
+
+	/**
+	 * Tests that the Web service can record a batch of movements for several
+	 * Parolees in a single request.
+	 */
+	@Test
+	public void addMovementsInBulk() {
+		LocalDateTime start = new LocalDateTime().minusDays(30);
+		StringBuilder body = new StringBuilder("<movements>");
+		for(int i = 0; i < 1000; i++) {
+			// Alternate between Parolees #2 and #3, with no whitespace 
+			// between elements.
+			body.append("<movement parolee=\"" + (2 + i % 2) + "\">");
+			body.append("<time_stamp>" + start.plusMinutes(i) + "</time_stamp>");
+			body.append("<geo_position><latitude>-36.8</latitude>" + 
+					"<longitude>174.7</longitude></geo_position>");
+			body.append("</movement>");
+		}
+		// A movement for Oliver that precedes his existing movements.
+		body.append("\n   <movement parolee=\"1\">\n");
+		body.append("      <time_stamp>" + start + "</time_stamp>\n");
+		body.append("   </movement>\n</movements>");
+
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/movements").request()
+				.post(Entity.xml(body.toString()));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		List<Movement> movementsForCatherine = _client
+				.target(WEB_SERVICE_URI + "/2/movements")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertEquals(500, movementsForCatherine.size());
+		assertEquals(start.plusMinutes(998), movementsForCatherine.get(0).getTimestamp());
+
+		List<Movement> movementsForOliver = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertEquals(4, movementsForOliver.size());
+		assertEquals(start, movementsForOliver.get(3).getTimestamp());
+
+		// The Web service reports the movements recorded.
+		IngestStatistics statistics = _client
+				.target(WEB_SERVICE_URI + "/movements/statistics")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(IngestStatistics.class);
+		assertEquals(1001, statistics.getMovements());
+		assertTrue(statistics.getNanos() > 0);
+		_logger.info(statistics.toString());
+	}
+
+	/**
+	 * Tests that the Web service records none of a batch of movements where
+	 * the batch refers to an unknown Parolee, or is malformed.
+	 */
+	@Test
+	public void addMovementsInBulkIsAtomic() {
+		String movement = "<time_stamp>" + new LocalDateTime() + "</time_stamp>";
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/movements").request()
+				.post(Entity.xml("<movements>" + 
+						"<movement parolee=\"2\">" + movement + "</movement>" + 
+						"<movement parolee=\"99\">" + movement + "</movement>" + 
+						"</movements>"));
+		assertEquals(404, response.getStatus());
+		response.close();
+
+		response = _client
+				.target(WEB_SERVICE_URI + "/movements").request()
+				.post(Entity.xml("<movements>" + 
+						"<movement parolee=\"2\">" + movement + "</movement>" + 
+						"<movement>" + movement + "</movement>" + 
+						"</movements>"));
+		assertEquals(400, response.getStatus());
+		response.close();
+
+		List<Movement> movementsForCatherine = _client
+				.target(WEB_SERVICE_URI + "/2/movements")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Movement>>() {
+				});
+		assertTrue(movementsForCatherine.isEmpty());
+
+		// Rejected batches aren't counted.
+		IngestStatistics statistics = _client
+				.target(WEB_SERVICE_URI + "/movements/statistics")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(IngestStatistics.class);
+		assertEquals(0, statistics.getMovements());
+	}
+
+	/**
+	 * Tests that the Web service detects movements that breach a Parolee's
+	 * curfew as they are recorded.
+	 */
+	@Test
+	public void queryCurfewViolations() {
+		// Oliver's curfew runs from 20:00 to 06:30, at his home in St Johns.
+		LocalDateTime night = new LocalDateTime().withTime(23, 0, 0, 0);
+		GeoPosition home = new GeoPosition(-36.873633, 174.841092);
+		GeoPosition cityCentre = new GeoPosition(-36.848238, 174.762212);
+
+		Movement[] movements = { new Movement(night, home),
+				new Movement(night.plusMinutes(30), cityCentre),
+				new Movement(night.withHourOfDay(12), cityCentre) };
+		for(Movement movement : movements) {
+			Response response = _client
+					.target(WEB_SERVICE_URI + "/1/movements")
+					.request().post(Entity.xml(movement));
+			assertEquals(204, response.getStatus());
+			response.close();
+		}
+
+		List<CurfewViolation> violations = _client
+				.target(WEB_SERVICE_URI + "/1/violations")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<CurfewViolation>>() {
+				});
+		assertEquals(1, violations.size());
+		assertEquals(movements[1], violations.get(0).getMovement());
+		assertTrue(violations.get(0).getDistance() > 7000);
+
+		List<CurfewViolation> allViolations = _client
+				.target(WEB_SERVICE_URI + "/violations")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<CurfewViolation>>() {
+				});
+		assertEquals(violations, allViolations);
+
+		// Select violations by time and number.
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.request().post(Entity.xml(new Movement(night.plusMinutes(45), cityCentre)));
+		response.close();
+		violations = _client
+				.target(WEB_SERVICE_URI + "/violations")
+				.queryParam("limit", 1)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<CurfewViolation>>() {
+				});
+		assertEquals(1, violations.size());
+		assertEquals(night.plusMinutes(45), violations.get(0).getMovement().getTimestamp());
+
+		violations = _client
+				.target(WEB_SERVICE_URI + "/1/violations")
+				.queryParam("since", night.plusMinutes(31).toString())
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<CurfewViolation>>() {
+				});
+		assertEquals(1, violations.size());
+	}
+
+	/**
+	 * Tests that the Web service can find Parolees near a location, based on
+	 * their last known positions.
+	 */
+	@Test
+	public void queryParoleesNearLocation() {
+		// Oliver was last seen at -36.852617,174.769525.
+		List<Parolee> parolees = _client.target(WEB_SERVICE_URI)
+				.queryParam("near", "-36.85,174.77")
+				.queryParam("radius", 1)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, parolees.size());
+		assertEquals(1, parolees.get(0).getId());
+
+		// Move Catherine into range, and Oliver out of it.
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/2/movements").request()
+				.post(Entity.xml(new Movement(new LocalDateTime(), 
+						new GeoPosition(-36.851, 174.771))));
+		response.close();
+		response = _client
+				.target(WEB_SERVICE_URI + "/1/movements").request()
+				.post(Entity.xml(new Movement(new LocalDateTime(), 
+						new GeoPosition(-36.95, 174.77))));
+		response.close();
+
+		parolees = _client.target(WEB_SERVICE_URI)
+				.queryParam("near", "-36.85,174.77")
+				.queryParam("radius", 1)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, parolees.size());
+		assertEquals(2, parolees.get(0).getId());
+
+		response = _client.target(WEB_SERVICE_URI)
+				.queryParam("near", "north")
+				.queryParam("radius", 1)
+				.request().accept(MediaType.APPLICATION_XML).get();
+		assertEquals(400, response.getStatus());
+		response.close();
+	}
+
+	/**
+	 * Tests that the Web service raises an alert when a Parolee is found with
+	 * one of their dissassociates.
+	 */
+	@Test
+	public void queryDissassociationAlerts() {
+		// Make Catherine one of Oliver's dissassociates.
+		Parolee catherine = _client
+				.target(WEB_SERVICE_URI + "/2").request()
+				.accept(MediaType.APPLICATION_XML).get(Parolee.class);
+		Set<Parolee> dissassociates = new HashSet<Parolee>();
+		dissassociates.add(catherine);
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/1/dissassociates")
+				.request().put(Entity.xml(new GenericEntity<Set<Parolee>>(
+						dissassociates) {
+				}));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		// Catherine, and then Oliver, are seen at the same place.
+		LocalDateTime now = new LocalDateTime();
+		GeoPosition place = new GeoPosition(-36.848238, 174.762212);
+		response = _client
+				.target(WEB_SERVICE_URI + "/2/movements").request()
+				.post(Entity.xml(new Movement(now, place)));
+		response.close();
+		Movement movement = new Movement(now.plusMinutes(1), place);
+		response = _client
+				.target(WEB_SERVICE_URI + "/1/movements").request()
+				.post(Entity.xml(movement));
+		response.close();
+
+		List<DissassociationAlert> alerts = _client
+				.target(WEB_SERVICE_URI + "/2/alerts")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(1, alerts.size());
+		assertEquals(1, alerts.get(0).getParoleeId());
+		assertEquals(2, alerts.get(0).getDissassociateId());
+		assertEquals(movement, alerts.get(0).getMovement());
+
+		List<DissassociationAlert> allAlerts = _client
+				.target(WEB_SERVICE_URI + "/alerts")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(alerts, allAlerts);
+
+		// Oliver is seen again with Catherine within the window, which 
+		// doesn't raise another alert.
+		response = _client
+				.target(WEB_SERVICE_URI + "/1/movements").request()
+				.post(Entity.xml(new Movement(now.plusMinutes(2), place)));
+		response.close();
+		allAlerts = _client
+				.target(WEB_SERVICE_URI + "/alerts")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(1, allAlerts.size());
+
+		// They meet again half an hour later, which does.
+		response = _client
+				.target(WEB_SERVICE_URI + "/2/movements").request()
+				.post(Entity.xml(new Movement(now.plusMinutes(30), place)));
+		response.close();
+		response = _client
+				.target(WEB_SERVICE_URI + "/1/movements").request()
+				.post(Entity.xml(new Movement(now.plusMinutes(31), place)));
+		response.close();
+
+		// Select alerts by time and number.
+		allAlerts = _client
+				.target(WEB_SERVICE_URI + "/alerts")
+				.queryParam("limit", 1)
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(1, allAlerts.size());
+		assertEquals(now.plusMinutes(31), allAlerts.get(0).getMovement().getTimestamp());
+
+		alerts = _client
+				.target(WEB_SERVICE_URI + "/2/alerts")
+				.queryParam("since", now.plusMinutes(5).toString())
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(allAlerts, alerts);
+
+		response = _client
+				.target(WEB_SERVICE_URI + "/alerts")
+				.queryParam("limit", 0)
+				.request().accept(MediaType.APPLICATION_XML).get();
+		assertEquals(400, response.getStatus());
+		response.close();
+	}
+
+	/**
+	 * Tests that the Web service raises an alert when a batch of movements 
+	 * finds two dissassociates together, even though both have moved on by
+	 * the end of the batch.
+	 */
+	@Test
+	public void queryDissassociationAlertsForBulkMovements() {
+		// Make Catherine one of Oliver's dissassociates.
+		Parolee catherine = _client
+				.target(WEB_SERVICE_URI + "/2").request()
+				.accept(MediaType.APPLICATION_XML).get(Parolee.class);
+		Set<Parolee> dissassociates = new HashSet<Parolee>();
+		dissassociates.add(catherine);
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/1/dissassociates")
+				.request().put(Entity.xml(new GenericEntity<Set<Parolee>>(
+						dissassociates) {
+				}));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		// Oliver, and then Catherine, are seen at the same place, after 
+		// which they are seen in different places.
+		LocalDateTime now = new LocalDateTime();
+		String place = "<geo_position><latitude>-36.848238</latitude>" + 
+				"<longitude>174.762212</longitude></geo_position>";
+		String oliverElsewhere = "<geo_position><latitude>-36.95</latitude>" + 
+				"<longitude>174.77</longitude></geo_position>";
+		String catherineElsewhere = "<geo_position><latitude>-36.8</latitude>" + 
+				"<longitude>174.7</longitude></geo_position>";
+		String body = "<movements>" + 
+				"<movement parolee=\"1\"><time_stamp>" + now + "</time_stamp>" + place + "</movement>" + 
+				"<movement parolee=\"1\"><time_stamp>" + now.plusMinutes(30) + "</time_stamp>" + oliverElsewhere + "</movement>" + 
+				"<movement parolee=\"2\"><time_stamp>" + now.plusMinutes(1) + "</time_stamp>" + place + "</movement>" + 
+				"<movement parolee=\"2\"><time_stamp>" + now.plusMinutes(31) + "</time_stamp>" + catherineElsewhere + "</movement>" + 
+				"</movements>";
+		response = _client
+				.target(WEB_SERVICE_URI + "/movements").request()
+				.post(Entity.xml(body));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		List<DissassociationAlert> alerts = _client
+				.target(WEB_SERVICE_URI + "/alerts")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<DissassociationAlert>>() {
+				});
+		assertEquals(1, alerts.size());
+		assertEquals(2, alerts.get(0).getParoleeId());
+		assertEquals(1, alerts.get(0).getDissassociateId());
+		assertEquals(now.plusMinutes(1), alerts.get(0).getMovement().getTimestamp());
+		assertEquals(now, alerts.get(0).getDissassociateMovement().getTimestamp());
+	}
+
+	/**
+	 * Tests that the Web service rejects malformed movement queries.
+	 */
+	@Test
+	public void queryParoleeMovementsWithInvalidParameters() {
+		Response response = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.queryParam("limit", 0)
+				.request().accept(MediaType.APPLICATION_XML).get();
+		assertEquals(400, response.getStatus());
+		response.close();
+
+		response = _client
+				.target(WEB_SERVICE_URI + "/1/movements")
+				.queryParam("from", "yesterday")
+				.request().accept(MediaType.APPLICATION_XML).get();
+		assertEquals(400, response.getStatus());
+		response.close();
+	}
+
+	/**
+	 * Tests that the Web service can search for Parolees, and that its 
+	 * search reflects updates to Parolees' criminal profiles.
+	 */
+	@Test
+	public void searchParolees() {
+		List<Parolee> parolees = _client
+				.target(WEB_SERVICE_URI + "/search")
+				.queryParam("gender", "male")
+				.queryParam("bornBefore", "1975-01-01")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, parolees.size());
+		assertEquals("Sinnen", parolees.get(0).getLastname());
+
+		parolees = _client
+				.target(WEB_SERVICE_URI + "/search")
+				.queryParam("name", "wat")
+				.queryParam("suburb", "St Heliers")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, parolees.size());
+		assertEquals("Watson", parolees.get(0).getLastname());
+
+		// Convict Nasser of theft, and search for thieves.
+		CriminalProfile profile = new CriminalProfile();
+		profile.addConviction(new CriminalProfile.Conviction(
+				new LocalDate(), "Shoplifting", Offence.THEFT));
+		Response response = _client.target(WEB_SERVICE_URI + "/3/criminal-profile")
+				.request().put(Entity.xml(profile));
+		assertEquals(204, response.getStatus());
+		response.close();
+
+		parolees = _client
+				.target(WEB_SERVICE_URI + "/search")
+				.queryParam("offence", "THEFT")
+				.request().accept(MediaType.APPLICATION_XML)
+				.get(new GenericType<List<Parolee>>() {
+				});
+		assertEquals(1, parolees.size());
+		assertEquals("Giacaman", parolees.get(0).getLastname());
+
+		response = _client
+				.target(WEB_SERVICE_URI + "/search")
+				.queryParam("offence", "JAYWALKING")
+				.request().accept(MediaType.APPLICATION_XML).get();
+		assertEquals(400, response.getStatus());
+		response.close();
+	}
 }
@@ -0,0 +1,70 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for ProximityIndex, which logs the cost of a proximity query 
+ * over a large number of Parolees, compared with a linear scan. Run with
+ * mvn test -Pbenchmark.
+ *
+ */
+public class ProximityIndexBenchmark {
+	private static final Logger _logger = LoggerFactory.getLogger(ProximityIndexBenchmark.class);
+
+	private static final GeoPosition AUCKLAND = new GeoPosition(-36.848461, 174.763336);
+
+	private static final LocalDateTime NOW = new LocalDateTime();
+
+	@Test
+	public void measureQueryCost() {
+		final int parolees = 50000;
+		final int queries = 200;
+		ProximityIndex index = new ProximityIndex();
+		GeoPosition[] positions = new GeoPosition[parolees];
+		Random random = new Random(325);
+
+		// Spread Parolees over a 100km square around Auckland.
+		for(int i = 0; i < parolees; i++) {
+			positions[i] = new GeoPosition(AUCKLAND.getLatitude() + random.nextDouble() - 0.5,
+					AUCKLAND.getLongitude() + random.nextDouble() - 0.5);
+			index.update(i, movement(positions[i]));
+		}
+
+		int found = 0;
+		long start = System.nanoTime();
+		for(int q = 0; q < queries; q++) {
+			found += index.findNear(positions[q], 1).size();
+		}
+		long indexNanos = System.nanoTime() - start;
+
+		int scanned = 0;
+		start = System.nanoTime();
+		for(int q = 0; q < queries; q++) {
+			for(GeoPosition position : positions) {
+				if(ProximityIndex.distance(positions[q], position) <= 1) {
+					scanned++;
+				}
+			}
+		}
+		long scanNanos = System.nanoTime() - start;
+
+		assertEquals(scanned, found);
+		_logger.info("1km proximity query over " + parolees + " parolees: " + 
+				indexNanos / queries / 1000 + "us with the index, " + 
+				scanNanos / queries / 1000 + "us with a linear scan");
+	}
+
+	private static Movement movement(GeoPosition position) {
+		return new Movement(NOW, position);
+	}
+}
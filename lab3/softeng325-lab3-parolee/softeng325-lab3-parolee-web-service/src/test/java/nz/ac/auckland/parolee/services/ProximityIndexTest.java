@@ -0,0 +1,85 @@
+package nz.ac.auckland.parolee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import nz.ac.auckland.parolee.domain.GeoPosition;
+import nz.ac.auckland.parolee.domain.Movement;
+
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+
+/**
+ * Unit tests for ProximityIndex. The cost of its queries is measured by 
+ * ProximityIndexBenchmark.
+ *
+ */
+public class ProximityIndexTest {
+	private static final GeoPosition AUCKLAND = new GeoPosition(-36.848461, 174.763336);
+
+	private static final LocalDateTime NOW = new LocalDateTime();
+
+	@Test
+	public void findsParoleesWithinRadiusNearestFirst() {
+		ProximityIndex index = new ProximityIndex();
+		index.update(1, movement(new GeoPosition(-36.870000, 174.763336)));	// ~2.4km
+		index.update(2, movement(new GeoPosition(-36.849000, 174.764000)));	// ~0.1km
+		index.update(3, movement(new GeoPosition(-37.787001, 175.279253)));	// Hamilton
+
+		List<ProximityIndex.Neighbour> neighbours = index.findNear(AUCKLAND, 5);
+		assertEquals(2, neighbours.size());
+		assertEquals(2, neighbours.get(0).getParoleeId());
+		assertEquals(1, neighbours.get(1).getParoleeId());
+		assertEquals(2.4, neighbours.get(1).getDistance(), 0.1);
+
+		assertEquals(1, index.findNear(AUCKLAND, 1).size());
+		assertEquals(3, index.findNear(AUCKLAND, 200).size());
+	}
+
+	@Test
+	public void updatesAndRemovalsMoveParolees() {
+		ProximityIndex index = new ProximityIndex();
+		index.update(1, movement(AUCKLAND));
+		index.update(1, movement(new GeoPosition(-37.787001, 175.279253)));
+		assertTrue(index.findNear(AUCKLAND, 5).isEmpty());
+
+		index.update(1, movement(AUCKLAND));
+		assertEquals(1, index.findNear(AUCKLAND, 5).size());
+		assertEquals(movement(AUCKLAND), index.getLatest(1));
+
+		index.remove(1);
+		assertTrue(index.findNear(AUCKLAND, 5).isEmpty());
+		assertNull(index.getLatest(1));
+	}
+
+	@Test
+	public void olderMovementsAreIgnored() {
+		ProximityIndex index = new ProximityIndex();
+		Movement hamilton = new Movement(NOW.plusMinutes(5), new GeoPosition(-37.787001, 175.279253));
+		assertTrue(index.update(1, hamilton));
+
+		// An update applied after a newer one doesn't replace it.
+		assertFalse(index.update(1, movement(AUCKLAND)));
+		assertEquals(hamilton, index.getLatest(1));
+		assertTrue(index.findNear(AUCKLAND, 5).isEmpty());
+		assertEquals(1, index.findNear(hamilton.getGeoPosition(), 5).size());
+	}
+
+	@Test
+	public void findsParoleesAcrossTheAntimeridian() {
+		ProximityIndex index = new ProximityIndex();
+		index.update(1, movement(new GeoPosition(-16.5, 179.999)));
+		index.update(2, movement(new GeoPosition(-16.5, -179.999)));
+
+		assertEquals(2, index.findNear(new GeoPosition(-16.5, 180), 1).size());
+		assertEquals(2, index.findNear(new GeoPosition(-16.5, -180), 1).size());
+	}
+
+	private static Movement movement(GeoPosition position) {
+		return new Movement(NOW, position);
+	}
+}
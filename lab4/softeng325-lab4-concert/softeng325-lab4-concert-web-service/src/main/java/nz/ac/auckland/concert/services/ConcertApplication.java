@@ -22,6 +22,10 @@ public class ConcertApplication extends Application {
     public ConcertApplication()
     {
         _classes.add(ConcertResource.class);
+
+        // Register the ContextResolver for JAXB. As a singleton, its
+        // JAXBContext is created once, when the application is deployed.
+        _singletons.add(new ConcertResolver());
     }
 
     @Override
@@ -0,0 +1,41 @@
+package nz.ac.auckland.concert.services;
+
+import javax.ws.rs.ext.ContextResolver;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import nz.ac.auckland.concert.domain.Concert;
+import nz.ac.auckland.concert.domain.Performer;
+import nz.ac.auckland.jaxb.PooledJAXBContext;
+
+/**
+ * ContextResolver implementation to return a customised JAXBContext for the
+ * Concert Web service.
+ * 
+ * A single PooledJAXBContext is created, when the Web service is deployed,
+ * for the Concert and Performer classes. Marshaller/Unmarshaller instances
+ * are then reused by the threads that process requests rather than being
+ * created for each request.
+ *
+ */
+public class ConcertResolver implements ContextResolver<JAXBContext> {
+	private final JAXBContext _context;
+
+	public ConcertResolver() {
+		try {
+			_context = new PooledJAXBContext(Concert.class, Performer.class);
+		} catch (JAXBException e) {
+			// Without the context, no request could be processed.
+			throw new IllegalStateException("Unable to create JAXBContext", e);
+		}
+	}
+
+	@Override
+	public JAXBContext getContext(Class<?> type) {
+		if(type.equals(Concert.class) || type.equals(Performer.class)) {
+			return _context;
+		} else {
+			return null;
+		}
+	}
+}